@@ -0,0 +1,12 @@
+package io.github.caseforge.awaken;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 异步执行的Invoker, 服务方法返回CompletableFuture/CompletionStage时, 在结果完成后绑定Response
+ */
+public interface AsyncInvoker extends Invoker {
+
+    CompletionStage<Object> invokeAsync(Object input);
+
+}
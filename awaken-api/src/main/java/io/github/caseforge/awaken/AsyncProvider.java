@@ -0,0 +1,33 @@
+package io.github.caseforge.awaken;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 异步提供值的Provider, 如调用远程服务. 同一对象下相互独立的节点同时开始赋值, 全部完成后才进入校验
+ */
+public interface AsyncProvider extends Provider {
+
+    /**
+     * @param oldValue
+     * @return 完成时为新值
+     */
+    CompletionStage<Object> provideAsync(Object oldValue);
+
+    /**
+     * 逐个赋值时在当前线程等待结果
+     */
+    @Override
+    default Object provide(Object oldValue) throws Exception {
+        try {
+            return provideAsync(oldValue).toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+}
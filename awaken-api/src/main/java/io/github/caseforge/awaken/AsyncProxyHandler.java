@@ -0,0 +1,13 @@
+package io.github.caseforge.awaken;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 接口方法返回CompletableFuture/CompletionStage时, 代理优先调用handleAsync, 不占用调用线程等待结果
+ */
+public interface AsyncProxyHandler extends ProxyHandler {
+
+    CompletionStage<Object> handleAsync(Method method, Object input, Class<?> responseType);
+
+}
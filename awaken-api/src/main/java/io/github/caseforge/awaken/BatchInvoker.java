@@ -0,0 +1,12 @@
+package io.github.caseforge.awaken;
+
+import java.util.List;
+
+/**
+ * 一次处理多个请求的Invoker, 返回的Response与请求一一对应
+ */
+public interface BatchInvoker extends Invoker {
+
+    List<Object> invokeBatch(List<?> inputs) throws Exception;
+
+}
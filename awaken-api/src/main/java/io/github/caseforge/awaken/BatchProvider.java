@@ -0,0 +1,18 @@
+package io.github.caseforge.awaken;
+
+import java.util.List;
+
+/**
+ * 可以一次提供多个值的Provider, 批量调用时同一节点的值合并后只调用一次,
+ * 名称为*的节点下集合中所有元素的值也合并为一次调用
+ */
+public interface BatchProvider extends Provider {
+
+    /**
+     * @param oldValues
+     * @return 与oldValues一一对应的新值
+     * @throws Exception
+     */
+    List<Object> provideBatch(List<Object> oldValues) throws Exception;
+
+}
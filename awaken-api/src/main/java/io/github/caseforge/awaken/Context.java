@@ -1,10 +1,15 @@
 package io.github.caseforge.awaken;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 public class Context {
 
+    /**
+     * 不被新建的线程继承, 其它线程中的任务只通过{@link #snapshot()}, {@link #call(Map, Callable)}和{@link #wrap(Callable)}显式传递
+     */
     private static final ThreadLocal<Map<String, Object>> CONTEXT_THREADLOCAL = new ThreadLocal<Map<String, Object>>();
 
     public static void set(String name, Object value) {
@@ -25,7 +30,57 @@ public class Context {
     }
     
     public static void clear() {
-        CONTEXT_THREADLOCAL.set(null);
+        CONTEXT_THREADLOCAL.remove();
+    }
+
+    /**
+     * 当前上下文的只读副本
+     * 
+     * @return
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> map = CONTEXT_THREADLOCAL.get();
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new HashMap<String, Object>(map));
+    }
+
+    /**
+     * 以指定的上下文执行, 执行后恢复原来的上下文, 原来没有上下文时移除
+     * 
+     * @param snapshot 由{@link #snapshot()}获得
+     * @param callable
+     * @return
+     * @throws Exception
+     */
+    public static <T> T call(Map<String, Object> snapshot, Callable<T> callable) throws Exception {
+        Map<String, Object> previous = CONTEXT_THREADLOCAL.get();
+        if (snapshot.isEmpty()) {
+            CONTEXT_THREADLOCAL.remove();
+        } else {
+            CONTEXT_THREADLOCAL.set(new HashMap<String, Object>(snapshot));
+        }
+        try {
+            return callable.call();
+        } finally {
+            if (previous == null) {
+                CONTEXT_THREADLOCAL.remove();
+            } else {
+                CONTEXT_THREADLOCAL.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 捕获当前的上下文, 返回的Callable在其它线程中以该上下文执行
+     * 
+     * @param callable
+     * @return
+     */
+    public static <T> Callable<T> wrap(Callable<T> callable) {
+        Map<String, Object> snapshot = snapshot();
+        return () -> call(snapshot, callable);
     }
 
 }
@@ -5,7 +5,25 @@ package io.github.caseforge.awaken;
 
 public interface Enumable {
 
+    /**
+     * 字段名, 返回的数组在实例间共享, 不能修改
+     * 
+     * @return
+     */
     String[] names();
     
     Object[] values();
+
+    /**
+     * 按names()的顺序访问每个字段, 生成的类直接读取字段, 不创建数组也不装箱
+     * 
+     * @param visitor
+     */
+    default void accept(FieldVisitor visitor) {
+        String[] names = names();
+        Object[] values = values();
+        for (int i = 0; i < names.length; i++) {
+            visitor.visitObject(names[i], values[i]);
+        }
+    }
 }
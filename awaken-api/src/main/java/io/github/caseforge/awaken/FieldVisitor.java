@@ -0,0 +1,32 @@
+package io.github.caseforge.awaken;
+
+/**
+ * 按字段的类型回调, 基本类型的字段不装箱
+ */
+public interface FieldVisitor {
+
+    void visitInt(String name, int value);
+
+    void visitLong(String name, long value);
+
+    void visitDouble(String name, double value);
+
+    void visitBoolean(String name, boolean value);
+
+    void visitChar(String name, char value);
+
+    void visitObject(String name, Object value);
+
+    default void visitFloat(String name, float value) {
+        visitDouble(name, value);
+    }
+
+    default void visitShort(String name, short value) {
+        visitInt(name, value);
+    }
+
+    default void visitByte(String name, byte value) {
+        visitInt(name, value);
+    }
+
+}
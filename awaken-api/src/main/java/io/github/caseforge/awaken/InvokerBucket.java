@@ -1,7 +1,57 @@
 package io.github.caseforge.awaken;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 public interface InvokerBucket {
 
     Invoker findInvoker(String id);
+
+    /**
+     * 按uri和规则名查找, 实现类可以不拼接字符串
+     * 
+     * @param uri
+     * @param rule
+     * @return
+     */
+    default Invoker findInvoker(CharSequence uri, CharSequence rule) {
+        return findInvoker(uri + "@" + rule);
+    }
+
+    /**
+     * 按UTF-8字节查找, 格式为 uri@rule
+     * 
+     * @param bs
+     * @param offset
+     * @param length
+     * @return
+     */
+    default Invoker findInvoker(byte[] bs, int offset, int length) {
+        return findInvoker(new String(bs, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 批量调用同一个Invoker, 只查找一次, 任意一个请求失败时抛出异常
+     * 
+     * @param id 格式为 uri@rule
+     * @param inputs
+     * @return 与inputs一一对应的Response, 没有对应的Invoker时返回null
+     * @throws Exception
+     */
+    default List<Object> invokeBatch(String id, List<?> inputs) throws Exception {
+        Invoker invoker = findInvoker(id);
+        if (invoker == null) {
+            return null;
+        }
+        if (invoker instanceof BatchInvoker) {
+            return ((BatchInvoker) invoker).invokeBatch(inputs);
+        }
+        List<Object> results = new ArrayList<Object>(inputs.size());
+        for (Object input : inputs) {
+            results.add(invoker.invoke(input));
+        }
+        return results;
+    }
     
 }
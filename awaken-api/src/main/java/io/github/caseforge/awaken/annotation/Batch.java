@@ -0,0 +1,17 @@
+package io.github.caseforge.awaken.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * 标记可以批量调用的服务方法: 方法只有一个List参数, 返回与参数一一对应的List.
+ * 批量调用时多个请求的参数合并为一个List, 只调用一次方法, 结果按各请求的参数个数拆分
+ */
+@Retention(RUNTIME)
+@Target({METHOD})
+public @interface Batch {
+
+}
@@ -1,8 +1,13 @@
 package io.github.caseforge.awaken.assignment;
 
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 
+import io.github.caseforge.awaken.AsyncProvider;
+import io.github.caseforge.awaken.BatchProvider;
 import io.github.caseforge.awaken.Provider;
+import io.github.caseforge.awaken.core.PropertyRef;
 
 public abstract class AbstractNode implements Node {
 
@@ -12,6 +17,104 @@ public abstract class AbstractNode implements Node {
 
     protected Provider provider;
 
+    /**
+     * 最近一次访问的目标类型上解析好的属性, 类型不变时直接按下标访问
+     */
+    protected volatile PropertyRef property;
+
+    protected PropertyRef propertyOf(Object target) {
+        PropertyRef ref = property;
+        Class<?> type = target.getClass();
+        if (ref == null || !ref.accept(type)) {
+            ref = PropertyRef.of(type, name);
+            property = ref;
+        }
+        return ref;
+    }
+
+    /**
+     * Provider支持批量时一次提供所有值, 否则逐个提供
+     * 
+     * @param values
+     * @return 与values一一对应的新值
+     * @throws Exception
+     */
+    protected List<Object> provideBatch(List<Object> values) throws Exception {
+        if (provider instanceof BatchProvider) {
+            List<Object> newValues = ((BatchProvider) provider).provideBatch(values);
+            if (newValues == null || newValues.size() != values.size()) {
+                throw new IllegalStateException("provider " + provider.getClass().getName() + " returned " + (newValues == null ? 0 : newValues.size()) + " values for " + values.size() + " in node " + name);
+            }
+            return newValues;
+        }
+        List<Object> newValues = new ArrayList<Object>(values.size());
+        for (Object value : values) {
+            newValues.add(provider.provide(value));
+        }
+        return newValues;
+    }
+
+    /**
+     * 子树中是否有支持批量的Provider
+     * 
+     * @param node
+     * @return
+     */
+    public static boolean hasBatchProvider(Node node) {
+        return hasProvider(node, BatchProvider.class);
+    }
+
+    /**
+     * 子树中是否有异步的Provider
+     * 
+     * @param node
+     * @return
+     */
+    public static boolean hasAsyncProvider(Node node) {
+        return hasProvider(node, AsyncProvider.class);
+    }
+
+    private static boolean hasProvider(Node node, Class<?> type) {
+        if (node instanceof AbstractNode && type.isInstance(((AbstractNode) node).provider)) {
+            return true;
+        }
+        if (node.getChildren() != null) {
+            for (Node child : node.getChildren()) {
+                if (hasProvider(child, type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在构建时按声明类型预先解析属性
+     * 
+     * @param ownerType 节点所在对象的类型, 未知时为null
+     */
+    public void prepare(Class<?> ownerType) {
+        Class<?> valueType = null;
+        if ("".equals(name)) {
+            valueType = ownerType;
+        } else if (isConcrete(ownerType)) {
+            property = PropertyRef.of(ownerType, name);
+            valueType = property.getType();
+        }
+
+        if (children != null) {
+            for (Node child : children) {
+                if (child instanceof AbstractNode) {
+                    ((AbstractNode) child).prepare(valueType);
+                }
+            }
+        }
+    }
+
+    protected boolean isConcrete(Class<?> type) {
+        return type != null && !type.isInterface() && !type.isPrimitive() && !type.isArray() && !Modifier.isAbstract(type.getModifiers());
+    }
+
     public String getName() {
         return name;
     }
@@ -1,7 +1,42 @@
 package io.github.caseforge.awaken.assignment;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 public interface Assignment {
 
     public void assign(Object target) throws Exception;
 
+    /**
+     * 对一批目标赋值, 默认逐个赋值
+     * 
+     * @param targets
+     * @throws Exception
+     */
+    default void assignBatch(List<?> targets) throws Exception {
+        for (Object target : targets) {
+            if (target != null) {
+                assign(target);
+            }
+        }
+    }
+
+    /**
+     * 异步赋值, 默认在当前线程同步赋值
+     * 
+     * @param target
+     * @return 赋值完成时完成
+     */
+    default CompletionStage<Void> assignAsync(Object target) {
+        CompletableFuture<Void> future = new CompletableFuture<Void>();
+        try {
+            assign(target);
+            future.complete(null);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
 }
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -12,6 +13,7 @@ import com.google.gson.JsonObject;
 
 import io.github.caseforge.awaken.Provider;
 import io.github.caseforge.awaken.ResourceProvider;
+import io.github.caseforge.awaken.cache.CachingProvider;
 import io.github.caseforge.awaken.util.BeanUtil;
 
 public class AssignmentBuilder {
@@ -26,14 +28,52 @@ public class AssignmentBuilder {
 
     private Gson gson = new Gson();
 
+    /**
+     * 传给*节点, 元素个数不小于该值时并行处理, 小于1时不并行
+     */
+    private int parallelThreshold;
+
+    private ForkJoinPool pool;
+
+    /**
+     * 配置了cache的Provider按配置共用, 为null时不共用
+     */
+    private Map<String, CachingProvider> providerCaches;
+
     public static Assignment build(JsonObject config, ResourceProvider resourceProvider) throws Exception {
+        return build(config, resourceProvider, null);
+    }
+
+    /**
+     * @param type 赋值目标的类型, 用于预先解析各节点的属性
+     */
+    public static Assignment build(JsonObject config, ResourceProvider resourceProvider, Class<?> type) throws Exception {
+        return build(config, resourceProvider, type, 0, null);
+    }
+
+    /**
+     * @param parallelThreshold *节点并行处理的最小元素个数, 小于1时不并行
+     * @param pool 并行处理使用的线程池, 为null时使用ForkJoinPool.commonPool()
+     */
+    public static Assignment build(JsonObject config, ResourceProvider resourceProvider, Class<?> type, int parallelThreshold, ForkJoinPool pool) throws Exception {
+        return build(config, resourceProvider, type, parallelThreshold, pool, null);
+    }
+
+    /**
+     * @param providerCaches 配置相同的带cache的Provider在多条规则间共用同一个缓存
+     */
+    public static Assignment build(JsonObject config, ResourceProvider resourceProvider, Class<?> type, int parallelThreshold, ForkJoinPool pool, Map<String, CachingProvider> providerCaches) throws Exception {
         if (config == null) {
             return null;
         }
         AssignmentBuilder builder = new AssignmentBuilder();
         builder.config = config;
         builder.resourceProvider = resourceProvider;
+        builder.parallelThreshold = parallelThreshold;
+        builder.pool = pool;
+        builder.providerCaches = providerCaches;
         builder.build();
+        builder.rootNode.prepare(type);
         return builder.rootNode;
     }
 
@@ -59,6 +99,9 @@ public class AssignmentBuilder {
 
         if (jsonElement instanceof JsonObject) {
             JsonObject jsonObject = (JsonObject) jsonElement;
+            if (jsonObject.has("cache")) {
+                return buildCachingProvider(jsonObject);
+            }
             String type = jsonObject.get("type").getAsString();
             Provider bean = null;
             
@@ -83,6 +126,31 @@ public class AssignmentBuilder {
         throw new Exception("error in config " + jsonElement.getAsString());
     }
 
+    /**
+     * cache配置: maxEntries为最大条目数, ttl为写入后的存活毫秒数, refreshAfter为写入后开始后台刷新的毫秒数
+     */
+    private Provider buildCachingProvider(JsonObject jsonObject) throws Exception {
+        String key = jsonObject.toString();
+        CachingProvider cachingProvider = providerCaches == null ? null : providerCaches.get(key);
+        if (cachingProvider != null) {
+            return cachingProvider;
+        }
+
+        JsonObject providerConfig = jsonObject.deepCopy();
+        JsonObject cacheConfig = providerConfig.remove("cache").getAsJsonObject();
+        long maxEntries = cacheConfig.has("maxEntries") ? cacheConfig.get("maxEntries").getAsLong() : 10000;
+        long ttl = cacheConfig.has("ttl") ? cacheConfig.get("ttl").getAsLong() : 0;
+        long refreshAfter = cacheConfig.has("refreshAfter") ? cacheConfig.get("refreshAfter").getAsLong() : 0;
+        cachingProvider = CachingProvider.of(buildProvider(providerConfig), maxEntries, ttl, refreshAfter);
+        if (providerCaches != null) {
+            CachingProvider existing = providerCaches.putIfAbsent(key, cachingProvider);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return cachingProvider;
+    }
+
     public AbstractNode createNodeIfAbsent(String path) {
         if (nodeMap.containsKey(path)) {
             return nodeMap.get(path);
@@ -102,13 +170,18 @@ public class AssignmentBuilder {
 
         boolean multiNode = isMultipleNode(nodeName);
         if (multiNode) {
-            node = new MultipleNode();
+            MultipleNode multipleNode = new MultipleNode();
+            multipleNode.setParallelThreshold(parallelThreshold);
+            multipleNode.setPool(pool);
+            node = multipleNode;
         } else {
             node = new SingletonNode();
         }
 
         node.setName(nodeName);
         children.add(node);
+        // 同一路径只建一个节点, 否则*节点的子节点分散在多次遍历中, 无法合并为一批
+        nodeMap.put(path, node);
 
         return node;
     }
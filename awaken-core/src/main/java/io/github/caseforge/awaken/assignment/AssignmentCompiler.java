@@ -0,0 +1,272 @@
+package io.github.caseforge.awaken.assignment;
+
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PUBLIC;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_SUPER;
+import static io.github.caseforge.awaken.asm.Opcodes.ALOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.ASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.CHECKCAST;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNULL;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKEINTERFACE;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKESPECIAL;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKEVIRTUAL;
+import static io.github.caseforge.awaken.asm.Opcodes.POP;
+import static io.github.caseforge.awaken.asm.Opcodes.RETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.V1_8;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import io.github.caseforge.awaken.Provider;
+import io.github.caseforge.awaken.asm.ClassWriter;
+import io.github.caseforge.awaken.asm.Label;
+import io.github.caseforge.awaken.asm.MethodVisitor;
+import io.github.caseforge.awaken.asm.Type;
+import io.github.caseforge.awaken.core.Coder;
+import io.github.caseforge.awaken.core.Property;
+import io.github.caseforge.awaken.core.Referable;
+import io.github.caseforge.awaken.core.RefTable;
+
+/**
+ * 把赋值规则树编译为直接调用getter/setter和Provider的字节码,
+ * 编译期无法确定类型的子树(如*节点)仍然交给原来的节点执行
+ */
+public class AssignmentCompiler {
+
+    private Coder coder;
+
+    private RefTable refs;
+
+    private String prefix;
+
+    public AssignmentCompiler(Coder coder, RefTable refs, String prefix) {
+        this.coder = coder;
+        this.refs = refs;
+        this.prefix = prefix;
+    }
+
+    /**
+     * 编译为一个独立的Assignment类
+     *
+     * @param assignment AssignmentBuilder构建的规则树
+     * @param type 赋值目标的类型
+     * @param coder
+     * @return
+     * @throws Exception
+     */
+    public static Assignment compile(Assignment assignment, Class<?> type, Coder coder) throws Exception {
+        if (!(assignment instanceof SingletonNode) || type == null) {
+            return assignment;
+        }
+        // 批量Provider只在规则树上按批调用, 异步Provider只在规则树上同时调用, 编译后会退化为逐个调用
+        if (AbstractNode.hasBatchProvider((Node) assignment) || AbstractNode.hasAsyncProvider((Node) assignment)) {
+            return assignment;
+        }
+
+        String name = type.getName() + Coder.SUFFIX_ASSIGNMENT + coder.digest(describe(assignment, type));
+        String typeName = name.replace('.', '/');
+        RefTable refs = new RefTable(typeName);
+
+        // 引用的对象在生成字节码时收集, 所以类已定义过时也要重新生成一次
+        ClassWriter cw = coder.createClassWriter();
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, "java/lang/Object", new String[] { Type.getInternalName(Assignment.class), Type.getInternalName(Referable.class) });
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        new AssignmentCompiler(coder, refs, "a").compile(cw, ACC_PUBLIC, "assign", assignment, type);
+        refs.emit(cw, coder);
+        cw.visitEnd();
+        final byte[] bs = cw.toByteArray();
+
+        Class<?> compiledType = coder.defineIfAbsent(name, () -> bs);
+        Object compiled = compiledType.getDeclaredConstructor().newInstance();
+        ((Referable) compiled).setRefer(refs.values());
+        return (Assignment) compiled;
+    }
+
+    /**
+     * 生成方法 void methodName(Object target)
+     *
+     * @param cw
+     * @param access
+     * @param methodName
+     * @param assignment
+     * @param type
+     */
+    public void compile(ClassWriter cw, int access, String methodName, Assignment assignment, Class<?> type) {
+        MethodVisitor mv = cw.visitMethod(access, methodName, "(Ljava/lang/Object;)V", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+
+        if (!(assignment instanceof SingletonNode) || ((SingletonNode) assignment).getProvider() != null || !compilable(type)) {
+            fallback(assignment, 1, mv);
+        } else if (((SingletonNode) assignment).getChildren() != null) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+            mv.visitVarInsn(ASTORE, 2);
+            compileChildren(((SingletonNode) assignment).getChildren(), type, 2, 3, mv);
+        }
+
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void compileChildren(List<Node> children, Class<?> ownerType, int ownerSlot, int nextSlot, MethodVisitor mv) {
+        for (Node child : children) {
+            Property property = null;
+            if (child instanceof SingletonNode && compilable(ownerType)) {
+                property = Property.propertyOf(ownerType, child.getName());
+            }
+
+            if (property == null || property.getReadMethod() == null) {
+                fallback(child, ownerSlot, mv);
+            } else {
+                compileNode((SingletonNode) child, property, ownerType, ownerSlot, nextSlot, mv);
+            }
+        }
+    }
+
+    private void compileNode(SingletonNode node, Property property, Class<?> ownerType, int ownerSlot, int nextSlot, MethodVisitor mv) {
+        Provider provider = node.getProvider();
+        List<Node> children = node.getChildren();
+        boolean hasChildren = children != null && !children.isEmpty();
+        Method writeMethod = property.getWriteMethod();
+        Class<?> valueType = property.getType();
+
+        if (provider == null && !hasChildren) {
+            return;
+        }
+
+        Label end = new Label();
+        int valueSlot = nextSlot;
+
+        if (provider != null) {
+            String field = refs.add(prefix, Provider.class, provider);
+            refs.load(field, mv);
+            read(property, ownerType, ownerSlot, mv);
+            coder.box(valueType, mv);
+            mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Provider.class), "provide", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+
+            if (writeMethod == null && !hasChildren) {
+                mv.visitInsn(POP);
+                return;
+            }
+
+            mv.visitVarInsn(ASTORE, valueSlot);
+
+            if (writeMethod != null) {
+                mv.visitVarInsn(ALOAD, ownerSlot);
+                mv.visitVarInsn(ALOAD, valueSlot);
+                coder.unBox(valueType, mv);
+                invoke(ownerType, writeMethod, mv);
+            }
+
+            if (!hasChildren) {
+                return;
+            }
+
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitJumpInsn(IFNULL, end);
+
+            if (compilable(valueType)) {
+                mv.visitVarInsn(ALOAD, valueSlot);
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(valueType));
+                mv.visitVarInsn(ASTORE, valueSlot + 1);
+                compileChildren(children, valueType, valueSlot + 1, valueSlot + 2, mv);
+            } else {
+                fallbackChildren(children, valueSlot, mv);
+            }
+        } else {
+            read(property, ownerType, ownerSlot, mv);
+            coder.box(valueType, mv);
+            mv.visitVarInsn(ASTORE, valueSlot);
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitJumpInsn(IFNULL, end);
+
+            if (compilable(valueType)) {
+                compileChildren(children, valueType, valueSlot, valueSlot + 1, mv);
+            } else {
+                fallbackChildren(children, valueSlot, mv);
+            }
+        }
+
+        mv.visitLabel(end);
+    }
+
+    private void read(Property property, Class<?> ownerType, int ownerSlot, MethodVisitor mv) {
+        mv.visitVarInsn(ALOAD, ownerSlot);
+        invoke(ownerType, property.getReadMethod(), mv);
+    }
+
+    private void invoke(Class<?> ownerType, Method method, MethodVisitor mv) {
+        boolean interfaceFlag = ownerType.isInterface();
+        mv.visitMethodInsn(interfaceFlag ? INVOKEINTERFACE : INVOKEVIRTUAL, Type.getInternalName(ownerType), method.getName(), Type.getMethodDescriptor(method), interfaceFlag);
+    }
+
+    private void fallbackChildren(List<Node> children, int ownerSlot, MethodVisitor mv) {
+        for (Node child : children) {
+            fallback(child, ownerSlot, mv);
+        }
+    }
+
+    private void fallback(Assignment node, int ownerSlot, MethodVisitor mv) {
+        String field = refs.add(prefix, Assignment.class, node);
+        refs.load(field, mv);
+        mv.visitVarInsn(ALOAD, ownerSlot);
+        mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Assignment.class), "assign", "(Ljava/lang/Object;)V", true);
+    }
+
+    /**
+     * 只有public且当前加载器可见的非数组引用类型, 才能按静态类型直接调用其方法
+     */
+    private boolean compilable(Class<?> type) {
+        if (type == null || type.isPrimitive() || type.isArray() || !Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        if (type.getName().startsWith("java.")) {
+            return false;
+        }
+        return coder.isVisible(type);
+    }
+
+    /**
+     * 规则树的结构描述, 结构和类型相同的规则生成相同的字节码
+     *
+     * @param assignment
+     * @param type
+     * @return
+     */
+    public static String describe(Assignment assignment, Class<?> type) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(type == null ? "?" : type.getName()).append(':');
+        if (assignment instanceof Node) {
+            describe((Node) assignment, builder);
+        } else {
+            builder.append(assignment.getClass().getName());
+        }
+        return builder.toString();
+    }
+
+    private static void describe(Node node, StringBuilder builder) {
+        builder.append(node.getClass().getSimpleName()).append('(').append(node.getName()).append(')');
+        if (node instanceof AbstractNode && ((AbstractNode) node).getProvider() != null) {
+            builder.append('P');
+        }
+        List<Node> children = node.getChildren();
+        if (children != null) {
+            builder.append('{');
+            for (Node child : children) {
+                describe(child, builder);
+                builder.append(',');
+            }
+            builder.append('}');
+        }
+    }
+
+}
@@ -1,36 +1,279 @@
 package io.github.caseforge.awaken.assignment;
 
-import java.util.Arrays;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import io.github.caseforge.awaken.util.BeanUtil;
+import io.github.caseforge.awaken.Context;
+import io.github.caseforge.awaken.core.AbstractInvoker;
 
+/**
+ * 名称为*的节点, 目标为集合或数组, Provider和子节点作用于其中的每个元素.
+ * 数组和RandomAccess的List按下标访问, 不创建Iterator;
+ * 无法按位置写回的集合(如Set)只能对元素的子节点赋值, 不能配置Provider.
+ * 子树中有BatchProvider时先收集全部元素, 同一节点的值合并后只调用一次Provider
+ */
 public class MultipleNode extends AbstractNode {
 
+    /**
+     * 元素个数不小于该值时拆分到ForkJoinPool中并行处理, 小于1时不并行.
+     * 并行时Provider会在多个线程中同时调用, 必须是线程安全的
+     */
+    private int parallelThreshold;
+
+    /**
+     * 并行处理使用的线程池, 为null时使用ForkJoinPool.commonPool()
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * 子树中是否有BatchProvider, 在prepare时确定
+     */
+    private boolean batch;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void assign(Object target) throws Exception {
-        Object oldValue = BeanUtil.get(target, name);
-        Object newValue = null;
-        if (provider != null) {
-            newValue = provider.provide(oldValue);
-            BeanUtil.set(target, name, newValue);
+        if (batch) {
+            assignBatch(Collections.singletonList(target));
+        } else if (target instanceof Object[]) {
+            Object[] array = (Object[]) target;
+            forEach(array.length, i -> array[i] = assignElement(array[i]));
+        } else if (target instanceof List && target instanceof RandomAccess) {
+            List list = (List) target;
+            forEach(list.size(), provider == null ? i -> assignElement(list.get(i)) : i -> list.set(i, assignElement(list.get(i))));
+        } else if (target.getClass().isArray()) {
+            // 基本类型数组的元素没有子节点, 只按Provider替换, 返回null时保留原值
+            if (provider != null) {
+                forEach(Array.getLength(target), i -> {
+                    Object newValue = provider.provide(Array.get(target, i));
+                    if (newValue != null) {
+                        Array.set(target, i, newValue);
+                    }
+                });
+            }
+        } else if (target instanceof List) {
+            ListIterator iterator = ((List) target).listIterator();
+            while (iterator.hasNext()) {
+                Object newValue = assignElement(iterator.next());
+                if (provider != null) {
+                    iterator.set(newValue);
+                }
+            }
+        } else if (target instanceof Iterable) {
+            if (provider != null) {
+                throw new UnsupportedOperationException("provider of * requires an array or a list, but got " + target.getClass().getName());
+            }
+            Iterator iterator = ((Iterable) target).iterator();
+            while (iterator.hasNext()) {
+                assignElement(iterator.next());
+            }
         } else {
-            newValue = oldValue;
+            throw new UnsupportedOperationException("* requires an array or an iterable, but got " + target.getClass().getName());
+        }
+    }
+
+    /**
+     * 所有目标集合的元素合并为一批, Provider只调用一次, 新值按位置写回各集合, 子节点在非空的新值上继续批量赋值
+     */
+    @Override
+    public void assignBatch(List<?> targets) throws Exception {
+        List<Object> values = new ArrayList<Object>();
+        for (Object target : targets) {
+            if (target != null) {
+                addElements(target, values);
+            }
         }
 
+        List<Object> newValues = values;
+        if (provider != null && !values.isEmpty()) {
+            newValues = provideBatch(values);
+            int offset = 0;
+            for (Object target : targets) {
+                if (target != null) {
+                    offset = setElements(target, newValues, offset);
+                }
+            }
+        }
+
+        if (children != null) {
+            List<Object> nonNulls = new ArrayList<Object>(newValues.size());
+            for (Object newValue : newValues) {
+                if (newValue != null) {
+                    nonNulls.add(newValue);
+                }
+            }
+            if (!nonNulls.isEmpty()) {
+                for (Node child : children) {
+                    child.assignBatch(nonNulls);
+                }
+            }
+        }
+    }
+
+    private void addElements(Object target, List<Object> values) {
+        if (target instanceof Object[]) {
+            Collections.addAll(values, (Object[]) target);
+        } else if (target instanceof Collection) {
+            values.addAll((Collection<?>) target);
+        } else if (target.getClass().isArray()) {
+            for (int i = 0, length = Array.getLength(target); i < length; i++) {
+                values.add(Array.get(target, i));
+            }
+        } else if (target instanceof Iterable) {
+            for (Object element : (Iterable<?>) target) {
+                values.add(element);
+            }
+        } else {
+            throw new UnsupportedOperationException("* requires an array or an iterable, but got " + target.getClass().getName());
+        }
+    }
+
+    /**
+     * @return 下一个目标的新值在newValues中的起始位置
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private int setElements(Object target, List<Object> newValues, int offset) {
+        if (target instanceof Object[]) {
+            Object[] array = (Object[]) target;
+            for (int i = 0; i < array.length; i++) {
+                array[i] = newValues.get(offset++);
+            }
+        } else if (target.getClass().isArray()) {
+            for (int i = 0, length = Array.getLength(target); i < length; i++) {
+                Object newValue = newValues.get(offset++);
+                if (newValue != null) {
+                    Array.set(target, i, newValue);
+                }
+            }
+        } else if (target instanceof List) {
+            ListIterator iterator = ((List) target).listIterator();
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterator.set(newValues.get(offset++));
+            }
+        } else {
+            throw new UnsupportedOperationException("provider of * requires an array or a list, but got " + target.getClass().getName());
+        }
+        return offset;
+    }
+
+    private Object assignElement(Object element) throws Exception {
+        Object newValue = provider != null ? provider.provide(element) : element;
         if (children != null && newValue != null) {
             for (Node child : children) {
                 child.assign(newValue);
             }
         }
+        return newValue;
     }
 
-    @SuppressWarnings("rawtypes")
-    protected Iterator toIterator(Object target) {
-        if (target instanceof Iterable) {
-            return ((Iterable) target).iterator();
-        } else if (target.getClass().isArray()) {
-            return Arrays.asList(target).iterator();
+    private void forEach(int size, Action action) throws Exception {
+        if (parallelThreshold < 1 || size < parallelThreshold) {
+            for (int i = 0; i < size; i++) {
+                action.apply(i);
+            }
+            return;
+        }
+
+        ForkJoinPool forkJoinPool = pool != null ? pool : ForkJoinPool.commonPool();
+        // 每个线程约分到4段, 以便在元素耗时不均时互相窃取
+        int leafSize = Math.max(1, size / (forkJoinPool.getParallelism() * 4));
+        try {
+            forkJoinPool.invoke(new Slice(action, Context.snapshot(), 0, size, leafSize));
+        } catch (CompletionException e) {
+            throw AbstractInvoker.unwrap(e);
+        }
+    }
+
+    /**
+     * 元素类型在构建时未知, 子节点在赋值时按元素的实际类型解析属性
+     */
+    @Override
+    public void prepare(Class<?> ownerType) {
+        batch = hasBatchProvider(this);
+        if (children != null) {
+            for (Node child : children) {
+                if (child instanceof AbstractNode) {
+                    ((AbstractNode) child).prepare(null);
+                }
+            }
         }
-        throw new UnsupportedOperationException("*");
     }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private interface Action {
+
+        void apply(int index) throws Exception;
+
+    }
+
+    /**
+     * 按下标区间二分, 区间不大于leafSize时在当前线程顺序处理, 调用方的上下文以副本传递到执行线程
+     */
+    @SuppressWarnings("serial")
+    private static final class Slice extends RecursiveAction {
+
+        private final Action action;
+
+        private final Map<String, Object> snapshot;
+
+        private final int from;
+
+        private final int to;
+
+        private final int leafSize;
+
+        Slice(Action action, Map<String, Object> snapshot, int from, int to, int leafSize) {
+            this.action = action;
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                try {
+                    Context.call(snapshot, () -> {
+                        for (int i = from; i < to; i++) {
+                            action.apply(i);
+                        }
+                        return null;
+                    });
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Slice(action, snapshot, from, middle, leafSize), new Slice(action, snapshot, middle, to, leafSize));
+        }
+
+    }
+
 }
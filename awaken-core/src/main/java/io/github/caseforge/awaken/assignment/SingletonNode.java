@@ -1,24 +1,47 @@
 package io.github.caseforge.awaken.assignment;
 
-import io.github.caseforge.awaken.util.BeanUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import io.github.caseforge.awaken.AsyncProvider;
+import io.github.caseforge.awaken.Context;
+import io.github.caseforge.awaken.core.AbstractInvoker;
+import io.github.caseforge.awaken.core.PropertyRef;
 
 public class SingletonNode extends AbstractNode {
 
+    /**
+     * 子树中是否有AsyncProvider, 在prepare时确定
+     */
+    private boolean async;
+
     public void assign(Object target) throws Exception {
+        if (async) {
+            AbstractInvoker.join(assignAsync(target));
+            return;
+        }
 
         Object value = null;
+        PropertyRef ref = null;
 
         if ("".equals(name)) {// root node's name is empty string
             value = target;
         } else {
-            value = BeanUtil.get(target, name);
+            ref = propertyOf(target);
+            value = ref.get(target);
         }
 
         Object newValue = null;
 
         if (provider != null) {
             newValue = provider.provide(value);
-            BeanUtil.set(target, name, newValue);
+            if (ref != null) {
+                ref.set(target, newValue);
+            }
         } else {
             newValue = value;
         }
@@ -30,4 +53,105 @@ public class SingletonNode extends AbstractNode {
         }
     }
 
+    /**
+     * 同一节点在整批目标上的值合并后只调用一次Provider, 子节点在非空的新值上继续批量赋值
+     */
+    @Override
+    public void assignBatch(List<?> targets) throws Exception {
+        boolean root = "".equals(name);
+        List<Object> owners = new ArrayList<Object>(targets.size());
+        List<Object> values = new ArrayList<Object>(targets.size());
+        for (Object target : targets) {
+            if (target != null) {
+                owners.add(target);
+                values.add(root ? target : propertyOf(target).get(target));
+            }
+        }
+
+        List<Object> newValues = values;
+        if (provider != null) {
+            newValues = provideBatch(values);
+            if (!root) {
+                for (int i = 0; i < owners.size(); i++) {
+                    Object owner = owners.get(i);
+                    propertyOf(owner).set(owner, newValues.get(i));
+                }
+            }
+        }
+
+        if (children != null) {
+            List<Object> nonNulls = new ArrayList<Object>(newValues.size());
+            for (Object newValue : newValues) {
+                if (newValue != null) {
+                    nonNulls.add(newValue);
+                }
+            }
+            if (!nonNulls.isEmpty()) {
+                for (Node child : children) {
+                    child.assignBatch(nonNulls);
+                }
+            }
+        }
+    }
+
+    /**
+     * 子树中有AsyncProvider时, 本节点的新值确定后所有子节点同时开始赋值, 全部子节点完成后才完成.
+     * AsyncProvider完成后的赋值在其完成线程中执行, 调用方的上下文以副本传递
+     */
+    @Override
+    public CompletionStage<Void> assignAsync(Object target) {
+        if (!async) {
+            return super.assignAsync(target);
+        }
+
+        try {
+            PropertyRef ref = "".equals(name) ? null : propertyOf(target);
+            Object value = ref == null ? target : ref.get(target);
+
+            if (provider instanceof AsyncProvider) {
+                Map<String, Object> snapshot = Context.snapshot();
+                return ((AsyncProvider) provider).provideAsync(value).thenCompose(newValue -> {
+                    try {
+                        return Context.call(snapshot, () -> {
+                            if (ref != null) {
+                                ref.set(target, newValue);
+                            }
+                            return assignChildrenAsync(newValue);
+                        });
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                });
+            }
+
+            Object newValue = value;
+            if (provider != null) {
+                newValue = provider.provide(value);
+                if (ref != null) {
+                    ref.set(target, newValue);
+                }
+            }
+            return assignChildrenAsync(newValue);
+        } catch (Throwable e) {
+            return AbstractInvoker.failed(e);
+        }
+    }
+
+    private CompletionStage<Void> assignChildrenAsync(Object value) {
+        if (children == null || value == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[children.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = children.get(i).assignAsync(value).toCompletableFuture();
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    @Override
+    public void prepare(Class<?> ownerType) {
+        async = hasAsyncProvider(this);
+        super.prepare(ownerType);
+    }
+
 }
@@ -0,0 +1,45 @@
+package io.github.caseforge.awaken.binary;
+
+import java.lang.reflect.Type;
+
+import io.github.caseforge.awaken.core.Property;
+
+/**
+ * 生成的BinaryCodec的父类, 属性值的BinaryCodec在第一次使用时按属性的泛型类型解析
+ */
+public abstract class AbstractBinaryCodec implements BinaryCodec {
+
+    private final Class<?> type;
+
+    /**
+     * 属性名, 首字母大写, 按属性的序号排列
+     */
+    private final String[] keys;
+
+    private final BinaryCodec[] codecs;
+
+    protected AbstractBinaryCodec(Class<?> type, String[] keys) {
+        this.type = type;
+        this.keys = keys;
+        this.codecs = new BinaryCodec[keys.length];
+    }
+
+    protected BinaryCodec codecOf(int index) {
+        BinaryCodec codec = codecs[index];
+        if (codec == null) {
+            Type genericType = Property.propertyOf(type, keys[index]).getGenericType();
+            codec = BinaryCodecs.of(genericType);
+            codecs[index] = codec;
+        }
+        return codec;
+    }
+
+    protected BinaryException unknownField(int tag) {
+        return new BinaryException("unknown field " + tag + " of " + type.getName());
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+}
@@ -0,0 +1,14 @@
+package io.github.caseforge.awaken.binary;
+
+import java.io.IOException;
+
+/**
+ * 二进制编解码, 只处理非null的值, null由所在的属性或集合标记
+ */
+public interface BinaryCodec {
+
+    Object read(BinaryReader reader) throws IOException;
+
+    void write(BinaryWriter writer, Object value) throws IOException;
+
+}
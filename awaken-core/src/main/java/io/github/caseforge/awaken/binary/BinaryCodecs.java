@@ -0,0 +1,671 @@
+package io.github.caseforge.awaken.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.caseforge.awaken.Enumable;
+import io.github.caseforge.awaken.core.Coder;
+import io.github.caseforge.awaken.core.Property;
+import io.github.caseforge.awaken.json.JsonCodec;
+import io.github.caseforge.awaken.json.JsonCodecs;
+import io.github.caseforge.awaken.json.JsonReader;
+import io.github.caseforge.awaken.json.JsonWriter;
+
+/**
+ * 按类型查找BinaryCodec.
+ * <p>
+ * bean按属性的序号写出: 每个非null的属性写出varint(序号+1)和属性值, 以0结束. Request的序号与{@link Enumable#names()}的顺序一致,
+ * 其它bean按属性名排序. 基本类型为varint(有符号整数使用zigzag), 浮点数为定长, 字符串为长度前缀的UTF-8, 枚举为序号,
+ * 集合和数组为长度前缀, 元素前有一个字节标记是否为null. 没有属性的JDK类型(如Date)和声明为Object的值以JSON字节写出
+ */
+public class BinaryCodecs {
+
+    private static final ClassValue<BinaryCodec> CODECS = new ClassValue<BinaryCodec>() {
+        @Override
+        protected BinaryCodec computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private static final Map<Type, BinaryCodec> GENERIC_CODECS = new ConcurrentHashMap<Type, BinaryCodec>();
+
+    public static BinaryCodec of(Type type) {
+        if (type instanceof Class) {
+            return CODECS.get((Class<?>) type);
+        }
+
+        if (type instanceof ParameterizedType) {
+            Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+            if (!Collection.class.isAssignableFrom(rawType) && !Map.class.isAssignableFrom(rawType)) {
+                return CODECS.get(rawType);
+            }
+            BinaryCodec codec = GENERIC_CODECS.get(type);
+            if (codec == null) {
+                codec = createGeneric((ParameterizedType) type, rawType);
+                GENERIC_CODECS.put(type, codec);
+            }
+            return codec;
+        }
+
+        if (type instanceof GenericArrayType) {
+            Type componentType = ((GenericArrayType) type).getGenericComponentType();
+            return new ArrayCodec(rawTypeOf(componentType), of(componentType));
+        }
+
+        return CODECS.get(rawTypeOf(type));
+    }
+
+    public static Object decode(byte[] bs, Type type) throws IOException {
+        return of(type).read(new BinaryReader(bs));
+    }
+
+    /**
+     * 从ByteBuffer的当前位置读取, 读取后position移动到值的末尾
+     */
+    public static Object decode(ByteBuffer buffer, Type type) throws IOException {
+        return of(type).read(new BinaryReader(buffer));
+    }
+
+    public static byte[] encode(Object value) throws IOException {
+        BinaryWriter writer = new BinaryWriter();
+        of(value.getClass()).write(writer, value);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 直接写入ByteBuffer, 空间不足时抛出BufferOverflowException
+     */
+    public static void encode(Object value, ByteBuffer buffer) throws IOException {
+        of(value.getClass()).write(new BinaryWriter(buffer), value);
+    }
+
+    public static void encode(Object value, OutputStream outputStream) throws IOException {
+        BinaryWriter writer = new BinaryWriter();
+        of(value.getClass()).write(writer, value);
+        writer.writeTo(outputStream);
+    }
+
+    /**
+     * 属性的序号: Request按{@link Enumable#names()}的顺序, 其余的属性按属性名排序
+     *
+     * @param type
+     * @return
+     */
+    public static List<Property> propertiesOf(Class<?> type) {
+        List<Property> properties = Property.propertiesOf(type);
+        if (!Enumable.class.isAssignableFrom(type)) {
+            return properties;
+        }
+
+        String[] names = null;
+        try {
+            names = ((Enumable) type.getConstructor().newInstance()).names();
+        } catch (Exception e) {
+            return properties;
+        }
+
+        List<Property> ordered = new ArrayList<Property>(properties.size());
+        List<Property> others = new ArrayList<Property>(properties);
+        for (String name : names) {
+            for (Property property : properties) {
+                if (name.equals(JsonCodecs.nameOf(type, property))) {
+                    ordered.add(property);
+                    others.remove(property);
+                    break;
+                }
+            }
+        }
+        ordered.addAll(others);
+        return ordered;
+    }
+
+    public static void writeNullable(BinaryWriter writer, BinaryCodec codec, Object value) throws IOException {
+        writer.writeBoolean(value != null);
+        if (value != null) {
+            codec.write(writer, value);
+        }
+    }
+
+    public static Object readNullable(BinaryReader reader, BinaryCodec codec) throws IOException {
+        return reader.readBoolean() ? codec.read(reader) : null;
+    }
+
+    private static BinaryCodec create(Class<?> type) {
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == int.class || type == Integer.class) {
+            return INT;
+        }
+        if (type == long.class || type == Long.class) {
+            return LONG;
+        }
+        if (type == double.class || type == Double.class) {
+            return DOUBLE;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return BOOLEAN;
+        }
+        if (type == float.class || type == Float.class) {
+            return FLOAT;
+        }
+        if (type == short.class || type == Short.class) {
+            return SHORT;
+        }
+        if (type == byte.class || type == Byte.class) {
+            return BYTE;
+        }
+        if (type == char.class || type == Character.class) {
+            return CHAR;
+        }
+        if (type == BigDecimal.class) {
+            return BIG_DECIMAL;
+        }
+        if (type == BigInteger.class) {
+            return BIG_INTEGER;
+        }
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        if (type.isEnum()) {
+            return new EnumCodec(type);
+        }
+        if (Enum.class.isAssignableFrom(type) && type.getSuperclass().isEnum()) {
+            // 带方法体的枚举常量
+            return CODECS.get(type.getSuperclass());
+        }
+        if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            if (componentType.isPrimitive()) {
+                return new PrimitiveArrayCodec(componentType);
+            }
+            return new ArrayCodec(componentType, of(componentType));
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return new CollectionCodec(type, CODECS.get(Object.class));
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return new MapCodec(type, STRING, CODECS.get(Object.class));
+        }
+
+        String name = type.getName();
+        List<Property> properties = Property.propertiesOf(type);
+        if (type == Object.class || name.startsWith("java.") || name.startsWith("javax.") || properties.isEmpty()) {
+            return new JsonBinaryCodec(JsonCodecs.of(type));
+        }
+
+        if (JsonCodecs.generatable(type, properties)) {
+            try {
+                Class<?> codecType = Coder.of(type.getClassLoader()).getBinaryCodecType(type);
+                return (BinaryCodec) codecType.getDeclaredConstructor().newInstance();
+            } catch (Throwable e) {
+                // 无法生成时以JSON字节写出
+            }
+        }
+        return new JsonBinaryCodec(JsonCodecs.of(type));
+    }
+
+    private static BinaryCodec createGeneric(ParameterizedType type, Class<?> rawType) {
+        Type[] arguments = type.getActualTypeArguments();
+        if (Collection.class.isAssignableFrom(rawType)) {
+            return new CollectionCodec(rawType, of(arguments[0]));
+        }
+        return new MapCodec(rawType, of(arguments[0]), of(arguments[1]));
+    }
+
+    private static Class<?> rawTypeOf(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawTypeOf(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawTypeOf(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            return rawTypeOf(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    private static final BinaryCodec STRING = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readString();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeString((String) value);
+        }
+    };
+
+    private static final BinaryCodec BYTES = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readBytes();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeBytes((byte[]) value);
+        }
+    };
+
+    private static final BinaryCodec INT = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readInt();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeInt(((Number) value).intValue());
+        }
+    };
+
+    private static final BinaryCodec LONG = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readLong();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeLong(((Number) value).longValue());
+        }
+    };
+
+    private static final BinaryCodec SHORT = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readShort();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeShort(((Number) value).shortValue());
+        }
+    };
+
+    private static final BinaryCodec BYTE = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readByte();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeByte(((Number) value).byteValue());
+        }
+    };
+
+    private static final BinaryCodec DOUBLE = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readDouble();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeDouble(((Number) value).doubleValue());
+        }
+    };
+
+    private static final BinaryCodec FLOAT = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readFloat();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeFloat(((Number) value).floatValue());
+        }
+    };
+
+    private static final BinaryCodec BOOLEAN = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readBoolean();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeBoolean((Boolean) value);
+        }
+    };
+
+    private static final BinaryCodec CHAR = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return reader.readChar();
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeChar((Character) value);
+        }
+    };
+
+    private static final BinaryCodec BIG_DECIMAL = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return new BigDecimal(reader.readString());
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeString(value.toString());
+        }
+    };
+
+    private static final BinaryCodec BIG_INTEGER = new BinaryCodec() {
+        public Object read(BinaryReader reader) throws IOException {
+            return new BigInteger(reader.readString());
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeString(value.toString());
+        }
+    };
+
+    static class EnumCodec implements BinaryCodec {
+
+        private final Object[] constants;
+
+        EnumCodec(Class<?> type) {
+            this.constants = type.getEnumConstants();
+        }
+
+        public Object read(BinaryReader reader) throws IOException {
+            int ordinal = reader.readVarint();
+            if (ordinal >= constants.length) {
+                throw new BinaryException("unknown ordinal " + ordinal + " of " + constants.getClass().getComponentType().getName());
+            }
+            return constants[ordinal];
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            writer.writeVarint(((Enum<?>) value).ordinal());
+        }
+    }
+
+    /**
+     * 基本类型的数组, 元素不会为null, 不经过装箱
+     */
+    static class PrimitiveArrayCodec implements BinaryCodec {
+
+        private final Class<?> componentType;
+
+        PrimitiveArrayCodec(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        public Object read(BinaryReader reader) throws IOException {
+            int len = reader.readVarint();
+            if (componentType == int.class) {
+                int[] array = new int[len];
+                for (int i = 0; i < len; i++) {
+                    array[i] = reader.readInt();
+                }
+                return array;
+            }
+            if (componentType == long.class) {
+                long[] array = new long[len];
+                for (int i = 0; i < len; i++) {
+                    array[i] = reader.readLong();
+                }
+                return array;
+            }
+            if (componentType == double.class) {
+                double[] array = new double[len];
+                for (int i = 0; i < len; i++) {
+                    array[i] = reader.readDouble();
+                }
+                return array;
+            }
+            if (componentType == float.class) {
+                float[] array = new float[len];
+                for (int i = 0; i < len; i++) {
+                    array[i] = reader.readFloat();
+                }
+                return array;
+            }
+            if (componentType == boolean.class) {
+                boolean[] array = new boolean[len];
+                for (int i = 0; i < len; i++) {
+                    array[i] = reader.readBoolean();
+                }
+                return array;
+            }
+            if (componentType == short.class) {
+                short[] array = new short[len];
+                for (int i = 0; i < len; i++) {
+                    array[i] = reader.readShort();
+                }
+                return array;
+            }
+            char[] array = new char[len];
+            for (int i = 0; i < len; i++) {
+                array[i] = reader.readChar();
+            }
+            return array;
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            if (value instanceof int[]) {
+                int[] array = (int[]) value;
+                writer.writeVarint(array.length);
+                for (int v : array) {
+                    writer.writeInt(v);
+                }
+            } else if (value instanceof long[]) {
+                long[] array = (long[]) value;
+                writer.writeVarint(array.length);
+                for (long v : array) {
+                    writer.writeLong(v);
+                }
+            } else if (value instanceof double[]) {
+                double[] array = (double[]) value;
+                writer.writeVarint(array.length);
+                for (double v : array) {
+                    writer.writeDouble(v);
+                }
+            } else if (value instanceof float[]) {
+                float[] array = (float[]) value;
+                writer.writeVarint(array.length);
+                for (float v : array) {
+                    writer.writeFloat(v);
+                }
+            } else if (value instanceof boolean[]) {
+                boolean[] array = (boolean[]) value;
+                writer.writeVarint(array.length);
+                for (boolean v : array) {
+                    writer.writeBoolean(v);
+                }
+            } else if (value instanceof short[]) {
+                short[] array = (short[]) value;
+                writer.writeVarint(array.length);
+                for (short v : array) {
+                    writer.writeShort(v);
+                }
+            } else {
+                char[] array = (char[]) value;
+                writer.writeVarint(array.length);
+                for (char v : array) {
+                    writer.writeChar(v);
+                }
+            }
+        }
+    }
+
+    static class ArrayCodec implements BinaryCodec {
+
+        private final Class<?> componentType;
+
+        private final BinaryCodec componentCodec;
+
+        ArrayCodec(Class<?> componentType, BinaryCodec componentCodec) {
+            this.componentType = componentType;
+            this.componentCodec = componentCodec;
+        }
+
+        public Object read(BinaryReader reader) throws IOException {
+            int len = reader.readVarint();
+            Object[] array = (Object[]) Array.newInstance(componentType, len);
+            for (int i = 0; i < len; i++) {
+                array[i] = readNullable(reader, componentCodec);
+            }
+            return array;
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            Object[] array = (Object[]) value;
+            writer.writeVarint(array.length);
+            for (Object element : array) {
+                writeNullable(writer, componentCodec, element);
+            }
+        }
+    }
+
+    static class CollectionCodec implements BinaryCodec {
+
+        private final Class<?> type;
+
+        private final BinaryCodec elementCodec;
+
+        CollectionCodec(Class<?> type, BinaryCodec elementCodec) {
+            this.type = type;
+            this.elementCodec = elementCodec;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object read(BinaryReader reader) throws IOException {
+            int len = reader.readVarint();
+            Collection<Object> collection = (Collection<Object>) newCollection(len);
+            for (int i = 0; i < len; i++) {
+                collection.add(readNullable(reader, elementCodec));
+            }
+            return collection;
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            Collection<?> collection = (Collection<?>) value;
+            writer.writeVarint(collection.size());
+            if (value instanceof List && value instanceof java.util.RandomAccess) {
+                List<?> list = (List<?>) value;
+                for (int i = 0, len = list.size(); i < len; i++) {
+                    writeNullable(writer, elementCodec, list.get(i));
+                }
+            } else {
+                for (Object element : collection) {
+                    writeNullable(writer, elementCodec, element);
+                }
+            }
+        }
+
+        private Object newCollection(int len) throws IOException {
+            if (type.isAssignableFrom(ArrayList.class)) {
+                return new ArrayList<Object>(len);
+            }
+            if (type.isAssignableFrom(LinkedHashSet.class)) {
+                return new LinkedHashSet<Object>();
+            }
+            if (type.isAssignableFrom(TreeSet.class) && SortedSet.class.isAssignableFrom(type)) {
+                return new TreeSet<Object>();
+            }
+            if (type.isAssignableFrom(ArrayDeque.class) && Queue.class.isAssignableFrom(type)) {
+                return new ArrayDeque<Object>();
+            }
+            return newInstance(type);
+        }
+    }
+
+    static class MapCodec implements BinaryCodec {
+
+        private final Class<?> type;
+
+        private final BinaryCodec keyCodec;
+
+        private final BinaryCodec valueCodec;
+
+        MapCodec(Class<?> type, BinaryCodec keyCodec, BinaryCodec valueCodec) {
+            this.type = type;
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object read(BinaryReader reader) throws IOException {
+            int len = reader.readVarint();
+            Map<Object, Object> map = (Map<Object, Object>) newMap();
+            for (int i = 0; i < len; i++) {
+                Object key = readNullable(reader, keyCodec);
+                map.put(key, readNullable(reader, valueCodec));
+            }
+            return map;
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writer.writeVarint(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeNullable(writer, keyCodec, entry.getKey());
+                writeNullable(writer, valueCodec, entry.getValue());
+            }
+        }
+
+        private Object newMap() throws IOException {
+            if (type.isAssignableFrom(LinkedHashMap.class)) {
+                return new LinkedHashMap<Object, Object>();
+            }
+            if (type.isAssignableFrom(TreeMap.class) && SortedMap.class.isAssignableFrom(type)) {
+                return new TreeMap<Object, Object>();
+            }
+            if (type.isAssignableFrom(ConcurrentHashMap.class)) {
+                return new ConcurrentHashMap<Object, Object>();
+            }
+            if (type.isAssignableFrom(HashMap.class)) {
+                return new HashMap<Object, Object>();
+            }
+            return newInstance(type);
+        }
+    }
+
+    /**
+     * 没有固定结构的值(如Object, Date, 非public的bean)以长度前缀的JSON字节写出
+     */
+    static class JsonBinaryCodec implements BinaryCodec {
+
+        private final JsonCodec codec;
+
+        JsonBinaryCodec(JsonCodec codec) {
+            this.codec = codec;
+        }
+
+        public Object read(BinaryReader reader) throws IOException {
+            return codec.read(new JsonReader(reader.readBytes()));
+        }
+
+        public void write(BinaryWriter writer, Object value) throws IOException {
+            JsonWriter jsonWriter = new JsonWriter();
+            codec.write(jsonWriter, value);
+            writer.writeBytes(jsonWriter.toByteArray());
+        }
+    }
+
+    private static Object newInstance(Class<?> type) throws IOException {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new BinaryException("can not create instance of " + type.getName(), e);
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package io.github.caseforge.awaken.binary;
+
+import java.io.IOException;
+
+@SuppressWarnings("serial")
+public class BinaryException extends IOException {
+
+    public BinaryException(String message) {
+        super(message);
+    }
+
+    public BinaryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.caseforge.awaken.binary;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接从ByteBuffer中读取, 整数为varint编码, 有符号整数使用zigzag
+ */
+public class BinaryReader {
+
+    private final ByteBuffer buffer;
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public BinaryReader(byte[] bs) {
+        this(ByteBuffer.wrap(bs));
+    }
+
+    /**
+     * 读取无符号的varint
+     */
+    public int readVarint() throws IOException {
+        try {
+            int b = buffer.get();
+            if (b >= 0) {
+                return b;
+            }
+            int value = b & 0x7f;
+            for (int shift = 7; shift < 32; shift += 7) {
+                b = buffer.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new BinaryException("unexpected end of input", e);
+        }
+        throw new BinaryException("malformed varint at " + buffer.position());
+    }
+
+    public long readVarlong() throws IOException {
+        try {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = buffer.get();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new BinaryException("unexpected end of input", e);
+        }
+        throw new BinaryException("malformed varint at " + buffer.position());
+    }
+
+    public int readInt() throws IOException {
+        int n = readVarint();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    public long readLong() throws IOException {
+        long n = readVarlong();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    public short readShort() throws IOException {
+        return (short) readInt();
+    }
+
+    public byte readByte() throws IOException {
+        return (byte) readInt();
+    }
+
+    public char readChar() throws IOException {
+        return (char) readVarint();
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readVarint() != 0;
+    }
+
+    public double readDouble() throws IOException {
+        try {
+            return buffer.getDouble();
+        } catch (BufferUnderflowException e) {
+            throw new BinaryException("unexpected end of input", e);
+        }
+    }
+
+    public float readFloat() throws IOException {
+        try {
+            return buffer.getFloat();
+        } catch (BufferUnderflowException e) {
+            throw new BinaryException("unexpected end of input", e);
+        }
+    }
+
+    /**
+     * 读取长度前缀的UTF-8字符串, 堆内的ByteBuffer直接从底层数组解码
+     */
+    public String readString() throws IOException {
+        int len = readVarint();
+        if (len < 0 || len > buffer.remaining()) {
+            throw new BinaryException("string length " + len + " exceeds remaining " + buffer.remaining());
+        }
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + len);
+            return new String(buffer.array(), offset, len, StandardCharsets.UTF_8);
+        }
+        byte[] bs = new byte[len];
+        buffer.get(bs);
+        return new String(bs, StandardCharsets.UTF_8);
+    }
+
+    public byte[] readBytes() throws IOException {
+        int len = readVarint();
+        if (len < 0 || len > buffer.remaining()) {
+            throw new BinaryException("bytes length " + len + " exceeds remaining " + buffer.remaining());
+        }
+        byte[] bs = new byte[len];
+        buffer.get(bs);
+        return bs;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+}
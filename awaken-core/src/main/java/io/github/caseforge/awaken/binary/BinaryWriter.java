@@ -0,0 +1,209 @@
+package io.github.caseforge.awaken.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 直接写入ByteBuffer, 指定ByteBuffer时空间不足抛出BufferOverflowException, 否则自动扩容
+ */
+public class BinaryWriter {
+
+    private ByteBuffer buffer;
+
+    private final boolean growable;
+
+    /**
+     * 开始写入的位置
+     */
+    private final int start;
+
+    public BinaryWriter() {
+        this(256);
+    }
+
+    public BinaryWriter(int size) {
+        this.buffer = ByteBuffer.allocate(size);
+        this.growable = true;
+        this.start = 0;
+    }
+
+    public BinaryWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.growable = false;
+        this.start = buffer.position();
+    }
+
+    public void writeVarint(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public void writeVarlong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    public void writeLong(long value) throws IOException {
+        writeVarlong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeShort(short value) throws IOException {
+        writeInt(value);
+    }
+
+    public void writeByte(byte value) throws IOException {
+        writeInt(value);
+    }
+
+    public void writeChar(char value) throws IOException {
+        writeVarint(value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        ensure(1);
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    public void writeDouble(double value) throws IOException {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    public void writeFloat(float value) throws IOException {
+        ensure(4);
+        buffer.putFloat(value);
+    }
+
+    /**
+     * 先计算UTF-8的长度写出前缀, 再直接编码到缓冲区, 不生成中间的byte[]
+     */
+    public void writeString(String value) throws IOException {
+        int len = value.length();
+        int utf8Length = len;
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                utf8Length = utf8Length(value, i);
+                break;
+            }
+        }
+
+        writeVarint(utf8Length);
+        ensure(utf8Length);
+
+        if (utf8Length == len) {
+            for (int i = 0; i < len; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+            return;
+        }
+
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xf0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (cp & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                // 与String.getBytes一致, 不成对的代理字符写为'?'
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xe0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private static int utf8Length(String value, int from) {
+        int len = value.length();
+        int utf8Length = from;
+        for (int i = from; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        return utf8Length;
+    }
+
+    public void writeBytes(byte[] bs) throws IOException {
+        writeVarint(bs.length);
+        ensure(bs.length);
+        buffer.put(bs);
+    }
+
+    private void ensure(int len) {
+        if (!growable || buffer.remaining() >= len) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() << 1, buffer.position() + len);
+        ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+
+    /**
+     * 当前写入的ByteBuffer, 扩容后不再是构造时传入的实例
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + start, size());
+        } else {
+            outputStream.write(toByteArray());
+        }
+    }
+
+    public byte[] toByteArray() {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + start;
+            return Arrays.copyOfRange(buffer.array(), offset, offset + size());
+        }
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(duplicate.position());
+        duplicate.position(start);
+        byte[] bs = new byte[duplicate.remaining()];
+        duplicate.get(bs);
+        return bs;
+    }
+
+    public int size() {
+        return buffer.position() - start;
+    }
+
+}
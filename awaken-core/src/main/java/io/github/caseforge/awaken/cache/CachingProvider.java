@@ -0,0 +1,353 @@
+package io.github.caseforge.awaken.cache;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.github.caseforge.awaken.AsyncProvider;
+import io.github.caseforge.awaken.BatchProvider;
+import io.github.caseforge.awaken.Provider;
+import io.github.caseforge.awaken.binary.BinaryCodecs;
+
+/**
+ * 按oldValue缓存Provider的结果, 只适用于结果仅由oldValue决定的Provider.
+ * 缓存的是写入时的副本, 每次命中返回新的副本, 调用方(子节点和mask)修改返回值不影响缓存: bean以编码后的字节保存, 命中时解码,
+ * 集合, Map和数组逐个元素复制, 字符串, 数值和枚举等不可变的值直接返回.
+ * 条目写入超过refreshAfter毫秒后再次命中时仍返回旧值, 同时在后台重新获取, 每个条目同一时间只刷新一次
+ */
+public class CachingProvider implements Provider {
+
+    private static final Object NULL_KEY = new Object();
+
+    protected final Provider delegate;
+
+    protected final TinyLfuCache<Object, Entry> cache;
+
+    private final long refreshAfter;
+
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * @param delegate
+     * @param maxEntries 最大条目数
+     * @param ttl 写入后的存活毫秒数, 小于1时不过期
+     * @param refreshAfter 写入后开始后台刷新的毫秒数, 小于1时不刷新
+     */
+    protected CachingProvider(Provider delegate, long maxEntries, long ttl, long refreshAfter) {
+        this.delegate = delegate;
+        this.cache = new TinyLfuCache<Object, Entry>(maxEntries, 0, ttl);
+        this.refreshAfter = refreshAfter > 0 ? TimeUnit.MILLISECONDS.toNanos(refreshAfter) : 0;
+    }
+
+    /**
+     * 保留delegate的批量和异步能力
+     */
+    public static CachingProvider of(Provider delegate, long maxEntries, long ttl, long refreshAfter) {
+        if (delegate instanceof BatchProvider) {
+            return new Batch((BatchProvider) delegate, maxEntries, ttl, refreshAfter);
+        }
+        if (delegate instanceof AsyncProvider) {
+            return new Async((AsyncProvider) delegate, maxEntries, ttl, refreshAfter);
+        }
+        return new CachingProvider(delegate, maxEntries, ttl, refreshAfter);
+    }
+
+    @Override
+    public Object provide(Object oldValue) throws Exception {
+        Object key = keyOf(oldValue);
+        Entry entry = lookup(key, oldValue);
+        if (entry != null) {
+            return entry.get();
+        }
+        Object newValue = delegate.provide(oldValue);
+        cache.put(key, new Entry(newValue), 1);
+        return newValue;
+    }
+
+    /**
+     * 命中且需要刷新时在后台重新获取
+     */
+    protected Entry lookup(Object key, Object oldValue) {
+        Entry entry = cache.get(key);
+        if (entry != null && refreshAfter > 0 && System.nanoTime() - entry.writtenAt >= refreshAfter && entry.refreshing.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> refresh(key, oldValue, entry));
+            } catch (RuntimeException e) {
+                entry.refreshing.set(false);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 刷新失败时保留旧值, 直到过期
+     */
+    protected void refresh(Object key, Object oldValue, Entry entry) {
+        try {
+            cache.put(key, new Entry(delegate.provide(oldValue)), 1);
+        } catch (Exception e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    protected static Object keyOf(Object oldValue) {
+        return oldValue == null ? NULL_KEY : oldValue;
+    }
+
+    public Provider getDelegate() {
+        return delegate;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 字符串, 数值, 枚举等不可变的值不需要复制
+     */
+    private static boolean isImmutable(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character || value instanceof Enum
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof Double || value instanceof Float || value instanceof BigDecimal || value instanceof BigInteger;
+    }
+
+    /**
+     * 集合和数组按元素复制, bean按实际类型编码后再解码
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static Object copyOf(Object value) throws Exception {
+        if (isImmutable(value)) {
+            return value;
+        }
+
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            int length = Array.getLength(value);
+            Object array = Array.newInstance(type.getComponentType(), length);
+            if (type.getComponentType().isPrimitive()) {
+                System.arraycopy(value, 0, array, 0, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, copyOf(Array.get(value, i)));
+                }
+            }
+            return array;
+        }
+
+        if (value instanceof Collection) {
+            Collection collection = (Collection) newContainer(value);
+            for (Object element : (Collection<?>) value) {
+                collection.add(copyOf(element));
+            }
+            return collection;
+        }
+
+        if (value instanceof Map) {
+            Map map = (Map) newContainer(value);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(copyOf(entry.getKey()), copyOf(entry.getValue()));
+            }
+            return map;
+        }
+
+        return BinaryCodecs.decode(BinaryCodecs.encode(value), type);
+    }
+
+    /**
+     * 优先使用原集合的类型, 没有无参构造方法时(如不可修改的集合)按接口选择可修改的实现
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static Object newContainer(Object value) {
+        try {
+            return value.getClass().getConstructor().newInstance();
+        } catch (Exception e) {
+            if (value instanceof SortedSet) {
+                return new TreeSet(((SortedSet) value).comparator());
+            }
+            if (value instanceof Set) {
+                return new LinkedHashSet();
+            }
+            if (value instanceof SortedMap) {
+                return new TreeMap(((SortedMap) value).comparator());
+            }
+            if (value instanceof Map) {
+                return new LinkedHashMap();
+            }
+            return new ArrayList();
+        }
+    }
+
+    /**
+     * 保存值的副本, bean保存编码后的字节
+     */
+    protected static final class Entry {
+
+        private final Object value;
+
+        private final byte[] bytes;
+
+        final long writtenAt = System.nanoTime();
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(Object value) throws Exception {
+            if (isImmutable(value) || value.getClass().isArray() || value instanceof Collection || value instanceof Map) {
+                this.value = copyOf(value);
+                this.bytes = null;
+            } else {
+                this.value = value.getClass();
+                this.bytes = BinaryCodecs.encode(value);
+            }
+        }
+
+        /**
+         * @return 新的副本
+         */
+        Object get() throws Exception {
+            return bytes != null ? BinaryCodecs.decode(bytes, (Class<?>) value) : copyOf(value);
+        }
+
+    }
+
+    /**
+     * 未命中的值合并后调用一次delegate
+     */
+    private static final class Batch extends CachingProvider implements BatchProvider {
+
+        Batch(BatchProvider delegate, long maxEntries, long ttl, long refreshAfter) {
+            super(delegate, maxEntries, ttl, refreshAfter);
+        }
+
+        @Override
+        public List<Object> provideBatch(List<Object> oldValues) throws Exception {
+            List<Object> newValues = new ArrayList<Object>(oldValues.size());
+            List<Object> missed = null;
+            int[] missedIndexes = null;
+            for (int i = 0; i < oldValues.size(); i++) {
+                Object oldValue = oldValues.get(i);
+                Entry entry = lookup(keyOf(oldValue), oldValue);
+                newValues.add(entry == null ? null : entry.get());
+                if (entry == null) {
+                    if (missed == null) {
+                        missed = new ArrayList<Object>();
+                        missedIndexes = new int[oldValues.size()];
+                    }
+                    missedIndexes[missed.size()] = i;
+                    missed.add(oldValue);
+                }
+            }
+            if (missed == null) {
+                return newValues;
+            }
+
+            List<Object> provided = ((BatchProvider) delegate).provideBatch(missed);
+            if (provided == null || provided.size() != missed.size()) {
+                throw new IllegalStateException("provider " + delegate.getClass().getName() + " returned " + (provided == null ? 0 : provided.size()) + " values for " + missed.size());
+            }
+            for (int j = 0; j < missed.size(); j++) {
+                Object newValue = provided.get(j);
+                cache.put(keyOf(missed.get(j)), new Entry(newValue), 1);
+                newValues.set(missedIndexes[j], newValue);
+            }
+            return newValues;
+        }
+
+    }
+
+    /**
+     * 未命中时在delegate完成后写入缓存
+     */
+    private static final class Async extends CachingProvider implements AsyncProvider {
+
+        Async(AsyncProvider delegate, long maxEntries, long ttl, long refreshAfter) {
+            super(delegate, maxEntries, ttl, refreshAfter);
+        }
+
+        @Override
+        public Object provide(Object oldValue) throws Exception {
+            return AsyncProvider.super.provide(oldValue);
+        }
+
+        @Override
+        public CompletionStage<Object> provideAsync(Object oldValue) {
+            Object key = keyOf(oldValue);
+            Entry entry = lookup(key, oldValue);
+            if (entry != null) {
+                CompletableFuture<Object> future = new CompletableFuture<Object>();
+                try {
+                    future.complete(entry.get());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+                return future;
+            }
+            return ((AsyncProvider) delegate).provideAsync(oldValue).thenApply(newValue -> {
+                try {
+                    cache.put(key, new Entry(newValue), 1);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+                return newValue;
+            });
+        }
+
+        @Override
+        protected void refresh(Object key, Object oldValue, Entry entry) {
+            try {
+                ((AsyncProvider) delegate).provideAsync(oldValue).whenComplete((newValue, e) -> {
+                    try {
+                        if (e != null) {
+                            entry.refreshing.set(false);
+                        } else {
+                            cache.put(key, new Entry(newValue), 1);
+                        }
+                    } catch (Exception ex) {
+                        entry.refreshing.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                entry.refreshing.set(false);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,430 @@
+package io.github.caseforge.awaken.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * W-TinyLFU缓存: 新条目先进入占总容量1%的窗口LRU, 离开窗口后只有比主区最久未访问的条目更常用时才被接纳.
+ * 主区分为试用区和保护区(80%), 试用区中再次访问的条目晋升到保护区.
+ * <p>
+ * 读取不加锁, 访问记录写入按线程分段的有损环形缓冲区, 写入或缓冲区满时在锁内批量处理
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+
+    private static final int PROBATION = 1;
+
+    private static final int PROTECTED = 2;
+
+    private static final int REMOVED = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<K, Node<K, V>>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ReadBuffer[] readBuffers;
+
+    private final int stripeMask;
+
+    private final FrequencySketch sketch;
+
+    private final AccessQueue<K, V> window = new AccessQueue<K, V>();
+
+    private final AccessQueue<K, V> probation = new AccessQueue<K, V>();
+
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<K, V>();
+
+    private final long maximumSize;
+
+    private final long maximumWeight;
+
+    private final boolean weighted;
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    private final long ttl;
+
+    private long size;
+
+    private long weightedSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize 最大条目数
+     * @param maximumWeight 最大总权重(如字节数), 小于1时每个条目的权重为1
+     * @param ttl 写入后的存活毫秒数, 小于1时不过期
+     */
+    public TinyLfuCache(long maximumSize, long maximumWeight, long ttl) {
+        this.maximumSize = maximumSize;
+        this.weighted = maximumWeight > 0;
+        this.maximumWeight = weighted ? maximumWeight : maximumSize;
+        this.windowMaximum = Math.max(1, this.maximumWeight / 100);
+        this.protectedMaximum = (this.maximumWeight - windowMaximum) * 4 / 5;
+        this.ttl = ttl > 0 ? TimeUnit.MILLISECONDS.toNanos(ttl) : 0;
+        this.sketch = new FrequencySketch(maximumSize);
+
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * 不存在或已过期时返回null
+     * 
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (ttl > 0 && System.nanoTime() - node.expireAt >= 0) {
+            misses.increment();
+            if (lock.tryLock()) {
+                try {
+                    if (node.queue != REMOVED) {
+                        remove(node);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+
+        V value = node.value;
+        hits.increment();
+
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & stripeMask];
+        if (!buffer.offer(node) && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param key
+     * @param value
+     * @param weight 条目的权重, 未指定最大总权重时忽略
+     */
+    public void put(K key, V value, long weight) {
+        if (!weighted) {
+            weight = 1;
+        }
+        if (weight > maximumWeight) {
+            return;
+        }
+        long expireAt = ttl > 0 ? System.nanoTime() + ttl : 0;
+
+        lock.lock();
+        try {
+            drainReadBuffers();
+
+            Node<K, V> node = data.get(key);
+            if (node != null && node.queue != REMOVED) {
+                queueOf(node).weight += weight - node.weight;
+                weightedSize += weight - node.weight;
+                node.weight = weight;
+                node.value = value;
+                node.expireAt = expireAt;
+                onAccess(node);
+            } else {
+                node = new Node<K, V>(key, value, weight, expireAt);
+                data.put(key, node);
+                sketch.increment(key);
+                window.addLast(node);
+                node.queue = WINDOW;
+                size++;
+                weightedSize += weight;
+            }
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null && node.queue != REMOVED) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                if (node.queue != REMOVED) {
+                    remove(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drain(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void onAccess(Node<?, ?> accessed) {
+        Node<K, V> node = (Node<K, V>) accessed;
+        if (node.queue == REMOVED) {
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROBATION) {
+            probation.remove(node);
+            protectedQueue.addLast(node);
+            node.queue = PROTECTED;
+            while (protectedQueue.weight > protectedMaximum && protectedQueue.head != null) {
+                Node<K, V> demoted = protectedQueue.head;
+                protectedQueue.remove(demoted);
+                probation.addLast(demoted);
+                demoted.queue = PROBATION;
+            }
+        } else {
+            protectedQueue.moveToLast(node);
+        }
+    }
+
+    private void evict() {
+        // 本次离开窗口的条目依次追加到试用区末尾
+        Node<K, V> candidate = null;
+        while (window.weight > windowMaximum && window.head != null) {
+            Node<K, V> node = window.head;
+            window.remove(node);
+            probation.addLast(node);
+            node.queue = PROBATION;
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        while (weightedSize > maximumWeight || size > maximumSize) {
+            Node<K, V> victim = probation.head;
+            if (victim == null) {
+                victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+            }
+            if (victim == null) {
+                break;
+            }
+
+            if (candidate == null || victim == candidate || victim.queue != PROBATION) {
+                if (victim == candidate) {
+                    candidate = candidate.next;
+                }
+                remove(victim);
+                evictions.increment();
+                continue;
+            }
+
+            Node<K, V> next = candidate.next;
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                remove(victim);
+            } else {
+                remove(candidate);
+                candidate = next;
+            }
+            evictions.increment();
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        queueOf(node).remove(node);
+        node.queue = REMOVED;
+        data.remove(node.key, node);
+        size--;
+        weightedSize -= node.weight;
+    }
+
+    private AccessQueue<K, V> queueOf(Node<K, V> node) {
+        if (node.queue == WINDOW) {
+            return window;
+        } else if (node.queue == PROBATION) {
+            return probation;
+        }
+        return protectedQueue;
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long getWeightedSize() {
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    static final class Node<K, V> {
+
+        final K key;
+
+        volatile V value;
+
+        volatile long expireAt;
+
+        long weight;
+
+        int queue;
+
+        Node<K, V> prev;
+
+        Node<K, V> next;
+
+        Node(K key, V value, long weight, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表, head为最久未访问的条目
+     */
+    static final class AccessQueue<K, V> {
+
+        Node<K, V> head;
+
+        Node<K, V> tail;
+
+        long weight;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * 有损的环形缓冲区, 满了或竞争失败时直接丢弃访问记录
+     */
+    static final class ReadBuffer {
+
+        static final int SIZE = 16;
+
+        static final int MASK = SIZE - 1;
+
+        final AtomicReferenceArray<Node<?, ?>> buffer = new AtomicReferenceArray<Node<?, ?>>(SIZE);
+
+        final AtomicLong writeCounter = new AtomicLong();
+
+        volatile long readCounter;
+
+        /**
+         * @param node
+         * @return 缓冲区已满时返回false
+         */
+        boolean offer(Node<?, ?> node) {
+            long write = writeCounter.get();
+            if (write - readCounter >= SIZE) {
+                return false;
+            }
+            if (writeCounter.compareAndSet(write, write + 1)) {
+                buffer.lazySet((int) (write & MASK), node);
+            }
+            return true;
+        }
+
+        void drain(TinyLfuCache<?, ?> cache) {
+            long read = readCounter;
+            long write = writeCounter.get();
+            for (; read < write; read++) {
+                int index = (int) (read & MASK);
+                Node<?, ?> node = buffer.get(index);
+                if (node == null) {
+                    break;
+                }
+                buffer.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            readCounter = read;
+        }
+    }
+
+}
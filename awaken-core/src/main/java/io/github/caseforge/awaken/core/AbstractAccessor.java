@@ -0,0 +1,36 @@
+package io.github.caseforge.awaken.core;
+
+import java.util.Arrays;
+
+public abstract class AbstractAccessor implements Accessor {
+
+    /**
+     * 按字典序排列的属性名, 首字母大写, 与getter/setter方法名的后半部分一致
+     */
+    private final String[] keys;
+
+    private final Class<?>[] types;
+
+    protected AbstractAccessor(String[] keys, Class<?>[] types) {
+        this.keys = keys;
+        this.types = types;
+    }
+
+    @Override
+    public int indexOf(String name) {
+        if (name == null || name.length() == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(keys, name.substring(0, 1).toUpperCase() + name.substring(1));
+        return index < 0 ? -1 : index;
+    }
+
+    @Override
+    public Class<?> typeOf(int index) {
+        if (index < 0 || index >= types.length) {
+            return null;
+        }
+        return types[index];
+    }
+
+}
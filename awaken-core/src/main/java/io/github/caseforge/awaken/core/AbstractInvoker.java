@@ -1,7 +1,149 @@
 package io.github.caseforge.awaken.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import io.github.caseforge.awaken.Bindable;
 import io.github.caseforge.awaken.Invoker;
 
 public abstract class AbstractInvoker implements Invoker {
 
+    /**
+     * 创建Response, 生成的异步Invoker直接创建实例
+     * 
+     * @return
+     * @throws Exception
+     */
+    protected Object newResponse() throws Exception {
+        return getResponseType().getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * 取出Request中的List参数, 由@Batch方法生成的Invoker实现
+     * 
+     * @param request
+     * @return
+     */
+    protected List<?> batchOf(Object request) {
+        throw new UnsupportedOperationException(getClass().getName());
+    }
+
+    /**
+     * 以合并后的List调用服务方法, 由@Batch方法生成的Invoker实现
+     * 
+     * @param values
+     * @return
+     * @throws Exception
+     */
+    protected List<?> callBatch(List<Object> values) throws Exception {
+        throw new UnsupportedOperationException(getClass().getName());
+    }
+
+    /**
+     * 合并所有请求的参数只调用一次服务方法, 结果按各请求的参数个数拆分到Response
+     * 
+     * @param inputs
+     * @return
+     * @throws Exception
+     */
+    public List<Object> invokeBatch(List<?> inputs) throws Exception {
+        int[] sizes = new int[inputs.size()];
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < sizes.length; i++) {
+            List<?> batch = batchOf(inputs.get(i));
+            sizes[i] = batch == null ? -1 : batch.size();
+            if (batch != null) {
+                values.addAll(batch);
+            }
+        }
+
+        List<?> results = callBatch(values);
+        if (results == null || results.size() != values.size()) {
+            throw new IllegalStateException(getClass().getName() + " returned " + (results == null ? 0 : results.size()) + " results for " + values.size() + " values");
+        }
+
+        List<Object> responses = new ArrayList<Object>(sizes.length);
+        int offset = 0;
+        for (int size : sizes) {
+            Bindable response = (Bindable) newResponse();
+            if (size >= 0) {
+                response.bind(new ArrayList<Object>(results.subList(offset, offset + size)));
+                offset += size;
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    /**
+     * 服务方法返回的结果完成后绑定到Response
+     * 
+     * @param stage
+     * @return
+     */
+    protected CompletionStage<Object> bindAsync(CompletionStage<?> stage) {
+        if (stage == null) {
+            stage = CompletableFuture.completedFuture(null);
+        }
+        return stage.thenApply(value -> {
+            try {
+                Bindable response = (Bindable) newResponse();
+                response.bind(value);
+                return response;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * 同步等待异步的结果, 抛出原始的异常
+     * 
+     * @param stage
+     * @return
+     * @throws Exception
+     */
+    public static Object join(CompletionStage<?> stage) throws Exception {
+        try {
+            return stage.toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 取出CompletionException和ExecutionException中的原始异常
+     * 
+     * @param t
+     * @return
+     */
+    public static Exception unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof Exception) {
+            return (Exception) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new Exception(t);
+    }
+
+    /**
+     * 以异常结束的CompletableFuture, 兼容Java 8
+     * 
+     * @param t
+     * @return
+     */
+    public static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
 }
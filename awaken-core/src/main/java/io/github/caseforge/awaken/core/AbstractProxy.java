@@ -1,7 +1,11 @@
 package io.github.caseforge.awaken.core;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
+import io.github.caseforge.awaken.AsyncProxyHandler;
+import io.github.caseforge.awaken.Bindable;
 import io.github.caseforge.awaken.Proxy;
 import io.github.caseforge.awaken.ProxyHandler;
 
@@ -14,6 +18,28 @@ public class AbstractProxy implements Proxy {
         return proxyHandler.handle(method, input, responseType);
     }
 
+    /**
+     * 异步方法的调用: ProxyHandler支持异步时不等待结果, 否则在当前线程执行后返回已完成的结果
+     * 
+     * @param method
+     * @param input
+     * @param responseType
+     * @return Response中的data
+     */
+    protected CompletableFuture<Object> callAsync(Method method, Object input, Class<?> responseType) {
+        CompletionStage<Object> stage = null;
+        if (proxyHandler instanceof AsyncProxyHandler) {
+            stage = ((AsyncProxyHandler) proxyHandler).handleAsync(method, input, responseType);
+        } else {
+            try {
+                stage = CompletableFuture.completedFuture(handle(method, input, responseType));
+            } catch (Throwable e) {
+                return AbstractInvoker.failed(e);
+            }
+        }
+        return stage.thenApply(response -> response == null ? null : ((Bindable) response).value()).toCompletableFuture();
+    }
+
     @Override
     public ProxyHandler getProxyHandler() {
         return proxyHandler;
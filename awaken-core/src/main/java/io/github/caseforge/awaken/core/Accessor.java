@@ -0,0 +1,17 @@
+package io.github.caseforge.awaken.core;
+
+public interface Accessor {
+
+    /**
+     * @param name 属性名
+     * @return 属性的下标, 不存在时返回-1
+     */
+    int indexOf(String name);
+
+    Class<?> typeOf(int index);
+
+    Object get(Object target, int index) throws Exception;
+
+    void set(Object target, int index, Object value) throws Exception;
+
+}
@@ -0,0 +1,54 @@
+package io.github.caseforge.awaken.core;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+public class Accessors {
+
+    private static final ClassValue<Accessor> ACCESSORS = new ClassValue<Accessor>() {
+        @Override
+        protected Accessor computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    public static Accessor of(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    private static Accessor create(Class<?> type) {
+        List<Property> properties = Property.propertiesOf(type);
+        if (generatable(type, properties)) {
+            try {
+                Class<?> accessorType = Coder.of(type.getClassLoader()).getAccessorType(type);
+                return (Accessor) accessorType.getDeclaredConstructor().newInstance();
+            } catch (Throwable e) {
+                // 无法生成时退化为反射
+            }
+        }
+        return new ReflectAccessor(properties);
+    }
+
+    private static boolean generatable(Class<?> type, List<Property> properties) {
+        if (type.getClassLoader() == null || type.isArray() || type.isPrimitive() || !isPublic(type)) {
+            return false;
+        }
+
+        for (Property property : properties) {
+            Method writeMethod = property.getWriteMethod();
+            if (writeMethod != null && !isPublic(property.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+}
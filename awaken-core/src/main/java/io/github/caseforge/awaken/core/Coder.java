@@ -1,7 +1,10 @@
 package io.github.caseforge.awaken.core;
 
+import static io.github.caseforge.awaken.asm.Opcodes.AALOAD;
 import static io.github.caseforge.awaken.asm.Opcodes.AASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_FINAL;
 import static io.github.caseforge.awaken.asm.Opcodes.ACC_PRIVATE;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PROTECTED;
 import static io.github.caseforge.awaken.asm.Opcodes.ACC_PUBLIC;
 import static io.github.caseforge.awaken.asm.Opcodes.ACC_STATIC;
 import static io.github.caseforge.awaken.asm.Opcodes.ACC_SUPER;
@@ -10,41 +13,105 @@ import static io.github.caseforge.awaken.asm.Opcodes.ALOAD;
 import static io.github.caseforge.awaken.asm.Opcodes.ANEWARRAY;
 import static io.github.caseforge.awaken.asm.Opcodes.ARETURN;
 import static io.github.caseforge.awaken.asm.Opcodes.ASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.ATHROW;
 import static io.github.caseforge.awaken.asm.Opcodes.BIPUSH;
 import static io.github.caseforge.awaken.asm.Opcodes.CHECKCAST;
+import static io.github.caseforge.awaken.asm.Opcodes.DSTORE;
 import static io.github.caseforge.awaken.asm.Opcodes.DUP;
+import static io.github.caseforge.awaken.asm.Opcodes.FSTORE;
 import static io.github.caseforge.awaken.asm.Opcodes.GETFIELD;
 import static io.github.caseforge.awaken.asm.Opcodes.GETSTATIC;
+import static io.github.caseforge.awaken.asm.Opcodes.GOTO;
+import static io.github.caseforge.awaken.asm.Opcodes.I2B;
+import static io.github.caseforge.awaken.asm.Opcodes.I2S;
+import static io.github.caseforge.awaken.asm.Opcodes.IADD;
+import static io.github.caseforge.awaken.asm.Opcodes.ICONST_0;
+import static io.github.caseforge.awaken.asm.Opcodes.ICONST_1;
+import static io.github.caseforge.awaken.asm.Opcodes.IFEQ;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNE;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNONNULL;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNULL;
+import static io.github.caseforge.awaken.asm.Opcodes.IF_ACMPNE;
+import static io.github.caseforge.awaken.asm.Opcodes.IF_ICMPNE;
+import static io.github.caseforge.awaken.asm.Opcodes.ILOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.IMUL;
+import static io.github.caseforge.awaken.asm.Opcodes.INSTANCEOF;
 import static io.github.caseforge.awaken.asm.Opcodes.INVOKEINTERFACE;
 import static io.github.caseforge.awaken.asm.Opcodes.INVOKESPECIAL;
 import static io.github.caseforge.awaken.asm.Opcodes.INVOKESTATIC;
 import static io.github.caseforge.awaken.asm.Opcodes.INVOKEVIRTUAL;
+import static io.github.caseforge.awaken.asm.Opcodes.IRETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.ISTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.ISUB;
+import static io.github.caseforge.awaken.asm.Opcodes.LCMP;
+import static io.github.caseforge.awaken.asm.Opcodes.LCONST_0;
+import static io.github.caseforge.awaken.asm.Opcodes.LLOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.LSTORE;
 import static io.github.caseforge.awaken.asm.Opcodes.NEW;
+import static io.github.caseforge.awaken.asm.Opcodes.POP2;
 import static io.github.caseforge.awaken.asm.Opcodes.POP;
 import static io.github.caseforge.awaken.asm.Opcodes.PUTFIELD;
 import static io.github.caseforge.awaken.asm.Opcodes.PUTSTATIC;
 import static io.github.caseforge.awaken.asm.Opcodes.RETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.SIPUSH;
+import static io.github.caseforge.awaken.asm.Opcodes.SWAP;
 import static io.github.caseforge.awaken.asm.Opcodes.V1_8;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import io.github.caseforge.awaken.AsyncInvoker;
+import io.github.caseforge.awaken.BatchInvoker;
 import io.github.caseforge.awaken.Bindable;
 import io.github.caseforge.awaken.Enumable;
+import io.github.caseforge.awaken.FieldVisitor;
 import io.github.caseforge.awaken.Provider;
 import io.github.caseforge.awaken.Validator;
+import io.github.caseforge.awaken.annotation.Batch;
 import io.github.caseforge.awaken.asm.ClassWriter;
+import io.github.caseforge.awaken.asm.Label;
 import io.github.caseforge.awaken.asm.MethodVisitor;
 import io.github.caseforge.awaken.asm.Type;
+import io.github.caseforge.awaken.binary.AbstractBinaryCodec;
+import io.github.caseforge.awaken.binary.BinaryCodec;
+import io.github.caseforge.awaken.binary.BinaryCodecs;
+import io.github.caseforge.awaken.binary.BinaryException;
+import io.github.caseforge.awaken.binary.BinaryReader;
+import io.github.caseforge.awaken.binary.BinaryWriter;
+import io.github.caseforge.awaken.jfr.FlightEvents;
+import io.github.caseforge.awaken.json.AbstractJsonCodec;
+import io.github.caseforge.awaken.json.JsonCodec;
+import io.github.caseforge.awaken.json.JsonCodecs;
+import io.github.caseforge.awaken.json.JsonReader;
+import io.github.caseforge.awaken.json.JsonWriter;
 
 public class Coder extends ClassLoader {
 
+    static {
+        // 按类名加锁, 不同的类可以并发生成
+        registerAsParallelCapable();
+    }
+
     public static final String SUFFIX_PROXY = ".Proxy";
 
     public static final String SUFFIX_INVOKER = ".Invoker";
@@ -57,9 +124,70 @@ public class Coder extends ClassLoader {
 
     public static final String SUFFIX_VALIDATOR = ".Validator";
 
-    private Map<String, Method> ptm = new HashMap<String, Method>();
+    public static final String SUFFIX_ACCESSOR = ".Accessor";
+
+    public static final String SUFFIX_ASSIGNMENT = ".Assignment";
+
+    public static final String SUFFIX_VALIDATION = ".Validation";
+
+    public static final String SUFFIX_RULE = ".Rule";
+
+    public static final String SUFFIX_JSON_CODEC = ".JsonCodec";
+
+    public static final String SUFFIX_BINARY_CODEC = ".BinaryCodec";
+
+    /**
+     * 生成规则的版本, 生成的字节码发生变化时需要修改, 使旧的预编译类和缓存失效
+     */
+    public static final String VERSION = "5";
+
+    public static final String PREFIX = "yyds.x";
+
+    /**
+     * 预编译类的存放目录, 不放在类路径的包目录下, 避免被父加载器直接加载
+     */
+    public static final String CLASSES_RESOURCE = "META-INF/awaken/classes/";
+
+    private Map<String, Method> ptm = new ConcurrentHashMap<String, Method>();
 
-    private Map<Method, String> mtp = new HashMap<Method, String>();
+    private ConcurrentHashMap<Method, String> mtp = new ConcurrentHashMap<Method, String>();
+
+    private String cachePath = System.getProperty("awaken.cache.path");
+
+    /**
+     * 非Coder加载的类型, 在以其类加载器为父加载器的Coder中生成访问类和JsonCodec
+     */
+    private static final Map<ClassLoader, WeakReference<Coder>> CODERS = new WeakHashMap<ClassLoader, WeakReference<Coder>>();
+
+    public Coder() {
+        super();
+    }
+
+    public Coder(ClassLoader parent) {
+        super(parent);
+    }
+
+    /**
+     * 取得能够为该加载器中的类型生成类的Coder
+     * 
+     * @param classLoader
+     * @return
+     */
+    public static Coder of(ClassLoader classLoader) {
+        if (classLoader instanceof Coder) {
+            return (Coder) classLoader;
+        }
+
+        synchronized (CODERS) {
+            WeakReference<Coder> reference = CODERS.get(classLoader);
+            Coder coder = reference == null ? null : reference.get();
+            if (coder == null) {
+                coder = new Coder(classLoader);
+                CODERS.put(classLoader, new WeakReference<Coder>(coder));
+            }
+            return coder;
+        }
+    }
 
     public Class<?> getProxyType(Class<?> itf) throws Exception {
         return loadClass(itf.getName() + SUFFIX_PROXY);
@@ -85,61 +213,438 @@ public class Coder extends ClassLoader {
         return loadClass(pkgOf(method) + SUFFIX_VALIDATOR);
     }
 
-    protected String pkgOf(Method method) {
-        if (mtp.containsKey(method)) {
-            return mtp.get(method);
+    public Class<?> getAccessorType(Class<?> type) throws Exception {
+        return loadClass(type.getName() + SUFFIX_ACCESSOR);
+    }
+
+    public Class<?> getJsonCodecType(Class<?> type) throws Exception {
+        return loadClass(type.getName() + SUFFIX_JSON_CODEC);
+    }
+
+    public Class<?> getBinaryCodecType(Class<?> type) throws Exception {
+        return loadClass(type.getName() + SUFFIX_BINARY_CODEC);
+    }
+
+    public String pkgOf(Method method) {
+        String key = mtp.get(method);
+        if (key != null) {
+            return key;
+        }
+        return mtp.computeIfAbsent(method, this::allocPkg);
+    }
+
+    /**
+     * 包名由方法签名的摘要决定, 与方法的发现顺序无关, 每次启动都相同
+     * 
+     * @param method
+     * @return
+     */
+    private String allocPkg(Method method) {
+        String base = PREFIX + digest(signatureOf(method));
+        String key = base;
+        for (int i = 1;; i++) {
+            Method existing = ptm.putIfAbsent(key, method);
+            if (existing == null || existing.equals(method)) {
+                return key;
+            }
+            key = base + "_" + i;
+        }
+    }
+
+    /**
+     * 在线程池中并发生成方法对应的Request/Response/Invoker类
+     * 
+     * @param methods
+     * @param parallelism
+     * @throws Exception
+     */
+    public void prepare(Collection<Method> methods, int parallelism) throws Exception {
+        List<Callable<Class<?>>> tasks = new ArrayList<Callable<Class<?>>>();
+        for (final Method method : methods) {
+            tasks.add(new Callable<Class<?>>() {
+                public Class<?> call() throws Exception {
+                    return getRequestType(method);
+                }
+            });
+            tasks.add(new Callable<Class<?>>() {
+                public Class<?> call() throws Exception {
+                    return getResponseType(method);
+                }
+            });
+            tasks.add(new Callable<Class<?>>() {
+                public Class<?> call() throws Exception {
+                    return getInvokerType(method);
+                }
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Class<?>> future : pool.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 方法的唯一标识
+     * 
+     * @param method
+     * @return
+     */
+    public String keyOf(Method method) {
+        return method.getDeclaringClass().getName() + "#" + method.getName() + Type.getMethodDescriptor(method);
+    }
+
+    /**
+     * 影响生成结果的全部信息: 生成规则版本, 方法签名, 参数名以及泛型信息
+     * 
+     * @param method
+     * @return
+     */
+    protected String signatureOf(Method method) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(VERSION).append('|').append(keyOf(method)).append('|').append(method.toGenericString());
+        for (Parameter parameter : method.getParameters()) {
+            builder.append('|').append(parameter.getName());
+        }
+        // @Batch改变生成的Invoker, 不在toGenericString中
+        if (method.isAnnotationPresent(Batch.class)) {
+            builder.append("|batch");
         }
+        return builder.toString();
+    }
 
-        String key = "yyds.x" + mtp.size();
-        mtp.put(method, key);
-        ptm.put(key, method);
-        return key;
+    public String digest(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] bs = md.digest(text.getBytes("utf-8"));
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                builder.append(Character.forDigit((bs[i] >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(bs[i] & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
+        Object event = FlightEvents.beginGeneration();
         try {
-            String pkg = name.substring(0, name.lastIndexOf('.'));
-            Method method = ptm.get(pkg);
-            byte[] bs = null;
-
-            if (name.endsWith(SUFFIX_REQUEST)) {
-                bs = dumpRequest(pkg, method);
-            } else if (name.endsWith(SUFFIX_RESPONSE)) {
-                bs = dumpResponse(pkg, method);
-            } else if (name.endsWith(SUFFIX_INVOKER)) {
-                bs = dumpInvoker(pkg, method);
-            } else if (name.endsWith(SUFFIX_PROXY)) {
-                bs = dumpProxy(Class.forName(pkg));
-            } else if (name.endsWith(SUFFIX_PROVIDER)) {
-                bs = dumpProvider(pkg, method);
-            } else if (name.endsWith(SUFFIX_VALIDATOR)) {
-                bs = dumpValidator(pkg, method);
-            } else {
-                throw new ClassNotFoundException(name);
+            String source = "precompiled";
+            byte[] bs = loadPrecompiled(name);
+
+            if (bs == null) {
+                source = "cached";
+                bs = loadCached(name);
+            }
+
+            if (bs == null) {
+                source = "generated";
+                bs = generate(name);
+                dump(name, bs);
+                cache(name, bs);
+            }
+
+            Class<?> type = defineClass(name, bs, 0, bs.length);
+            FlightEvents.commitGeneration(event, name, source, bs.length);
+            return type;
+        } catch (ClassNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ClassNotFoundException(name, e);
+        }
+
+    }
+
+    /**
+     * 生成指定类的字节码, 但不定义该类
+     * 
+     * @param name
+     * @return
+     * @throws Exception
+     */
+    public byte[] generate(String name) throws Exception {
+        int splitIndex = name.lastIndexOf('.');
+        if (splitIndex == -1) {
+            throw new ClassNotFoundException(name);
+        }
+
+        String pkg = name.substring(0, splitIndex);
+        Method method = ptm.get(pkg);
+
+        if (name.endsWith(SUFFIX_PROXY)) {
+            return dumpProxy(loadClass(pkg));
+        }
+
+        if (name.endsWith(SUFFIX_ACCESSOR)) {
+            return dumpAccessor(loadClass(pkg));
+        }
+
+        if (name.endsWith(SUFFIX_JSON_CODEC)) {
+            return dumpJsonCodec(loadClass(pkg));
+        }
+
+        if (name.endsWith(SUFFIX_BINARY_CODEC)) {
+            return dumpBinaryCodec(loadClass(pkg));
+        }
+
+        if (method == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        if (name.endsWith(SUFFIX_REQUEST)) {
+            return dumpRequest(pkg, method);
+        } else if (name.endsWith(SUFFIX_RESPONSE)) {
+            return dumpResponse(pkg, method);
+        } else if (name.endsWith(SUFFIX_INVOKER)) {
+            return dumpInvoker(pkg, method);
+        } else if (name.endsWith(SUFFIX_PROVIDER)) {
+            return dumpProvider(pkg, method);
+        } else if (name.endsWith(SUFFIX_VALIDATOR)) {
+            return dumpValidator(pkg, method);
+        }
+        throw new ClassNotFoundException(name);
+    }
+
+    /**
+     * 定义运行时才能确定内容的类(如按规则编译的类), 同名的类只定义一次
+     * 
+     * @param name 类名, 应由生成内容的摘要决定
+     * @param generator
+     * @return
+     * @throws Exception
+     */
+    public Class<?> defineIfAbsent(String name, Callable<byte[]> generator) throws Exception {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> type = findLoadedClass(name);
+            if (type == null) {
+                byte[] bs = generator.call();
+                dump(name, bs);
+                type = defineClass(name, bs, 0, bs.length);
             }
-            
-            String dumpPath = System.getProperty("awaken.dump.path");
-            if (dumpPath != null) {
-                FileOutputStream fos = null;
+            return type;
+        }
+    }
+
+    /**
+     * 生成的类能否直接引用该类型: 类型是public的, 并且从当前加载器可以解析到同一个类
+     * 
+     * @param type
+     * @return
+     */
+    public boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, this) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 生成ClassWriter, 计算栈帧时用当前加载器解析生成的类型
+     * 
+     * @return
+     */
+    public ClassWriter createClassWriter() {
+        return new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
                 try {
-                    File dir = new File(dumpPath);
-                    File classFile = new File(dir, name.replace('.', '/') + ".class");
-                    
-                    classFile.getParentFile().mkdirs();
-                    fos = new FileOutputStream(classFile);
-                    fos.write(bs);
-                } finally {
-                    if (fos != null) {
-                        fos.close();
+                    Class<?> c = Class.forName(type1.replace('/', '.'), false, Coder.this);
+                    Class<?> d = Class.forName(type2.replace('/', '.'), false, Coder.this);
+                    if (c.isAssignableFrom(d)) {
+                        return type1;
+                    }
+                    if (d.isAssignableFrom(c)) {
+                        return type2;
+                    }
+                    if (c.isInterface() || d.isInterface()) {
+                        return "java/lang/Object";
                     }
+                    do {
+                        c = c.getSuperclass();
+                    } while (!c.isAssignableFrom(d));
+                    return c.getName().replace('.', '/');
+                } catch (Exception e) {
+                    return "java/lang/Object";
+                }
+            }
+        };
+    }
+
+    /**
+     * 读取构建期由awaken-maven-plugin生成的字节码
+     * 
+     * @param name
+     * @return 不存在时返回null
+     * @throws Exception
+     */
+    protected byte[] loadPrecompiled(String name) throws Exception {
+        InputStream inputStream = getResourceAsStream(CLASSES_RESOURCE + fileNameOf(name));
+        if (inputStream == null) {
+            return null;
+        }
+        return readBytes(inputStream);
+    }
+
+    /**
+     * 读取awaken.cache.path目录中上次启动生成的字节码
+     * 
+     * @param name
+     * @return 不存在时返回null
+     * @throws Exception
+     */
+    protected byte[] loadCached(String name) throws Exception {
+        File cacheFile = cacheFile(name);
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return null;
+        }
+        return readBytes(new FileInputStream(cacheFile));
+    }
+
+    protected void cache(String name, byte[] bs) throws Exception {
+        File cacheFile = cacheFile(name);
+        if (cacheFile == null) {
+            return;
+        }
+
+        cacheFile.getParentFile().mkdirs();
+        // 先写临时文件再改名, 避免并发启动的进程读到不完整的文件
+        File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+        FileOutputStream fos = new FileOutputStream(tmpFile);
+        try {
+            fos.write(bs);
+        } finally {
+            fos.close();
+        }
+
+        if (!tmpFile.renameTo(cacheFile)) {
+            tmpFile.delete();
+        }
+    }
+
+    protected File cacheFile(String name) throws Exception {
+        if (cachePath == null) {
+            return null;
+        }
+        return new File(cachePath, fileNameOf(name));
+    }
+
+    /**
+     * 预编译类和缓存类的相对路径
+     * 
+     * @param name
+     * @return
+     * @throws Exception
+     */
+    public String fileNameOf(String name) throws Exception {
+        String fileName = name.replace('.', '/');
+        if (name.endsWith(SUFFIX_PROXY)) {
+            // 代理类的名称固定, 用接口方法的摘要区分不同版本
+            Class<?> itf = loadClass(name.substring(0, name.length() - SUFFIX_PROXY.length()));
+            StringBuilder builder = new StringBuilder();
+            for (Method method : itf.getMethods()) {
+                builder.append('|').append(signatureOf(method));
+            }
+            fileName = fileName + "-" + digest(builder.toString());
+        } else if (name.endsWith(SUFFIX_ACCESSOR) || name.endsWith(SUFFIX_JSON_CODEC) || name.endsWith(SUFFIX_BINARY_CODEC)) {
+            // 按bean生成的类名称固定, 用属性的摘要区分bean的不同版本, 属性增减或顺序变化后不会加载旧的类
+            String suffix = name.substring(name.lastIndexOf('.'));
+            Class<?> type = loadClass(name.substring(0, name.length() - suffix.length()));
+            fileName = fileName + "-" + digest(propertySignatureOf(type, suffix));
+        }
+        return fileName + ".class";
+    }
+
+    /**
+     * 影响按bean生成的类的全部信息: 生成规则版本, 属性的顺序, 名称, 泛型类型以及读写方法
+     * 
+     * @param type
+     * @param suffix
+     * @return
+     */
+    protected String propertySignatureOf(Class<?> type, String suffix) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(VERSION).append('|').append(type.getName()).append(suffix);
+        // BinaryCodec按序号写出属性, 顺序与Property.propertiesOf不同
+        List<Property> properties = SUFFIX_BINARY_CODEC.equals(suffix) ? BinaryCodecs.propertiesOf(type) : Property.propertiesOf(type);
+        for (Property property : properties) {
+            builder.append('|').append(property.getKey()).append(':').append(property.getGenericType().getTypeName());
+            if (SUFFIX_JSON_CODEC.equals(suffix)) {
+                builder.append(':').append(JsonCodecs.nameOf(type, property));
+            }
+            for (Method method : new Method[] { property.getReadMethod(), property.getWriteMethod() }) {
+                builder.append(':');
+                if (method != null) {
+                    builder.append(method.getDeclaringClass().getName()).append('#').append(method.getName()).append(Type.getMethodDescriptor(method));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private byte[] readBytes(InputStream inputStream) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            byte[] bs = new byte[4096];
+            int len = 0;
+            while ((len = inputStream.read(bs)) > -1) {
+                baos.write(bs, 0, len);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return baos.toByteArray();
+    }
+
+    protected void dump(String name, byte[] bs) throws Exception {
+        String dumpPath = System.getProperty("awaken.dump.path");
+        if (dumpPath != null) {
+            FileOutputStream fos = null;
+            try {
+                File dir = new File(dumpPath);
+                File classFile = new File(dir, name.replace('.', '/') + ".class");
+
+                classFile.getParentFile().mkdirs();
+                fos = new FileOutputStream(classFile);
+                fos.write(bs);
+            } finally {
+                if (fos != null) {
+                    fos.close();
                 }
             }
-            return defineClass(name, bs, 0, bs.length);
-        } catch (Exception e) {
-            throw new ClassNotFoundException(name, e);
         }
+    }
+
+    public String getCachePath() {
+        return cachePath;
+    }
 
+    public void setCachePath(String cachePath) {
+        this.cachePath = cachePath;
     }
 
     protected String toInternalName(String name) {
@@ -226,7 +731,7 @@ public class Coder extends ClassLoader {
         return attrs;
     }
 
-    protected void unBox(Class<?> returnType, MethodVisitor mv) {
+    public void unBox(Class<?> returnType, MethodVisitor mv) {
         if (Integer.TYPE.equals(returnType)) {
             mv.visitTypeInsn(CHECKCAST, Type.getInternalName(Integer.class));
             mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I", false);
@@ -256,7 +761,7 @@ public class Coder extends ClassLoader {
         }
     }
 
-    private void box(Class<?> type, MethodVisitor mv) {
+    public void box(Class<?> type, MethodVisitor mv) {
         if (Integer.TYPE.equals(type)) {
             mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
         } else if (Byte.TYPE.equals(type)) {
@@ -276,6 +781,49 @@ public class Coder extends ClassLoader {
         }
     }
 
+    public void pushInt(int value, MethodVisitor mv) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    public void pushClass(Class<?> type, MethodVisitor mv) {
+        if (type.isPrimitive()) {
+            mv.visitFieldInsn(GETSTATIC, Type.getInternalName(box(type)), "TYPE", "Ljava/lang/Class;");
+        } else {
+            mv.visitLdcInsn(Type.getType(type));
+        }
+    }
+
+    public Class<?> box(Class<?> type) {
+        if (Integer.TYPE.equals(type)) {
+            return Integer.class;
+        } else if (Byte.TYPE.equals(type)) {
+            return Byte.class;
+        } else if (Short.TYPE.equals(type)) {
+            return Short.class;
+        } else if (Long.TYPE.equals(type)) {
+            return Long.class;
+        } else if (Float.TYPE.equals(type)) {
+            return Float.class;
+        } else if (Double.TYPE.equals(type)) {
+            return Double.class;
+        } else if (Boolean.TYPE.equals(type)) {
+            return Boolean.class;
+        } else if (Character.TYPE.equals(type)) {
+            return Character.class;
+        } else if (Void.TYPE.equals(type)) {
+            return Void.class;
+        }
+        return type;
+    }
+
     private void buildGetSet(String typeName, ClassWriter cw, Attribute attr) {
         MethodVisitor mv;
         String fieldName = attr.getName();
@@ -343,26 +891,60 @@ public class Coder extends ClassLoader {
             buildGetSet(typeName, cw, attr);
         }
 
-        mv = cw.visitMethod(ACC_PUBLIC, "names", "()[Ljava/lang/String;", null, null);
-        mv.visitIntInsn(BIPUSH, len);
+        // 字段名只在类初始化时创建一次
+        cw.visitField(ACC_PRIVATE + ACC_STATIC + ACC_FINAL, "NAMES", "[Ljava/lang/String;", null, null).visitEnd();
+
+        mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        pushInt(len, mv);
         mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
         for (int i = 0; i < len; i++) {
             mv.visitInsn(DUP);
-            mv.visitIntInsn(BIPUSH, i);
+            pushInt(i, mv);
             mv.visitLdcInsn(attrs[i].getName());
             mv.visitInsn(AASTORE);
         }
+        mv.visitFieldInsn(PUTSTATIC, typeName, "NAMES", "[Ljava/lang/String;");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "names", "()[Ljava/lang/String;", null, null);
+        mv.visitCode();
+        mv.visitFieldInsn(GETSTATIC, typeName, "NAMES", "[Ljava/lang/String;");
         mv.visitInsn(ARETURN);
         mv.visitMaxs(0, 0);
         mv.visitEnd();
 
+        // 生成accept方法, 按字段类型回调FieldVisitor
+        String visitorTypeName = Type.getInternalName(FieldVisitor.class);
+        mv = cw.visitMethod(ACC_PUBLIC, "accept", "(L" + visitorTypeName + ";)V", null, null);
+        mv.visitCode();
+        for (int i = 0; i < len; i++) {
+            Attribute attr = attrs[i];
+            Class<?> fieldType = attr.getType();
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(attr.getName());
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, typeName, attr.getName(), attr.getDescriptor());
+            if (fieldType.isPrimitive()) {
+                mv.visitMethodInsn(INVOKEINTERFACE, visitorTypeName, "visit" + upperFirst(fieldType.getName()), "(Ljava/lang/String;" + attr.getDescriptor() + ")V", true);
+            } else {
+                mv.visitMethodInsn(INVOKEINTERFACE, visitorTypeName, "visitObject", "(Ljava/lang/String;Ljava/lang/Object;)V", true);
+            }
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
         mv = cw.visitMethod(ACC_PUBLIC, "values", "()[Ljava/lang/Object;", null, null);
-        mv.visitIntInsn(BIPUSH, len);
+        mv.visitCode();
+        pushInt(len, mv);
         mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
         for (int i = 0; i < len; i++) {
             Attribute attr = attrs[i];
             mv.visitInsn(DUP);
-            mv.visitIntInsn(BIPUSH, i);
+            pushInt(i, mv);
             mv.visitIntInsn(ALOAD, 0);
             mv.visitFieldInsn(GETFIELD, typeName, attr.getName(), attr.getDescriptor());
             box(attr.getType(), mv);
@@ -372,24 +954,120 @@ public class Coder extends ClassLoader {
         mv.visitMaxs(0, 0);
         mv.visitEnd();
 
+        visitEquals(cw, typeName, attrs);
+        visitHashCode(cw, typeName, attrs);
+
         cw.visitEnd();
         return cw.toByteArray();
     }
 
-    private byte[] dumpResponse(String pkg, Method method) throws Exception {
-        String typeName = toInternalName(pkg + SUFFIX_RESPONSE);
-        String superTypeName = Type.getInternalName(Object.class);
+    /**
+     * 生成按字段比较的equals, 数组按内容比较, 使Request可以作为缓存的键
+     */
+    private void visitEquals(ClassWriter cw, String typeName, Attribute[] attrs) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z", null, null);
+        mv.visitCode();
 
-        java.lang.reflect.Type genericReturnType = method.getGenericReturnType();
-        Class<?> returnType = method.getReturnType();
-        boolean returnVoid = Void.TYPE.equals(returnType);
+        Label notSame = new Label();
+        Label notEqual = new Label();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitJumpInsn(IF_ACMPNE, notSame);
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IRETURN);
 
-        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        MethodVisitor mv = null;
+        mv.visitLabel(notSame);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(INSTANCEOF, typeName);
+        mv.visitJumpInsn(IFEQ, notEqual);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, typeName);
+        mv.visitVarInsn(ASTORE, 2);
 
-        cw.visit(V1_8, ACC_PUBLIC, typeName, null, superTypeName, new String[] { Type.getInternalName(Bindable.class) });
+        for (Attribute attr : attrs) {
+            Class<?> fieldType = attr.getType();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, typeName, attr.getName(), attr.getDescriptor());
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitFieldInsn(GETFIELD, typeName, attr.getName(), attr.getDescriptor());
+            if (Long.TYPE.equals(fieldType)) {
+                mv.visitInsn(LCMP);
+                mv.visitJumpInsn(IFNE, notEqual);
+            } else if (Float.TYPE.equals(fieldType)) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "compare", "(FF)I", false);
+                mv.visitJumpInsn(IFNE, notEqual);
+            } else if (Double.TYPE.equals(fieldType)) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+                mv.visitJumpInsn(IFNE, notEqual);
+            } else if (fieldType.isPrimitive()) {
+                mv.visitJumpInsn(IF_ICMPNE, notEqual);
+            } else if (fieldType.isArray() && fieldType.getComponentType().isPrimitive()) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "equals", "(" + attr.getDescriptor() + attr.getDescriptor() + ")Z", false);
+                mv.visitJumpInsn(IFEQ, notEqual);
+            } else if (fieldType.isArray()) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "deepEquals", "([Ljava/lang/Object;[Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(IFEQ, notEqual);
+            } else {
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(IFEQ, notEqual);
+            }
+        }
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IRETURN);
 
-        int len = returnVoid ? 1 : 2;
+        mv.visitLabel(notEqual);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 生成与equals一致的hashCode: h = 31 * h + hash(field)
+     */
+    private void visitHashCode(ClassWriter cw, String typeName, Attribute[] attrs) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "hashCode", "()I", null, null);
+        mv.visitCode();
+        mv.visitInsn(ICONST_1);
+        for (Attribute attr : attrs) {
+            Class<?> fieldType = attr.getType();
+            mv.visitIntInsn(BIPUSH, 31);
+            mv.visitInsn(IMUL);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, typeName, attr.getName(), attr.getDescriptor());
+            if (Long.TYPE.equals(fieldType) || Float.TYPE.equals(fieldType) || Double.TYPE.equals(fieldType) || Boolean.TYPE.equals(fieldType)) {
+                mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(box(fieldType)), "hashCode", "(" + attr.getDescriptor() + ")I", false);
+            } else if (fieldType.isPrimitive()) {
+                // int, short, byte, char本身就是int
+            } else if (fieldType.isArray() && fieldType.getComponentType().isPrimitive()) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "hashCode", "(" + attr.getDescriptor() + ")I", false);
+            } else if (fieldType.isArray()) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "deepHashCode", "([Ljava/lang/Object;)I", false);
+            } else {
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Objects", "hashCode", "(Ljava/lang/Object;)I", false);
+            }
+            mv.visitInsn(IADD);
+        }
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private byte[] dumpResponse(String pkg, Method method) throws Exception {
+        String typeName = toInternalName(pkg + SUFFIX_RESPONSE);
+        String superTypeName = Type.getInternalName(Object.class);
+
+        // 异步方法的data为结果的类型
+        java.lang.reflect.Type genericReturnType = dataTypeOf(method);
+        Class<?> returnType = rawTypeOf(genericReturnType);
+        boolean returnVoid = Void.TYPE.equals(returnType);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        MethodVisitor mv = null;
+
+        cw.visit(V1_8, ACC_PUBLIC, typeName, null, superTypeName, new String[] { Type.getInternalName(Bindable.class) });
+
+        int len = returnVoid ? 1 : 2;
 
         Attribute[] attrs = new Attribute[len];
 
@@ -443,26 +1121,152 @@ public class Coder extends ClassLoader {
     }
 
     private byte[] dumpInvoker(String pkg, Method method) throws Exception {
-        Class<?> serviceType = method.getDeclaringClass();
         String typeName = toInternalName(pkg + SUFFIX_INVOKER);
-        String superTypeName = Type.getInternalName(AbstractInvoker.class);
 
-        String targetTypeName = Type.getInternalName(serviceType);
-        String targetTypeDesc = Type.getDescriptor(serviceType);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+        if (isAsync(method)) {
+            dumpAsyncInvoker(cw, typeName, pkg, method);
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        boolean batch = isBatch(method);
+        visitInvokerType(cw, typeName, pkg, method, batch ? new String[] { Type.getInternalName(BatchInvoker.class) } : null);
+
+        // 处理逻辑invoke
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        visitInvoke(typeName, pkg, method, mv);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        if (batch) {
+            visitBatch(cw, typeName, pkg, method);
+        }
 
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 生成@Batch方法的batchOf, callBatch和newResponse, 批量调用的逻辑在AbstractInvoker中
+     */
+    private void visitBatch(ClassWriter cw, String typeName, String pkg, Method method) {
         String requestTypeName = toInternalName((pkg + SUFFIX_REQUEST));
-        String requestTypeDesc = "L" + requestTypeName + ";";
+        String responseTypeName = toInternalName((pkg + SUFFIX_RESPONSE));
+        Class<?> serviceType = method.getDeclaringClass();
+        Attribute attr = toAttrs(method)[0];
 
+        MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "batchOf", "(Ljava/lang/Object;)Ljava/util/List;", "(Ljava/lang/Object;)Ljava/util/List<*>;", null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, requestTypeName);
+        mv.visitMethodInsn(INVOKEVIRTUAL, requestTypeName, "get" + upperFirst(attr.getName()), "()" + attr.getDescriptor(), false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PROTECTED, "callBatch", "(Ljava/util/List;)Ljava/util/List;", "(Ljava/util/List<Ljava/lang/Object;>;)Ljava/util/List<*>;", new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, typeName, "target", Type.getDescriptor(serviceType));
+        mv.visitVarInsn(ALOAD, 1);
+        boolean interfaceFlag = serviceType.isInterface();
+        mv.visitMethodInsn(interfaceFlag ? INVOKEINTERFACE : INVOKEVIRTUAL, Type.getInternalName(serviceType), method.getName(), Type.getMethodDescriptor(method), interfaceFlag);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PROTECTED, "newResponse", "()Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, responseTypeName);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, responseTypeName, "<init>", "()V", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 生成异步方法的Invoker: invokeAsync在结果完成后绑定Response, invoke同步等待结果
+     */
+    private void dumpAsyncInvoker(ClassWriter cw, String typeName, String pkg, Method method) {
+        String requestTypeName = toInternalName((pkg + SUFFIX_REQUEST));
         String responseTypeName = toInternalName((pkg + SUFFIX_RESPONSE));
-        String responseTypeDesc = "L" + responseTypeName + ";";
+        String stageDesc = Type.getDescriptor(CompletionStage.class);
 
-        Attribute[] attrs = toAttrs(method);
-        int len = attrs.length;
+        visitInvokerType(cw, typeName, pkg, method, new String[] { Type.getInternalName(AsyncInvoker.class) });
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "invokeAsync", "(Ljava/lang/Object;)" + stageDesc, "(Ljava/lang/Object;)Ljava/util/concurrent/CompletionStage<Ljava/lang/Object;>;", null);
+        mv.visitCode();
+
+        // 目标方法同步抛出的异常也以异常结束的结果返回
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+
+        mv.visitLabel(start);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, requestTypeName);
+        mv.visitVarInsn(ASTORE, 2);
+        mv.visitVarInsn(ALOAD, 0);
+        visitCallTarget(typeName, pkg, method, mv);
+        mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "bindAsync", "(" + stageDesc + ")" + stageDesc, false);
+        mv.visitLabel(end);
+        mv.visitInsn(ARETURN);
+
+        mv.visitLabel(handler);
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(AbstractInvoker.class), "failed", "(Ljava/lang/Throwable;)Ljava/util/concurrent/CompletableFuture;", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "invokeAsync", "(Ljava/lang/Object;)" + stageDesc, false);
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(AbstractInvoker.class), "join", "(" + stageDesc + ")Ljava/lang/Object;", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 直接创建Response, 不经过反射
+        mv = cw.visitMethod(ACC_PROTECTED, "newResponse", "()Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, responseTypeName);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, responseTypeName, "<init>", "()V", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 生成Invoker类的声明, target字段, 构造函数, setTarget, getRequestType和getResponseType方法
+     * 
+     * @param cw
+     * @param typeName
+     * @param pkg
+     * @param method
+     * @param interfaces 额外实现的接口, 可以为null
+     */
+    public void visitInvokerType(ClassWriter cw, String typeName, String pkg, Method method, String[] interfaces) {
+        Class<?> serviceType = method.getDeclaringClass();
+        String superTypeName = Type.getInternalName(AbstractInvoker.class);
+
+        String targetTypeName = Type.getInternalName(serviceType);
+        String targetTypeDesc = Type.getDescriptor(serviceType);
+
+        String requestTypeDesc = "L" + toInternalName((pkg + SUFFIX_REQUEST)) + ";";
+        String responseTypeDesc = "L" + toInternalName((pkg + SUFFIX_RESPONSE)) + ";";
 
-        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
         MethodVisitor mv = null;
 
-        cw.visit(V1_8, ACC_PUBLIC, typeName, null, superTypeName, null);
+        cw.visit(V1_8, ACC_PUBLIC, typeName, null, superTypeName, interfaces);
 
         // 生成委托字段
         cw.visitField(ACC_PRIVATE, "target", targetTypeDesc, null, null).visitEnd();
@@ -502,12 +1306,21 @@ public class Coder extends ClassLoader {
         mv.visitInsn(ARETURN);
         mv.visitMaxs(1, 1);
         mv.visitEnd();
+    }
 
-        // 处理逻辑invoke
-        Class<?> returnType = method.getReturnType();
+    /**
+     * 生成调用目标方法的指令: 参数1为Request, 使用局部变量2和3, 执行后Response在栈顶
+     * 
+     * @param typeName 所在类, 需要有类型为方法所在类的target字段
+     * @param pkg
+     * @param method
+     * @param mv
+     */
+    public void visitInvoke(String typeName, String pkg, Method method, MethodVisitor mv) {
+        String requestTypeName = toInternalName((pkg + SUFFIX_REQUEST));
+        String responseTypeName = toInternalName((pkg + SUFFIX_RESPONSE));
 
-        mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
-        mv.visitCode();
+        Class<?> returnType = method.getReturnType();
 
         mv.visitVarInsn(ALOAD, 1);
         mv.visitTypeInsn(CHECKCAST, requestTypeName);
@@ -519,30 +1332,141 @@ public class Coder extends ClassLoader {
         mv.visitVarInsn(ASTORE, 3);
 
         mv.visitVarInsn(ALOAD, 3);
+        visitCallTarget(typeName, pkg, method, mv);
+
+        if (!Void.TYPE.equals(returnType)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, responseTypeName, "setData", "(" + Type.getDescriptor(returnType) + ")V", false);
+            mv.visitVarInsn(ALOAD, 3);
+        }
+    }
+
+    /**
+     * 生成调用目标方法的指令: 局部变量2为Request, 执行后目标方法的返回值在栈顶
+     * 
+     * @param typeName 所在类, 需要有类型为方法所在类的target字段
+     * @param pkg
+     * @param method
+     * @param mv
+     */
+    public void visitCallTarget(String typeName, String pkg, Method method, MethodVisitor mv) {
+        Class<?> serviceType = method.getDeclaringClass();
+        String targetTypeName = Type.getInternalName(serviceType);
+        String targetTypeDesc = Type.getDescriptor(serviceType);
+        String requestTypeName = toInternalName((pkg + SUFFIX_REQUEST));
+
+        Attribute[] attrs = toAttrs(method);
+        int len = attrs.length;
+
         mv.visitVarInsn(ALOAD, 0);
         mv.visitFieldInsn(GETFIELD, typeName, "target", targetTypeDesc);
 
-        if (len > 0) {
-            for (int i = 0; i < len; i++) {
-                mv.visitVarInsn(ALOAD, 2);
-                mv.visitMethodInsn(INVOKEVIRTUAL, requestTypeName, "get" + upperFirst(attrs[i].getName()), "()" + attrs[i].getDescriptor(), false);
-            }
+        for (int i = 0; i < len; i++) {
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKEVIRTUAL, requestTypeName, "get" + upperFirst(attrs[i].getName()), "()" + attrs[i].getDescriptor(), false);
         }
 
         boolean interfaceFlag = serviceType.isInterface();
         mv.visitMethodInsn(interfaceFlag ? INVOKEINTERFACE : INVOKEVIRTUAL, targetTypeName, method.getName(), Type.getMethodDescriptor(method), interfaceFlag);
+    }
 
-        if (!Void.TYPE.equals(returnType)) {
-            mv.visitMethodInsn(INVOKEVIRTUAL, responseTypeName, "setData", "(" + Type.getDescriptor(returnType) + ")V", false);
-            mv.visitVarInsn(ALOAD, 3);
+    /**
+     * 生成的Request按字段的equals比较, 只有各参数都是值类型时, 内容相同的两个Request才相等.
+     * 值类型为基本类型, 枚举, 重写了equals的类, 以及元素为值类型的数组, Collection和Map
+     * 
+     * @param type 参数的泛型类型
+     * @return
+     */
+    public static boolean isValueType(java.lang.reflect.Type type) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+            if (Collection.class.isAssignableFrom(rawType) || Map.class.isAssignableFrom(rawType)) {
+                for (java.lang.reflect.Type argument : parameterizedType.getActualTypeArguments()) {
+                    if (!isValueType(argument)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return isValueType(rawType);
+        }
+        if (type instanceof java.lang.reflect.GenericArrayType) {
+            return isValueType(((java.lang.reflect.GenericArrayType) type).getGenericComponentType());
+        }
+        if (!(type instanceof Class)) {
+            return false;
         }
 
-        mv.visitInsn(ARETURN);
-        mv.visitMaxs(0, 0);
-        mv.visitEnd();
+        Class<?> clazz = (Class<?>) type;
+        if (clazz.isPrimitive() || clazz.isEnum()) {
+            return true;
+        }
+        if (clazz.isArray()) {
+            return isValueType(clazz.getComponentType());
+        }
+        // 未声明元素类型的集合无法确定
+        if (clazz.isInterface() || Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz)) {
+            return false;
+        }
+        try {
+            return clazz.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
 
-        cw.visitEnd();
-        return cw.toByteArray();
+    /**
+     * 方法是否返回CompletableFuture/CompletionStage
+     * 
+     * @param method
+     * @return
+     */
+    public static boolean isAsync(Method method) {
+        return CompletionStage.class.isAssignableFrom(method.getReturnType());
+    }
+
+    /**
+     * 方法是否标注了@Batch, 标注的方法只能有一个List参数并返回List
+     * 
+     * @param method
+     * @return
+     */
+    public static boolean isBatch(Method method) {
+        if (!method.isAnnotationPresent(Batch.class)) {
+            return false;
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length != 1 || !List.class.equals(parameterTypes[0]) || !List.class.equals(method.getReturnType())) {
+            throw new IllegalArgumentException("@Batch method must have a single List parameter and return List: " + method);
+        }
+        return true;
+    }
+
+    /**
+     * Response中data的泛型类型, 异步方法为CompletionStage的类型参数
+     * 
+     * @param method
+     * @return
+     */
+    protected java.lang.reflect.Type dataTypeOf(Method method) {
+        java.lang.reflect.Type genericReturnType = method.getGenericReturnType();
+        if (!isAsync(method)) {
+            return genericReturnType;
+        }
+        if (genericReturnType instanceof ParameterizedType) {
+            java.lang.reflect.Type argument = ((ParameterizedType) genericReturnType).getActualTypeArguments()[0];
+            if (argument instanceof Class || argument instanceof ParameterizedType) {
+                return argument;
+            }
+        }
+        return Object.class;
+    }
+
+    private static Class<?> rawTypeOf(java.lang.reflect.Type type) {
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return (Class<?>) type;
     }
 
     private byte[] dumpProxy(Class<?> itf) throws Exception {
@@ -689,6 +1613,19 @@ public class Coder extends ClassLoader {
         Class<?> returnType = method.getReturnType();
         String returnTypeDescriptor = Type.getDescriptor(returnType);
 
+        if (isAsync(method)) {
+            // 异步方法直接返回结果的CompletableFuture
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETSTATIC, typeName, "M" + methodIndex, "Ljava/lang/reflect/Method;");
+            mv.visitVarInsn(ALOAD, requestTypeAndIndex.getIndex());
+            mv.visitLdcInsn(Type.getType(responseTypeDesc));
+            mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "callAsync", "(Ljava/lang/reflect/Method;Ljava/lang/Object;Ljava/lang/Class;)Ljava/util/concurrent/CompletableFuture;", false);
+            mv.visitInsn(ARETURN);
+            mv.visitMaxs(1, 1);
+            mv.visitEnd();
+            return;
+        }
+
         mv.visitVarInsn(ALOAD, 0);
         mv.visitFieldInsn(GETSTATIC, typeName, "M" + methodIndex, "Ljava/lang/reflect/Method;");
 
@@ -851,4 +1788,575 @@ public class Coder extends ClassLoader {
         cw.visitEnd();
         return cw.toByteArray();
     }
+
+    private byte[] dumpJsonCodec(Class<?> type) throws Exception {
+        String typeName = toInternalName(type.getName() + SUFFIX_JSON_CODEC);
+        String superTypeName = Type.getInternalName(AbstractJsonCodec.class);
+        String targetTypeName = Type.getInternalName(type);
+        String readerTypeName = Type.getInternalName(JsonReader.class);
+        String writerTypeName = Type.getInternalName(JsonWriter.class);
+        String codecTypeName = Type.getInternalName(JsonCodec.class);
+
+        List<Property> properties = Property.propertiesOf(type);
+        int len = properties.size();
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        MethodVisitor mv = null;
+
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, superTypeName, null);
+
+        // 按字节比较的属性名和写出的属性名
+        cw.visitField(ACC_PRIVATE + ACC_STATIC + ACC_FINAL, "NAMES", "[[B", null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE + ACC_STATIC + ACC_FINAL, "FIELDS", "[[B", null, null).visitEnd();
+
+        mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        for (String method : new String[] { "namesOf", "fieldsOf" }) {
+            pushInt(len, mv);
+            mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+            for (int i = 0; i < len; i++) {
+                mv.visitInsn(DUP);
+                pushInt(i, mv);
+                mv.visitLdcInsn(JsonCodecs.nameOf(type, properties.get(i)));
+                mv.visitInsn(AASTORE);
+            }
+            mv.visitMethodInsn(INVOKESTATIC, superTypeName, method, "([Ljava/lang/String;)[[B", false);
+            mv.visitFieldInsn(PUTSTATIC, typeName, "namesOf".equals(method) ? "NAMES" : "FIELDS", "[[B");
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成构造函数, 属性名交给父类解析属性值的JsonCodec
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitLdcInsn(Type.getType(type));
+        pushInt(len, mv);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+        for (int i = 0; i < len; i++) {
+            mv.visitInsn(DUP);
+            pushInt(i, mv);
+            mv.visitLdcInsn(properties.get(i).getKey());
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, superTypeName, "<init>", "(Ljava/lang/Class;[Ljava/lang/String;)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成read方法, 按属性名的下标分支后直接调用setter
+        mv = cw.visitMethod(ACC_PUBLIC, "read", "(L" + readerTypeName + ";)Ljava/lang/Object;", null, new String[] { "java/io/IOException" });
+        mv.visitCode();
+
+        Label notNull = new Label();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "nextNull", "()Z", false);
+        mv.visitJumpInsn(IFEQ, notNull);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(notNull);
+
+        mv.visitTypeInsn(NEW, targetTypeName);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, targetTypeName, "<init>", "()V", false);
+        mv.visitVarInsn(ASTORE, 2);
+
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "beginObject", "()V", false);
+
+        Label loop = new Label();
+        Label end = new Label();
+        Label skip = new Label();
+        Label[] labels = newLabels(len);
+
+        mv.visitLabel(loop);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "hasNextField", "()Z", false);
+        mv.visitJumpInsn(IFEQ, end);
+
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(GETSTATIC, typeName, "NAMES", "[[B");
+        mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "nextField", "([[B)I", false);
+        if (len > 0) {
+            mv.visitTableSwitchInsn(0, len - 1, skip, labels);
+        } else {
+            mv.visitInsn(POP);
+            mv.visitJumpInsn(GOTO, skip);
+        }
+
+        for (int i = 0; i < len; i++) {
+            Property property = properties.get(i);
+            Method writeMethod = property.getWriteMethod();
+            Class<?> propertyType = property.getType();
+
+            mv.visitLabel(labels[i]);
+            if (writeMethod == null) {
+                mv.visitJumpInsn(GOTO, skip);
+                continue;
+            }
+
+            if (propertyType.isPrimitive()) {
+                // null不修改基本类型的属性
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "nextNull", "()Z", false);
+                mv.visitJumpInsn(IFNE, loop);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitVarInsn(ALOAD, 1);
+                readPrimitive(propertyType, readerTypeName, mv);
+            } else if (propertyType == String.class) {
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readString", "()Ljava/lang/String;", false);
+            } else {
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitVarInsn(ALOAD, 0);
+                pushInt(i, mv);
+                mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "codecOf", "(I)L" + codecTypeName + ";", false);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitMethodInsn(INVOKEINTERFACE, codecTypeName, "read", "(L" + readerTypeName + ";)Ljava/lang/Object;", true);
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(propertyType));
+            }
+            mv.visitMethodInsn(INVOKEVIRTUAL, targetTypeName, writeMethod.getName(), Type.getMethodDescriptor(writeMethod), false);
+            mv.visitJumpInsn(GOTO, loop);
+        }
+
+        mv.visitLabel(skip);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "skipValue", "()V", false);
+        mv.visitJumpInsn(GOTO, loop);
+
+        mv.visitLabel(end);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成write方法, 依次调用getter写出, 与Gson一样不写出null
+        mv = cw.visitMethod(ACC_PUBLIC, "write", "(L" + writerTypeName + ";Ljava/lang/Object;)V", null, new String[] { "java/io/IOException" });
+        mv.visitCode();
+
+        notNull = new Label();
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitJumpInsn(IFNONNULL, notNull);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeNull", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitLabel(notNull);
+
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitTypeInsn(CHECKCAST, targetTypeName);
+        mv.visitVarInsn(ASTORE, 3);
+
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "beginObject", "()V", false);
+
+        // 局部变量4记录是否为第一个属性
+        mv.visitInsn(ICONST_1);
+        mv.visitVarInsn(ISTORE, 4);
+
+        for (int i = 0; i < len; i++) {
+            Property property = properties.get(i);
+            Method readMethod = property.getReadMethod();
+            Class<?> propertyType = property.getType();
+
+            if (readMethod == null) {
+                continue;
+            }
+
+            if (propertyType.isPrimitive()) {
+                writeField(typeName, writerTypeName, i, mv);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 3);
+                mv.visitMethodInsn(INVOKEVIRTUAL, targetTypeName, readMethod.getName(), Type.getMethodDescriptor(readMethod), false);
+                writePrimitive(propertyType, writerTypeName, mv);
+                continue;
+            }
+
+            Label next = new Label();
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, targetTypeName, readMethod.getName(), Type.getMethodDescriptor(readMethod), false);
+            mv.visitVarInsn(ASTORE, 5);
+            mv.visitVarInsn(ALOAD, 5);
+            mv.visitJumpInsn(IFNULL, next);
+            writeField(typeName, writerTypeName, i, mv);
+            if (propertyType == String.class) {
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 5);
+                mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeString", "(Ljava/lang/String;)V", false);
+            } else {
+                mv.visitVarInsn(ALOAD, 0);
+                pushInt(i, mv);
+                mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "codecOf", "(I)L" + codecTypeName + ";", false);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 5);
+                mv.visitMethodInsn(INVOKEINTERFACE, codecTypeName, "write", "(L" + writerTypeName + ";Ljava/lang/Object;)V", true);
+            }
+            mv.visitLabel(next);
+        }
+
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "endObject", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 写出第i个属性名, 并把局部变量4置为false
+     */
+    private void writeField(String typeName, String writerTypeName, int i, MethodVisitor mv) {
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(GETSTATIC, typeName, "FIELDS", "[[B");
+        pushInt(i, mv);
+        mv.visitInsn(AALOAD);
+        mv.visitVarInsn(ILOAD, 4);
+        mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeField", "([BZ)V", false);
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, 4);
+    }
+
+    private void readPrimitive(Class<?> type, String readerTypeName, MethodVisitor mv) {
+        if (Integer.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readInt", "()I", false);
+        } else if (Long.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readLong", "()J", false);
+        } else if (Double.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readDouble", "()D", false);
+        } else if (Float.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readFloat", "()F", false);
+        } else if (Boolean.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readBoolean", "()Z", false);
+        } else if (Character.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readChar", "()C", false);
+        } else if (Short.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readInt", "()I", false);
+            mv.visitInsn(I2S);
+        } else if (Byte.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readInt", "()I", false);
+            mv.visitInsn(I2B);
+        }
+    }
+
+    private void writePrimitive(Class<?> type, String writerTypeName, MethodVisitor mv) {
+        if (Long.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeLong", "(J)V", false);
+        } else if (Double.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeDouble", "(D)V", false);
+        } else if (Float.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeFloat", "(F)V", false);
+        } else if (Boolean.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeBoolean", "(Z)V", false);
+        } else if (Character.TYPE.equals(type)) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeChar", "(C)V", false);
+        } else {
+            // int, short, byte
+            mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeInt", "(I)V", false);
+        }
+    }
+
+    private byte[] dumpBinaryCodec(Class<?> type) throws Exception {
+        String typeName = toInternalName(type.getName() + SUFFIX_BINARY_CODEC);
+        String superTypeName = Type.getInternalName(AbstractBinaryCodec.class);
+        String targetTypeName = Type.getInternalName(type);
+        String readerTypeName = Type.getInternalName(BinaryReader.class);
+        String writerTypeName = Type.getInternalName(BinaryWriter.class);
+        String codecTypeName = Type.getInternalName(BinaryCodec.class);
+
+        // 属性的序号即tableswitch的分支, 写出时为序号+1, 0表示结束
+        List<Property> properties = BinaryCodecs.propertiesOf(type);
+        int len = properties.size();
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        MethodVisitor mv = null;
+
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, superTypeName, null);
+
+        // 生成构造函数, 属性名交给父类解析属性值的BinaryCodec
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitLdcInsn(Type.getType(type));
+        pushInt(len, mv);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+        for (int i = 0; i < len; i++) {
+            mv.visitInsn(DUP);
+            pushInt(i, mv);
+            mv.visitLdcInsn(properties.get(i).getKey());
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, superTypeName, "<init>", "(Ljava/lang/Class;[Ljava/lang/String;)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成read方法, 按序号分支后直接调用setter
+        mv = cw.visitMethod(ACC_PUBLIC, "read", "(L" + readerTypeName + ";)Ljava/lang/Object;", null, new String[] { "java/io/IOException" });
+        mv.visitCode();
+
+        mv.visitTypeInsn(NEW, targetTypeName);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, targetTypeName, "<init>", "()V", false);
+        mv.visitVarInsn(ASTORE, 2);
+
+        Label loop = new Label();
+        Label end = new Label();
+        Label unknown = new Label();
+        Label[] labels = newLabels(len);
+
+        mv.visitLabel(loop);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readVarint", "()I", false);
+        mv.visitVarInsn(ISTORE, 3);
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitJumpInsn(IFEQ, end);
+
+        if (len > 0) {
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(ISUB);
+            mv.visitTableSwitchInsn(0, len - 1, unknown, labels);
+        } else {
+            mv.visitJumpInsn(GOTO, unknown);
+        }
+
+        for (int i = 0; i < len; i++) {
+            Property property = properties.get(i);
+            Method writeMethod = property.getWriteMethod();
+            Class<?> propertyType = property.getType();
+
+            mv.visitLabel(labels[i]);
+            if (writeMethod != null) {
+                mv.visitVarInsn(ALOAD, 2);
+            }
+
+            mv.visitVarInsn(ALOAD, 1);
+            if (propertyType.isPrimitive()) {
+                String desc = Type.getDescriptor(propertyType);
+                mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "read" + upperFirst(propertyType.getName()), "()" + desc, false);
+            } else if (propertyType == String.class) {
+                mv.visitMethodInsn(INVOKEVIRTUAL, readerTypeName, "readString", "()Ljava/lang/String;", false);
+            } else {
+                mv.visitVarInsn(ALOAD, 0);
+                pushInt(i, mv);
+                mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "codecOf", "(I)L" + codecTypeName + ";", false);
+                mv.visitInsn(SWAP);
+                mv.visitMethodInsn(INVOKEINTERFACE, codecTypeName, "read", "(L" + readerTypeName + ";)Ljava/lang/Object;", true);
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(propertyType));
+            }
+
+            if (writeMethod != null) {
+                mv.visitMethodInsn(INVOKEVIRTUAL, targetTypeName, writeMethod.getName(), Type.getMethodDescriptor(writeMethod), false);
+            } else {
+                // 没有setter时读取后丢弃
+                mv.visitInsn(Long.TYPE.equals(propertyType) || Double.TYPE.equals(propertyType) ? POP2 : POP);
+            }
+            mv.visitJumpInsn(GOTO, loop);
+        }
+
+        mv.visitLabel(unknown);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "unknownField", "(I)L" + Type.getInternalName(BinaryException.class) + ";", false);
+        mv.visitInsn(ATHROW);
+
+        mv.visitLabel(end);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成write方法, 跳过null和为0的整数
+        mv = cw.visitMethod(ACC_PUBLIC, "write", "(L" + writerTypeName + ";Ljava/lang/Object;)V", null, new String[] { "java/io/IOException" });
+        mv.visitCode();
+
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitTypeInsn(CHECKCAST, targetTypeName);
+        mv.visitVarInsn(ASTORE, 3);
+
+        for (int i = 0; i < len; i++) {
+            Property property = properties.get(i);
+            Method readMethod = property.getReadMethod();
+            Class<?> propertyType = property.getType();
+
+            if (readMethod == null) {
+                continue;
+            }
+
+            Label next = new Label();
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, targetTypeName, readMethod.getName(), Type.getMethodDescriptor(readMethod), false);
+
+            if (propertyType.isPrimitive()) {
+                String desc = Type.getDescriptor(propertyType);
+                if (Long.TYPE.equals(propertyType)) {
+                    mv.visitVarInsn(LSTORE, 4);
+                    mv.visitVarInsn(LLOAD, 4);
+                    mv.visitInsn(LCONST_0);
+                    mv.visitInsn(LCMP);
+                    mv.visitJumpInsn(IFEQ, next);
+                } else if (Double.TYPE.equals(propertyType)) {
+                    mv.visitVarInsn(DSTORE, 4);
+                } else if (Float.TYPE.equals(propertyType)) {
+                    mv.visitVarInsn(FSTORE, 4);
+                } else {
+                    mv.visitVarInsn(ISTORE, 4);
+                    mv.visitVarInsn(ILOAD, 4);
+                    mv.visitJumpInsn(IFEQ, next);
+                }
+                writeTag(writerTypeName, i, mv);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(Type.getType(propertyType).getOpcode(ILOAD), 4);
+                mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "write" + upperFirst(propertyType.getName()), "(" + desc + ")V", false);
+            } else {
+                mv.visitVarInsn(ASTORE, 4);
+                mv.visitVarInsn(ALOAD, 4);
+                mv.visitJumpInsn(IFNULL, next);
+                writeTag(writerTypeName, i, mv);
+                if (propertyType == String.class) {
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitVarInsn(ALOAD, 4);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeString", "(Ljava/lang/String;)V", false);
+                } else {
+                    mv.visitVarInsn(ALOAD, 0);
+                    pushInt(i, mv);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "codecOf", "(I)L" + codecTypeName + ";", false);
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitVarInsn(ALOAD, 4);
+                    mv.visitMethodInsn(INVOKEINTERFACE, codecTypeName, "write", "(L" + writerTypeName + ";Ljava/lang/Object;)V", true);
+                }
+            }
+            mv.visitLabel(next);
+        }
+
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitInsn(ICONST_0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeVarint", "(I)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 写出第i个属性的序号
+     */
+    private void writeTag(String writerTypeName, int i, MethodVisitor mv) {
+        mv.visitVarInsn(ALOAD, 1);
+        pushInt(i + 1, mv);
+        mv.visitMethodInsn(INVOKEVIRTUAL, writerTypeName, "writeVarint", "(I)V", false);
+    }
+
+    private byte[] dumpAccessor(Class<?> type) throws Exception {
+        String typeName = toInternalName(type.getName() + SUFFIX_ACCESSOR);
+        String superTypeName = Type.getInternalName(AbstractAccessor.class);
+        String targetTypeName = Type.getInternalName(type);
+        boolean interfaceFlag = type.isInterface();
+
+        List<Property> properties = Property.propertiesOf(type);
+        int len = properties.size();
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        MethodVisitor mv = null;
+
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, superTypeName, null);
+
+        // 生成构造函数, 属性名和类型交给父类保存
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+
+        pushInt(len, mv);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+        for (int i = 0; i < len; i++) {
+            mv.visitInsn(DUP);
+            pushInt(i, mv);
+            mv.visitLdcInsn(properties.get(i).getKey());
+            mv.visitInsn(AASTORE);
+        }
+
+        pushInt(len, mv);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Class");
+        for (int i = 0; i < len; i++) {
+            mv.visitInsn(DUP);
+            pushInt(i, mv);
+            pushClass(properties.get(i).getType(), mv);
+            mv.visitInsn(AASTORE);
+        }
+
+        mv.visitMethodInsn(INVOKESPECIAL, superTypeName, "<init>", "([Ljava/lang/String;[Ljava/lang/Class;)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成get方法, 按下标分支后直接调用getter
+        mv = cw.visitMethod(ACC_PUBLIC, "get", "(Ljava/lang/Object;I)Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        Label[] labels = newLabels(len);
+        Label defaultLabel = new Label();
+        if (len > 0) {
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitTableSwitchInsn(0, len - 1, defaultLabel, labels);
+        }
+        for (int i = 0; i < len; i++) {
+            Method readMethod = properties.get(i).getReadMethod();
+            mv.visitLabel(labels[i]);
+            if (readMethod == null) {
+                mv.visitInsn(ACONST_NULL);
+            } else {
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitTypeInsn(CHECKCAST, targetTypeName);
+                mv.visitMethodInsn(interfaceFlag ? INVOKEINTERFACE : INVOKEVIRTUAL, targetTypeName, readMethod.getName(), Type.getMethodDescriptor(readMethod), interfaceFlag);
+                box(readMethod.getReturnType(), mv);
+            }
+            mv.visitInsn(ARETURN);
+        }
+        mv.visitLabel(defaultLabel);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // 生成set方法, 按下标分支后直接调用setter
+        mv = cw.visitMethod(ACC_PUBLIC, "set", "(Ljava/lang/Object;ILjava/lang/Object;)V", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        labels = newLabels(len);
+        defaultLabel = new Label();
+        if (len > 0) {
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitTableSwitchInsn(0, len - 1, defaultLabel, labels);
+        }
+        for (int i = 0; i < len; i++) {
+            Method writeMethod = properties.get(i).getWriteMethod();
+            mv.visitLabel(labels[i]);
+            if (writeMethod != null) {
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitTypeInsn(CHECKCAST, targetTypeName);
+                mv.visitVarInsn(ALOAD, 3);
+                unBox(writeMethod.getParameterTypes()[0], mv);
+                mv.visitMethodInsn(interfaceFlag ? INVOKEINTERFACE : INVOKEVIRTUAL, targetTypeName, writeMethod.getName(), Type.getMethodDescriptor(writeMethod), interfaceFlag);
+            }
+            mv.visitInsn(RETURN);
+        }
+        mv.visitLabel(defaultLabel);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private Label[] newLabels(int len) {
+        Label[] labels = new Label[len];
+        for (int i = 0; i < len; i++) {
+            labels[i] = new Label();
+        }
+        return labels;
+    }
 }
@@ -0,0 +1,182 @@
+package io.github.caseforge.awaken.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的AIMD并发限制: 延迟超过最小延迟的tolerance倍或调用失败(如下游超时)时按backoff缩小上限,
+ * 否则在并发用到上限一半以上时加1. 最小延迟取最近一个窗口(probeInterval次调用)内的最小值, 以适应下游的变化.
+ * 失败的调用不参与采样, 否则快速失败的调用会拉低最小延迟, 使正常调用都被当作变慢
+ */
+public class ConcurrencyLimiter {
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final AtomicInteger limit = new AtomicInteger(20);
+
+    private int initialLimit = 20;
+
+    private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * 当前窗口内的最小延迟, 窗口结束时成为新的minRtt
+     */
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong samples = new AtomicLong();
+
+    private int minLimit = 1;
+
+    private int maxLimit = 1000;
+
+    private double backoff = 0.9;
+
+    private double tolerance = 2.0;
+
+    private int probeInterval = 1000;
+
+    /**
+     * 并发未达到上限时占用一个位置
+     * 
+     * @return 是否占用成功
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 调用成功, 释放位置并按本次延迟调整上限
+     * 
+     * @param rtt 本次调用的纳秒数
+     */
+    public void release(long rtt) {
+        int current = inflight.getAndDecrement();
+
+        lower(windowMinRtt, rtt);
+        if (samples.incrementAndGet() % probeInterval == 0) {
+            // 用整个窗口的最小值替换, 而不是窗口末尾的一个样本, 过载时的个别样本不会抬高基准
+            minRtt.set(windowMinRtt.getAndSet(Long.MAX_VALUE));
+        }
+        lower(minRtt, rtt);
+        long min = minRtt.get();
+
+        if (min != Long.MAX_VALUE && rtt > min * tolerance) {
+            decrease();
+        } else if (current * 2 >= limit.get()) {
+            for (;;) {
+                int oldLimit = limit.get();
+                int newLimit = Math.min(maxLimit, oldLimit + 1);
+                if (newLimit == oldLimit || limit.compareAndSet(oldLimit, newLimit)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 调用失败(如下游超时或异常), 释放位置并按backoff缩小上限, 不作为延迟样本
+     */
+    public void drop() {
+        inflight.decrementAndGet();
+        decrease();
+    }
+
+    /**
+     * 本地快速拒绝(如校验失败), 只释放位置, 既不采样也不调整上限
+     */
+    public void ignore() {
+        inflight.decrementAndGet();
+    }
+
+    private void decrease() {
+        for (;;) {
+            int oldLimit = limit.get();
+            int newLimit = Math.max(minLimit, (int) (oldLimit * backoff));
+            if (newLimit == oldLimit || limit.compareAndSet(oldLimit, newLimit)) {
+                return;
+            }
+        }
+    }
+
+    private static void lower(AtomicLong value, long rtt) {
+        long current = value.get();
+        while (rtt < current && !value.compareAndSet(current, rtt)) {
+            current = value.get();
+        }
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+        resetLimit();
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+        resetLimit();
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+        resetLimit();
+    }
+
+    /**
+     * 初始上限限制在[minLimit, maxLimit]内, 与设置的顺序无关
+     */
+    private void resetLimit() {
+        limit.set(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+    }
+
+    public double getBackoff() {
+        return backoff;
+    }
+
+    public void setBackoff(double backoff) {
+        this.backoff = backoff;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public int getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(int probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+}
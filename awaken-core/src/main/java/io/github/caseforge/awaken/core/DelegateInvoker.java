@@ -1,8 +1,15 @@
 package io.github.caseforge.awaken.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import io.github.caseforge.awaken.AsyncInvoker;
+import io.github.caseforge.awaken.BatchInvoker;
 import io.github.caseforge.awaken.Invoker;
 
-public class DelegateInvoker implements Invoker {
+public class DelegateInvoker implements AsyncInvoker, BatchInvoker {
 
     private Invoker delegate;
     
@@ -22,6 +29,34 @@ public class DelegateInvoker implements Invoker {
         return delegate.invoke(input);
     }
 
+    /**
+     * 委托的Invoker不是异步时, 在当前线程执行后返回已完成的结果
+     */
+    public CompletionStage<Object> invokeAsync(Object input) {
+        if (delegate instanceof AsyncInvoker) {
+            return ((AsyncInvoker) delegate).invokeAsync(input);
+        }
+        try {
+            return CompletableFuture.completedFuture(delegate.invoke(input));
+        } catch (Throwable e) {
+            return AbstractInvoker.failed(e);
+        }
+    }
+
+    /**
+     * 委托的Invoker不支持批量时逐个调用
+     */
+    public List<Object> invokeBatch(List<?> inputs) throws Exception {
+        if (delegate instanceof BatchInvoker) {
+            return ((BatchInvoker) delegate).invokeBatch(inputs);
+        }
+        List<Object> results = new ArrayList<Object>(inputs.size());
+        for (Object input : inputs) {
+            results.add(delegate.invoke(input));
+        }
+        return results;
+    }
+
     public Invoker getDelegate() {
         return delegate;
     }
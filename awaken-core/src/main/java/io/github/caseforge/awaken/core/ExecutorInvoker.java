@@ -0,0 +1,125 @@
+package io.github.caseforge.awaken.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.github.caseforge.awaken.AsyncInvoker;
+import io.github.caseforge.awaken.Context;
+import io.github.caseforge.awaken.Invoker;
+
+/**
+ * invoke, invokeBatch和invokeAsync都在指定的Executor(如虚拟线程)中执行, 调用方的上下文以副本传递到执行线程.
+ * 同步调用时调用线程等待执行完成, 执行线程中对上下文的修改再复制回调用线程;
+ * 已在Executor的线程中执行的嵌套同步调用直接在当前线程执行, 不会因等待同一个Executor而死锁
+ */
+public class ExecutorInvoker extends DelegateInvoker {
+
+    /**
+     * 当前线程是否正在执行由ExecutorInvoker分派的任务
+     */
+    private static final ThreadLocal<Boolean> DISPATCHED = new ThreadLocal<Boolean>();
+
+    private Executor executor;
+
+    @Override
+    public Object invoke(Object input) throws Exception {
+        if (DISPATCHED.get() != null) {
+            return super.invoke(input);
+        }
+        return dispatch(() -> super.invoke(input));
+    }
+
+    @Override
+    public List<Object> invokeBatch(List<?> inputs) throws Exception {
+        if (DISPATCHED.get() != null) {
+            return super.invokeBatch(inputs);
+        }
+        return dispatch(() -> super.invokeBatch(inputs));
+    }
+
+    /**
+     * 在Executor中执行并等待结果, 执行结束时的上下文替换调用线程的上下文
+     */
+    private <T> T dispatch(Callable<T> callable) throws Exception {
+        Map<String, Object> snapshot = Context.snapshot();
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] result = new Map[1];
+        executor.execute(() -> {
+            DISPATCHED.set(Boolean.TRUE);
+            try {
+                future.complete(Context.call(snapshot, () -> {
+                    try {
+                        return callable.call();
+                    } finally {
+                        result[0] = Context.snapshot();
+                    }
+                }));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                DISPATCHED.remove();
+            }
+        });
+
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw AbstractInvoker.unwrap(e);
+        } finally {
+            // future完成前已写入result
+            if (result[0] != null) {
+                Context.clear();
+                for (Map.Entry<String, Object> entry : result[0].entrySet()) {
+                    Context.set(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletionStage<Object> invokeAsync(Object input) {
+        Invoker delegate = getDelegate();
+        Map<String, Object> snapshot = Context.snapshot();
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        try {
+            executor.execute(() -> {
+                DISPATCHED.set(Boolean.TRUE);
+                try {
+                    if (delegate instanceof AsyncInvoker) {
+                        Context.call(snapshot, () -> ((AsyncInvoker) delegate).invokeAsync(input)).whenComplete((result, e) -> {
+                            if (e != null) {
+                                future.completeExceptionally(e);
+                            } else {
+                                future.complete(result);
+                            }
+                        });
+                    } else {
+                        future.complete(Context.call(snapshot, () -> delegate.invoke(input)));
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    DISPATCHED.remove();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.github.caseforge.awaken.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import io.github.caseforge.awaken.jfr.FlightEvents;
+import io.github.caseforge.awaken.validation.ValidationException;
+
+/**
+ * 为合并生成的Invoker提交JFR调用事件. 赋值, 校验, 调用和掩码在同一个方法中执行, 整个耗时记在invoke阶段.
+ * 抛出ValidationException时提交一次校验失败事件. 事件未开启时只多一次判断
+ */
+public class FusedEventInvoker extends DelegateInvoker {
+
+    private String id;
+
+    @Override
+    public Object invoke(Object input) throws Exception {
+        Object event = FlightEvents.beginInvocation();
+        long start = event == null ? 0 : System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = super.invoke(input);
+            success = true;
+            return result;
+        } catch (ValidationException e) {
+            FlightEvents.validationFailed(e.getMessage());
+            throw e;
+        } finally {
+            if (event != null) {
+                FlightEvents.commitInvocation(event, id, 0, 0, System.nanoTime() - start, 0, success);
+            }
+        }
+    }
+
+    /**
+     * 合并的Invoker不是异步的, 在当前线程执行
+     */
+    @Override
+    public CompletionStage<Object> invokeAsync(Object input) {
+        try {
+            return CompletableFuture.completedFuture(invoke(input));
+        } catch (Throwable e) {
+            return AbstractInvoker.failed(e);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.github.caseforge.awaken.core;
+
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PRIVATE;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PUBLIC;
+import static io.github.caseforge.awaken.asm.Opcodes.ALOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.ARETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.ASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKESPECIAL;
+
+import java.lang.reflect.Method;
+
+import io.github.caseforge.awaken.asm.ClassWriter;
+import io.github.caseforge.awaken.asm.MethodVisitor;
+import io.github.caseforge.awaken.asm.Type;
+import io.github.caseforge.awaken.assignment.Assignment;
+import io.github.caseforge.awaken.assignment.AssignmentCompiler;
+import io.github.caseforge.awaken.validation.Validation;
+import io.github.caseforge.awaken.validation.ValidationCompiler;
+
+/**
+ * 为每条规则生成一个Invoker类, 在同一个invoke方法中依次执行赋值, 校验, 调用目标方法和掩码,
+ * 代替DelegateInvoker/VerifyableInvoker的多层委托
+ */
+public class InvokerCompiler {
+
+    /**
+     *
+     * @param method 服务方法
+     * @param assignment 可以为null
+     * @param validation 可以为null
+     * @param mask 可以为null
+     * @param coder
+     * @return 未设置target的Invoker
+     * @throws Exception
+     */
+    public static AbstractInvoker compile(Method method, Assignment assignment, Validation validation, Assignment mask, Coder coder) throws Exception {
+        String pkg = coder.pkgOf(method);
+        Class<?> requestType = coder.getRequestType(method);
+        Class<?> responseType = coder.getResponseType(method);
+
+        StringBuilder text = new StringBuilder();
+        text.append(assignment == null ? "-" : AssignmentCompiler.describe(assignment, requestType)).append('|');
+        text.append(validation == null ? "-" : ValidationCompiler.describe(validation, requestType)).append('|');
+        text.append(mask == null ? "-" : AssignmentCompiler.describe(mask, responseType));
+
+        String name = pkg + Coder.SUFFIX_INVOKER + Coder.SUFFIX_RULE + coder.digest(text.toString());
+        String typeName = name.replace('.', '/');
+        RefTable refs = new RefTable(typeName);
+
+        // 引用的对象在生成字节码时收集, 所以类已定义过时也要重新生成一次
+        ClassWriter cw = coder.createClassWriter();
+        coder.visitInvokerType(cw, typeName, pkg, method, new String[] { Type.getInternalName(Referable.class) });
+
+        if (assignment != null) {
+            new AssignmentCompiler(coder, refs, "a").compile(cw, ACC_PRIVATE, "assign", assignment, requestType);
+        }
+        if (validation != null) {
+            new ValidationCompiler(coder, refs, "v").compile(cw, ACC_PRIVATE, "validate", validation, requestType);
+        }
+        if (mask != null) {
+            new AssignmentCompiler(coder, refs, "m").compile(cw, ACC_PRIVATE, "mask", mask, responseType);
+        }
+
+        // 生成invoke方法
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+        if (assignment != null) {
+            invokePrivate(typeName, "assign", 1, mv);
+        }
+        if (validation != null) {
+            invokePrivate(typeName, "validate", 1, mv);
+        }
+        coder.visitInvoke(typeName, pkg, method, mv);
+        if (mask != null) {
+            mv.visitVarInsn(ASTORE, 4);
+            invokePrivate(typeName, "mask", 4, mv);
+            mv.visitVarInsn(ALOAD, 4);
+        }
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        refs.emit(cw, coder);
+        cw.visitEnd();
+        final byte[] bs = cw.toByteArray();
+
+        Class<?> compiledType = coder.defineIfAbsent(name, () -> bs);
+        AbstractInvoker invoker = (AbstractInvoker) compiledType.getDeclaredConstructor().newInstance();
+        ((Referable) invoker).setRefer(refs.values());
+        return invoker;
+    }
+
+    private static void invokePrivate(String typeName, String methodName, int slot, MethodVisitor mv) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, slot);
+        mv.visitMethodInsn(INVOKESPECIAL, typeName, methodName, "(Ljava/lang/Object;)V", false);
+    }
+
+}
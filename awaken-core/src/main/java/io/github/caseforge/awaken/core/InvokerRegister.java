@@ -1,8 +1,15 @@
 package io.github.caseforge.awaken.core;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -10,10 +17,19 @@ import com.google.gson.JsonObject;
 
 import io.github.caseforge.awaken.Invoker;
 import io.github.caseforge.awaken.ResourceProvider;
+import io.github.caseforge.awaken.assignment.AbstractNode;
 import io.github.caseforge.awaken.assignment.Assignment;
 import io.github.caseforge.awaken.assignment.AssignmentBuilder;
+import io.github.caseforge.awaken.assignment.AssignmentCompiler;
+import io.github.caseforge.awaken.assignment.Node;
+import io.github.caseforge.awaken.cache.CachingProvider;
+import io.github.caseforge.awaken.cache.TinyLfuCache;
+import io.github.caseforge.awaken.jfr.FlightEvents;
+import io.github.caseforge.awaken.metrics.InvokerMetrics;
+import io.github.caseforge.awaken.metrics.MetricsRegistry;
 import io.github.caseforge.awaken.validation.Validation;
 import io.github.caseforge.awaken.validation.ValidationBuilder;
+import io.github.caseforge.awaken.validation.ValidationCompiler;
 
 public class InvokerRegister {
 
@@ -25,64 +41,358 @@ public class InvokerRegister {
 
     private Gson gson = new Gson();
 
-    public void regist(String uri, Method method) throws Exception {
-        JsonObject publishConfig = loadPublishConfig(uri);
-        
-        if (publishConfig == null) {
+    /**
+     * 已注册的uri和对应的方法, 重新加载规则时使用
+     */
+    private Map<String, Method> methodMap = new HashMap<String, Method>();
+
+    /**
+     * 最近一次读取的规则文件内容
+     */
+    private Map<String, byte[]> resourceMap = new HashMap<String, byte[]>();
+
+    /**
+     * 每条规则的配置, 键为 uri@rule
+     */
+    private Map<String, JsonObject> ruleMap = new HashMap<String, JsonObject>();
+
+    /**
+     * 是否把assignment, validation和mask规则编译为字节码, 默认使用规则树解释执行
+     */
+    private boolean compile;
+
+    /**
+     * 是否为每条规则生成一个合并了赋值, 校验, 调用和掩码的Invoker类, 异步方法不合并
+     */
+    private boolean fuse;
+
+    /**
+     * 不为null时invoke, invokeBatch和invokeAsync都在该Executor中执行
+     */
+    private Executor executor;
+
+    /**
+     * 不为null时记录每条规则各阶段的耗时
+     */
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * 规则配置了parallelThreshold时*节点并行赋值和校验使用的线程池, 为null时使用ForkJoinPool.commonPool()
+     */
+    private ForkJoinPool forkJoinPool;
+
+    /**
+     * 赋值规则中配置了cache的Provider, 以配置为键在所有规则间共用
+     */
+    private Map<String, CachingProvider> providerCaches = new ConcurrentHashMap<String, CachingProvider>();
+
+    public synchronized void regist(String uri, Method method) throws Exception {
+        byte[] resource = resourceProvider.getResource(pathOf(uri));
+        methodMap.put(uri, method);
+        resourceMap.put(uri, resource);
+
+        if (resource == null) {
             return;
         }
-        
-        Set<String> rules = publishConfig.keySet();
-        Class<?> invokerType = coder.getInvokerType(method);
-        
-        for (String rule : rules) {
+
+        JsonObject publishConfig = parse(resource);
+        for (String rule : publishConfig.keySet()) {
             JsonObject ruleJsonObject = publishConfig.get(rule).getAsJsonObject();
-            String beanName = ruleJsonObject.get("beanName").getAsString();
-            Object target = resourceProvider.getBean(beanName);
-            if (target == null) {
-                throw new Exception("error in file /rules" + uri + ".json no bean found for name " + beanName);
+            String id = uri + "@" + rule;
+            invokerMap.put(id, build(uri, id, method, ruleJsonObject));
+            ruleMap.put(id, ruleJsonObject);
+        }
+    }
+
+    /**
+     * 重新读取已注册uri的规则文件, 只重建内容发生变化的规则, 未变化的规则保留原来的Invoker实例.
+     * 所有规则构建成功后才替换invokerMap, 构建失败时保留原来的规则
+     * 
+     * @return 是否有规则发生变化
+     * @throws Exception
+     */
+    public synchronized boolean reload() throws Exception {
+        Map<String, Invoker> newInvokerMap = null;
+        Map<String, JsonObject> newRuleMap = null;
+        Map<String, byte[]> changedResourceMap = new HashMap<String, byte[]>();
+
+        for (Map.Entry<String, Method> entry : methodMap.entrySet()) {
+            String uri = entry.getKey();
+            byte[] resource = resourceProvider.getResource(pathOf(uri));
+            if (Arrays.equals(resource, resourceMap.get(uri))) {
+                continue;
+            }
+
+            if (newInvokerMap == null) {
+                newInvokerMap = new HashMap<String, Invoker>(invokerMap);
+                newRuleMap = new HashMap<String, JsonObject>(ruleMap);
+            }
+            changedResourceMap.put(uri, resource);
+
+            // 移除该uri原有的规则
+            String prefix = uri + "@";
+            newInvokerMap.keySet().removeIf(id -> id.startsWith(prefix));
+            newRuleMap.keySet().removeIf(id -> id.startsWith(prefix));
+
+            if (resource == null) {
+                continue;
+            }
+
+            JsonObject publishConfig = parse(resource);
+            for (String rule : publishConfig.keySet()) {
+                JsonObject ruleJsonObject = publishConfig.get(rule).getAsJsonObject();
+                String id = prefix + rule;
+                Invoker invoker = invokerMap.get(id);
+                if (invoker == null || !ruleJsonObject.equals(ruleMap.get(id))) {
+                    try {
+                        invoker = build(uri, id, entry.getValue(), ruleJsonObject);
+                    } catch (Exception e) {
+                        // 构建失败时保留原来的规则, 移除已为新规则创建的缓存
+                        pruneProviderCaches();
+                        throw e;
+                    }
+                }
+                newInvokerMap.put(id, invoker);
+                newRuleMap.put(id, ruleJsonObject);
+            }
+        }
+
+        if (newInvokerMap == null) {
+            return false;
+        }
+
+        invokerMap = newInvokerMap;
+        ruleMap = newRuleMap;
+        resourceMap.putAll(changedResourceMap);
+        pruneProviderCaches();
+        return true;
+    }
+
+    /**
+     * 移除不再被任何规则使用的Provider缓存
+     */
+    private void pruneProviderCaches() {
+        Set<String> keys = new HashSet<String>();
+        for (JsonObject ruleJsonObject : ruleMap.values()) {
+            addProviderCacheKeys(ruleJsonObject.get("assignment"), keys);
+            addProviderCacheKeys(ruleJsonObject.get("mask"), keys);
+        }
+        providerCaches.keySet().retainAll(keys);
+    }
+
+    /**
+     * 与AssignmentBuilder一致, 以带cache的Provider配置的JSON文本为键
+     */
+    private void addProviderCacheKeys(JsonElement jsonElement, Set<String> keys) {
+        if (jsonElement == null || !jsonElement.isJsonObject()) {
+            return;
+        }
+        for (Map.Entry<String, JsonElement> entry : jsonElement.getAsJsonObject().entrySet()) {
+            JsonElement value = entry.getValue();
+            if (value.isJsonObject() && value.getAsJsonObject().has("cache")) {
+                keys.add(value.toString());
             }
-            AbstractInvoker invoker = (AbstractInvoker) invokerType.getDeclaredConstructor().newInstance();
-            invoker.setTarget(target);
-            Invoker wrapInvoker = wrap(invoker, ruleJsonObject);
-            invokerMap.put(uri + "@" + rule, wrapInvoker);
         }
-        
     }
-    
-    private Invoker wrap(Invoker invoker, JsonObject jsonObject) throws Exception {
+
+    private Invoker build(String uri, String id, Method method, JsonObject ruleJsonObject) throws Exception {
+        String beanName = ruleJsonObject.get("beanName").getAsString();
+        Object target = resourceProvider.getBean(beanName);
+        if (target == null) {
+            throw new Exception("error in file " + pathOf(uri) + " no bean found for name " + beanName);
+        }
+        if (ruleJsonObject.has("cache") || ruleJsonObject.has("coalesce")) {
+            checkValueTypes(uri, method);
+        }
+        Invoker invoker = null;
+        if (fuse && !Coder.isAsync(method) && !Coder.isBatch(method)) {
+            invoker = fuse(method, target, ruleJsonObject);
+            if (invoker != null && FlightEvents.isSupported()) {
+                FusedEventInvoker eventInvoker = new FusedEventInvoker();
+                eventInvoker.setId(id);
+                eventInvoker.setDelegate(invoker);
+                invoker = eventInvoker;
+            }
+        }
+        if (invoker == null) {
+            AbstractInvoker abstractInvoker = (AbstractInvoker) coder.getInvokerType(method).getDeclaredConstructor().newInstance();
+            abstractInvoker.setTarget(target);
+            invoker = wrap(abstractInvoker, id, ruleJsonObject);
+        }
+
+        if (executor != null) {
+            ExecutorInvoker executorInvoker = new ExecutorInvoker();
+            executorInvoker.setDelegate(invoker);
+            executorInvoker.setExecutor(executor);
+            invoker = executorInvoker;
+        }
+        return limit(invoker, ruleJsonObject.get("concurrency"));
+    }
+
+    /**
+     * cache和coalesce以Request为键, 参数不是值类型时内容相同的请求也不相等, 缓存永远不会命中
+     */
+    private void checkValueTypes(String uri, Method method) throws Exception {
+        Parameter[] parameters = method.getParameters();
+        for (Parameter parameter : parameters) {
+            if (!Coder.isValueType(parameter.getParameterizedType())) {
+                throw new Exception("error in file " + pathOf(uri) + " cache and coalesce require value-typed parameters, but " + parameter.getName() + " of " + method + " has no equals");
+            }
+        }
+    }
+
+    /**
+     * 按concurrency配置在最外层限制并发, 被拒绝的请求不会执行赋值和校验
+     */
+    private Invoker limit(Invoker invoker, JsonElement jsonElement) {
+        if (jsonElement == null || jsonElement.isJsonNull()) {
+            return invoker;
+        }
+        JsonObject jsonObject = jsonElement.getAsJsonObject();
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        if (jsonObject.has("initialLimit")) {
+            limiter.setInitialLimit(jsonObject.get("initialLimit").getAsInt());
+        }
+        if (jsonObject.has("minLimit")) {
+            limiter.setMinLimit(jsonObject.get("minLimit").getAsInt());
+        }
+        if (jsonObject.has("maxLimit")) {
+            limiter.setMaxLimit(jsonObject.get("maxLimit").getAsInt());
+        }
+        if (jsonObject.has("backoff")) {
+            limiter.setBackoff(jsonObject.get("backoff").getAsDouble());
+        }
+        if (jsonObject.has("tolerance")) {
+            limiter.setTolerance(jsonObject.get("tolerance").getAsDouble());
+        }
+        if (jsonObject.has("probeInterval")) {
+            limiter.setProbeInterval(jsonObject.get("probeInterval").getAsInt());
+        }
+
+        LimitedInvoker limitedInvoker = new LimitedInvoker();
+        limitedInvoker.setDelegate(invoker);
+        limitedInvoker.setLimiter(limiter);
+        if (jsonObject.has("code")) {
+            limitedInvoker.setCode(jsonObject.get("code").getAsInt());
+        }
+        if (jsonObject.has("msg")) {
+            limitedInvoker.setMsg(jsonObject.get("msg").getAsString());
+        }
+        return limitedInvoker;
+    }
+
+    /**
+     * 注册完成后生成不可变的路由表
+     * 
+     * @return
+     */
+    public InvokerRouter buildRouter() {
+        return new InvokerRouter(invokerMap);
+    }
+
+    private Invoker wrap(Invoker invoker, String id, JsonObject jsonObject) throws Exception {
         VerifyableInvoker verifyableInvoker = new VerifyableInvoker();
+        verifyableInvoker.setId(id);
         verifyableInvoker.setDelegate(invoker);
-        
-        JsonElement assignJsonElement = jsonObject.get("assignment");
-        if (assignJsonElement != null && !assignJsonElement.isJsonNull()) {
-            JsonObject assignmentJsonObject = assignJsonElement.getAsJsonObject();
-            Assignment assignment = AssignmentBuilder.build(assignmentJsonObject, resourceProvider);
-            verifyableInvoker.setAssignment(assignment);
-        }
-        
-        JsonElement validateJsonElement = jsonObject.get("validation");
-        if (validateJsonElement != null && !validateJsonElement.isJsonNull()) {
-            JsonObject validateJsonObject = validateJsonElement.getAsJsonObject();
-            Validation validation = ValidationBuilder.build(validateJsonObject, resourceProvider);
-            verifyableInvoker.setValidation(validation);
-        }
-        
-        JsonElement maskJsonElement = jsonObject.get("mask");
-        if (maskJsonElement != null && !maskJsonElement.isJsonNull()) {
-            JsonObject maskJsonObject = maskJsonElement.getAsJsonObject();
-            Assignment mask = AssignmentBuilder.build(maskJsonObject, resourceProvider);
-            verifyableInvoker.setMask(mask);
-        }
-        
+        int parallelThreshold = parallelThresholdOf(jsonObject);
+        verifyableInvoker.setAssignment(buildAssignment(jsonObject.get("assignment"), invoker.getRequestType(), parallelThreshold, compile));
+        verifyableInvoker.setValidation(buildValidation(jsonObject, invoker.getRequestType(), parallelThreshold, compile));
+        verifyableInvoker.setMask(buildAssignment(jsonObject.get("mask"), invoker.getResponseType(), parallelThreshold, compile));
+        verifyableInvoker.setCache(buildCache(jsonObject.get("cache")));
+        if (jsonObject.has("coalesce") && jsonObject.get("coalesce").getAsBoolean()) {
+            verifyableInvoker.setSingleFlight(new SingleFlight(invoker.getResponseType()));
+        }
+        if (metricsRegistry != null) {
+            InvokerMetrics metrics = metricsRegistry.of(id);
+            metrics.setCache(verifyableInvoker.getCache());
+            verifyableInvoker.setMetrics(metrics);
+        }
         return verifyableInvoker;
     }
 
-    private JsonObject loadPublishConfig(String uri) throws Exception {
-        byte[] resource = resourceProvider.getResource("/rules" + uri + ".json");
-        if (resource == null) {
+    /**
+     * cache配置: maxEntries为最大条目数, maxBytes为缓存的Response的最大总字节数, ttl为存活毫秒数
+     */
+    private TinyLfuCache<Object, byte[]> buildCache(JsonElement jsonElement) {
+        if (jsonElement == null || jsonElement.isJsonNull()) {
             return null;
         }
+        JsonObject jsonObject = jsonElement.getAsJsonObject();
+        long maxEntries = jsonObject.has("maxEntries") ? jsonObject.get("maxEntries").getAsLong() : 10000;
+        long maxBytes = jsonObject.has("maxBytes") ? jsonObject.get("maxBytes").getAsLong() : 0;
+        long ttl = jsonObject.has("ttl") ? jsonObject.get("ttl").getAsLong() : 0;
+        return new TinyLfuCache<Object, byte[]>(maxEntries, maxBytes, ttl);
+    }
+
+    /**
+     * 生成该规则专用的Invoker, 赋值, 校验, 调用和掩码在同一个方法中执行,
+     * 规则中有批量或异步Provider, cache或coalesce以及记录各阶段耗时时返回null, 由VerifyableInvoker处理
+     */
+    private Invoker fuse(Method method, Object target, JsonObject jsonObject) throws Exception {
+        if (jsonObject.has("cache") || jsonObject.has("coalesce") || metricsRegistry != null) {
+            return null;
+        }
+        Class<?> requestType = coder.getRequestType(method);
+        Class<?> responseType = coder.getResponseType(method);
+
+        int parallelThreshold = parallelThresholdOf(jsonObject);
+        Assignment assignment = buildAssignment(jsonObject.get("assignment"), requestType, parallelThreshold, false);
+        Validation validation = buildValidation(jsonObject, requestType, parallelThreshold, false);
+        Assignment mask = buildAssignment(jsonObject.get("mask"), responseType, parallelThreshold, false);
+        if (hasBatchOrAsyncProvider(assignment) || hasBatchOrAsyncProvider(mask)) {
+            return null;
+        }
+
+        AbstractInvoker invoker = InvokerCompiler.compile(method, assignment, validation, mask, coder);
+        invoker.setTarget(target);
+        return invoker;
+    }
+
+    private boolean hasBatchOrAsyncProvider(Assignment assignment) {
+        return assignment instanceof Node && (AbstractNode.hasBatchProvider((Node) assignment) || AbstractNode.hasAsyncProvider((Node) assignment));
+    }
+
+    /**
+     * parallelThreshold配置: *节点的元素个数不小于该值时并行赋值和校验, 规则中的Provider和校验器必须是线程安全的
+     */
+    private int parallelThresholdOf(JsonObject jsonObject) {
+        JsonElement jsonElement = jsonObject.get("parallelThreshold");
+        return jsonElement == null || jsonElement.isJsonNull() ? 0 : jsonElement.getAsInt();
+    }
+
+    private Assignment buildAssignment(JsonElement jsonElement, Class<?> type, int parallelThreshold, boolean compile) throws Exception {
+        if (jsonElement == null || jsonElement.isJsonNull()) {
+            return null;
+        }
+        Assignment assignment = AssignmentBuilder.build(jsonElement.getAsJsonObject(), resourceProvider, type, parallelThreshold, forkJoinPool, providerCaches);
+        if (compile) {
+            assignment = AssignmentCompiler.compile(assignment, type, coder);
+        }
+        return assignment;
+    }
+
+    /**
+     * maxErrors配置: 大于0时*节点校验全部元素, 最多收集maxErrors个错误后合并抛出, 否则在第一个错误处停止
+     */
+    private Validation buildValidation(JsonObject ruleJsonObject, Class<?> type, int parallelThreshold, boolean compile) throws Exception {
+        JsonElement jsonElement = ruleJsonObject.get("validation");
+        if (jsonElement == null || jsonElement.isJsonNull()) {
+            return null;
+        }
+        int maxErrors = ruleJsonObject.has("maxErrors") ? ruleJsonObject.get("maxErrors").getAsInt() : 0;
+        Validation validation = ValidationBuilder.build(jsonElement.getAsJsonObject(), resourceProvider, type, maxErrors, parallelThreshold, forkJoinPool);
+        if (compile) {
+            validation = ValidationCompiler.compile(validation, type, coder);
+        }
+        return validation;
+    }
+
+    private String pathOf(String uri) {
+        return "/rules" + uri + ".json";
+    }
+
+    private JsonObject parse(byte[] resource) throws Exception {
         return gson.fromJson(new String(resource, "utf-8"), JsonObject.class);
     }
 
@@ -110,4 +420,48 @@ public class InvokerRegister {
         this.coder = coder;
     }
 
+    public boolean isCompile() {
+        return compile;
+    }
+
+    public void setCompile(boolean compile) {
+        this.compile = compile;
+    }
+
+    public boolean isFuse() {
+        return fuse;
+    }
+
+    public void setFuse(boolean fuse) {
+        this.fuse = fuse;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public Map<String, CachingProvider> getProviderCaches() {
+        return providerCaches;
+    }
+
 }
@@ -0,0 +1,225 @@
+package io.github.caseforge.awaken.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import io.github.caseforge.awaken.Invoker;
+
+/**
+ * 注册完成后生成的不可变路由表, 键为 uri@rule.
+ * <p>
+ * 使用开放寻址的哈希表, 哈希按键的UTF-8字节计算, 因此可以直接用CharSequence或byte[]的片段查找,
+ * uri和rule也可以分开传入, 查找过程不拼接字符串也不创建对象
+ */
+public class InvokerRouter {
+
+    public static final InvokerRouter EMPTY = new InvokerRouter(Collections.<String, Invoker>emptyMap());
+
+    private static final int SEPARATOR = '@';
+
+    private static final int SEED = 0x811c9dc5;
+
+    private static final int PRIME = 0x01000193;
+
+    private final int mask;
+
+    private final int[] hashes;
+
+    private final String[] keys;
+
+    private final byte[][] keyBytes;
+
+    private final Invoker[] invokers;
+
+    private final int size;
+
+    public InvokerRouter(Map<String, Invoker> invokerMap) {
+        int capacity = 2;
+        while (capacity < invokerMap.size() * 2) {
+            capacity <<= 1;
+        }
+
+        mask = capacity - 1;
+        hashes = new int[capacity];
+        keys = new String[capacity];
+        keyBytes = new byte[capacity][];
+        invokers = new Invoker[capacity];
+        size = invokerMap.size();
+
+        for (Map.Entry<String, Invoker> entry : invokerMap.entrySet()) {
+            String key = entry.getKey();
+            int hash = finish(update(SEED, key, 0, key.length()));
+            int i = hash & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            hashes[i] = hash;
+            keys[i] = key;
+            keyBytes[i] = key.getBytes(StandardCharsets.UTF_8);
+            invokers[i] = entry.getValue();
+        }
+    }
+
+    /**
+     * @param id 格式为 uri@rule
+     * @return
+     */
+    public Invoker find(CharSequence id) {
+        int hash = finish(update(SEED, id, 0, id.length()));
+        for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && contentEquals(keys[i], id)) {
+                return invokers[i];
+            }
+        }
+        return null;
+    }
+
+    public Invoker find(CharSequence uri, CharSequence rule) {
+        int uriLength = uri.length();
+        int hash = update(SEED, uri, 0, uriLength);
+        hash = (hash ^ SEPARATOR) * PRIME;
+        hash = finish(update(hash, rule, 0, rule.length()));
+        for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+            String key = keys[i];
+            if (hashes[i] == hash && key.length() == uriLength + 1 + rule.length() && key.charAt(uriLength) == SEPARATOR && regionEquals(key, 0, uri) && regionEquals(key, uriLength + 1, rule)) {
+                return invokers[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param bs 格式为 uri@rule 的UTF-8字节
+     * @param offset
+     * @param length
+     * @return
+     */
+    public Invoker find(byte[] bs, int offset, int length) {
+        int hash = finish(update(SEED, bs, offset, length));
+        for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && keyBytes[i].length == length && regionEquals(keyBytes[i], 0, bs, offset, length)) {
+                return invokers[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param bs 请求路径的UTF-8字节, 如原始的请求行
+     * @param offset
+     * @param length
+     * @param rule
+     * @return
+     */
+    public Invoker find(byte[] bs, int offset, int length, CharSequence rule) {
+        int hash = update(SEED, bs, offset, length);
+        hash = (hash ^ SEPARATOR) * PRIME;
+        hash = finish(update(hash, rule, 0, rule.length()));
+        int keyLength = length + 1 + utf8Length(rule);
+        for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+            byte[] key = keyBytes[i];
+            if (hashes[i] == hash && key.length == keyLength && key[length] == SEPARATOR && regionEquals(key, 0, bs, offset, length) && regionEquals(keys[i], keys[i].length() - rule.length(), rule)) {
+                return invokers[i];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按UTF-8字节计算FNV-1a, 与{@link #update(int, byte[], int, int)}的结果一致
+     */
+    private static int update(int hash, CharSequence cs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                hash = (hash ^ c) * PRIME;
+            } else if (c < 0x800) {
+                hash = (hash ^ (0xc0 | (c >> 6))) * PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3f))) * PRIME;
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, cs.charAt(++i));
+                hash = (hash ^ (0xf0 | (cp >> 18))) * PRIME;
+                hash = (hash ^ (0x80 | ((cp >> 12) & 0x3f))) * PRIME;
+                hash = (hash ^ (0x80 | ((cp >> 6) & 0x3f))) * PRIME;
+                hash = (hash ^ (0x80 | (cp & 0x3f))) * PRIME;
+            } else if (Character.isSurrogate(c)) {
+                hash = (hash ^ '?') * PRIME;
+            } else {
+                hash = (hash ^ (0xe0 | (c >> 12))) * PRIME;
+                hash = (hash ^ (0x80 | ((c >> 6) & 0x3f))) * PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3f))) * PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static int update(int hash, byte[] bs, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = (hash ^ (bs[i] & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+
+    private static int utf8Length(CharSequence cs) {
+        int len = cs.length();
+        int utf8Length = 0;
+        for (int i = 0; i < len; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        return utf8Length;
+    }
+
+    private static int finish(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    private static boolean contentEquals(String key, CharSequence cs) {
+        return key.length() == cs.length() && regionEquals(key, 0, cs);
+    }
+
+    private static boolean regionEquals(String key, int from, CharSequence cs) {
+        int len = cs.length();
+        if (from < 0 || from + len > key.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (key.charAt(from + i) != cs.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(byte[] key, int from, byte[] bs, int offset, int length) {
+        if (from + length > key.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[from + i] != bs[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,30 @@
+package io.github.caseforge.awaken.core;
+
+import io.github.caseforge.awaken.Fault;
+
+/**
+ * 并发超过上限时立即拒绝, 本身就是Fault, FaultHandler直接返回
+ */
+@SuppressWarnings("serial")
+public class LimitException extends Exception implements Fault {
+
+    private final int code;
+
+    public LimitException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMsg() {
+        return getMessage();
+    }
+
+    public String getExt() {
+        return null;
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.github.caseforge.awaken.core;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import io.github.caseforge.awaken.validation.ValidationException;
+
+/**
+ * 按规则中的concurrency配置限制并发, 超过上限时抛出LimitException, 不排队等待.
+ * 只有成功的调用作为延迟样本, 失败的调用缩小上限, 本地的快速拒绝(LimitException, ValidationException)不影响上限
+ */
+public class LimitedInvoker extends DelegateInvoker {
+
+    private ConcurrencyLimiter limiter;
+
+    private int code = 429;
+
+    private String msg = "too many requests";
+
+    @Override
+    public Object invoke(Object input) throws Exception {
+        if (!limiter.tryAcquire()) {
+            throw new LimitException(code, msg);
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = super.invoke(input);
+        } catch (Throwable e) {
+            release(start, e);
+            throw e;
+        }
+        release(start, null);
+        return result;
+    }
+
+    /**
+     * 位置在异步结果完成后释放
+     */
+    @Override
+    public CompletionStage<Object> invokeAsync(Object input) {
+        if (!limiter.tryAcquire()) {
+            return AbstractInvoker.failed(new LimitException(code, msg));
+        }
+        long start = System.nanoTime();
+        CompletionStage<Object> stage;
+        try {
+            stage = super.invokeAsync(input);
+        } catch (Throwable e) {
+            release(start, e);
+            return AbstractInvoker.failed(e);
+        }
+        return stage.whenComplete((result, e) -> release(start, e));
+    }
+
+    /**
+     * 一批请求只占用一个位置
+     */
+    @Override
+    public List<Object> invokeBatch(List<?> inputs) throws Exception {
+        if (!limiter.tryAcquire()) {
+            throw new LimitException(code, msg);
+        }
+        long start = System.nanoTime();
+        List<Object> result;
+        try {
+            result = super.invokeBatch(inputs);
+        } catch (Throwable e) {
+            release(start, e);
+            throw e;
+        }
+        release(start, null);
+        return result;
+    }
+
+    /**
+     * @param start 调用开始的纳秒数
+     * @param e 调用成功时为null
+     */
+    private void release(long start, Throwable e) {
+        if (e == null) {
+            limiter.release(System.nanoTime() - start);
+            return;
+        }
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof LimitException || cause instanceof ValidationException) {
+            limiter.ignore();
+        } else {
+            limiter.drop();
+        }
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    public void setLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public String getMsg() {
+        return msg;
+    }
+
+    public void setMsg(String msg) {
+        this.msg = msg;
+    }
+
+}
@@ -0,0 +1,128 @@
+package io.github.caseforge.awaken.core;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class Property {
+
+    private String key;
+
+    private Class<?> type;
+
+    private Method readMethod;
+
+    private Method writeMethod;
+
+    private List<Method> writeMethods = new ArrayList<Method>();
+
+    /**
+     * 按照BeanUtil的规则找出类型的全部属性, 结果按属性名排序
+     * 
+     * @param type
+     * @return
+     */
+    public static List<Property> propertiesOf(Class<?> type) {
+        Map<String, Property> propertyMap = new TreeMap<String, Property>();
+        Method[] methods = type.getMethods();
+
+        for (Method method : methods) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || Object.class.equals(method.getDeclaringClass())) {
+                continue;
+            }
+
+            String methodName = method.getName();
+            int parameterCount = method.getParameterCount();
+            Class<?> returnType = method.getReturnType();
+
+            if (methodName.length() > 3 && methodName.startsWith("get") && parameterCount == 0 && !void.class.equals(returnType)) {
+                propertyOf(propertyMap, methodName.substring(3)).readMethod = method;
+            } else if (methodName.length() > 2 && methodName.startsWith("is") && parameterCount == 0 && boolean.class.equals(returnType)) {
+                Property property = propertyOf(propertyMap, methodName.substring(2));
+                if (property.readMethod == null) {
+                    property.readMethod = method;
+                }
+            } else if (methodName.length() > 3 && methodName.startsWith("set") && parameterCount == 1 && void.class.equals(returnType)) {
+                propertyOf(propertyMap, methodName.substring(3)).writeMethods.add(method);
+            }
+        }
+
+        List<Property> properties = new ArrayList<Property>(propertyMap.values());
+        for (Property property : properties) {
+            if (property.readMethod != null) {
+                property.type = property.readMethod.getReturnType();
+            } else {
+                property.type = property.writeMethods.get(0).getParameterTypes()[0];
+            }
+
+            // setter存在重载时, 只选择与属性类型一致的那一个
+            for (Method method : property.writeMethods) {
+                if (method.getParameterTypes()[0].equals(property.type)) {
+                    property.writeMethod = method;
+                    break;
+                }
+            }
+            property.writeMethods = null;
+        }
+        return properties;
+    }
+
+    /**
+     * @param type
+     * @param name 规则中的属性名
+     * @return 不存在时返回null
+     */
+    public static Property propertyOf(Class<?> type, String name) {
+        if (name == null || name.length() == 0) {
+            return null;
+        }
+        String key = name.substring(0, 1).toUpperCase() + name.substring(1);
+        for (Property property : propertiesOf(type)) {
+            if (property.key.equals(key)) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    private static Property propertyOf(Map<String, Property> propertyMap, String key) {
+        Property property = propertyMap.get(key);
+        if (property == null) {
+            property = new Property();
+            property.key = key;
+            propertyMap.put(key, property);
+        }
+        return property;
+    }
+
+    /**
+     * @return 带泛型参数的属性类型
+     */
+    public Type getGenericType() {
+        if (readMethod != null) {
+            return readMethod.getGenericReturnType();
+        }
+        return writeMethod == null ? type : writeMethod.getGenericParameterTypes()[0];
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Method getReadMethod() {
+        return readMethod;
+    }
+
+    public Method getWriteMethod() {
+        return writeMethod;
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.github.caseforge.awaken.core;
+
+/**
+ * 绑定到具体类型的属性, 解析一次后按下标访问, 不再查找方法
+ */
+public final class PropertyRef {
+
+    private final Class<?> ownerType;
+
+    private final Accessor accessor;
+
+    private final int index;
+
+    private PropertyRef(Class<?> ownerType, Accessor accessor, int index) {
+        this.ownerType = ownerType;
+        this.accessor = accessor;
+        this.index = index;
+    }
+
+    public static PropertyRef of(Class<?> ownerType, String name) {
+        Accessor accessor = Accessors.of(ownerType);
+        return new PropertyRef(ownerType, accessor, accessor.indexOf(name));
+    }
+
+    public boolean accept(Class<?> type) {
+        return ownerType == type;
+    }
+
+    public Object get(Object target) throws Exception {
+        if (index < 0) {
+            return null;
+        }
+        return accessor.get(target, index);
+    }
+
+    public void set(Object target, Object value) throws Exception {
+        if (index > -1) {
+            accessor.set(target, index, value);
+        }
+    }
+
+    public Class<?> getOwnerType() {
+        return ownerType;
+    }
+
+    /**
+     * @return 属性的声明类型, 属性不存在时返回null
+     */
+    public Class<?> getType() {
+        return accessor.typeOf(index);
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.github.caseforge.awaken.core;
+
+import static io.github.caseforge.awaken.asm.Opcodes.AALOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PRIVATE;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PUBLIC;
+import static io.github.caseforge.awaken.asm.Opcodes.ALOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.ASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.CHECKCAST;
+import static io.github.caseforge.awaken.asm.Opcodes.GETFIELD;
+import static io.github.caseforge.awaken.asm.Opcodes.PUTFIELD;
+import static io.github.caseforge.awaken.asm.Opcodes.RETURN;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.caseforge.awaken.asm.ClassWriter;
+import io.github.caseforge.awaken.asm.MethodVisitor;
+import io.github.caseforge.awaken.asm.Type;
+
+/**
+ * 按规则编译的类所引用的对象(如Provider, Validator), 以类型确定的字段保存, 通过{@link Referable#setRefer(Object)}一次注入
+ */
+public class RefTable {
+
+    private String owner;
+
+    private List<String> names = new ArrayList<String>();
+
+    private List<Class<?>> types = new ArrayList<Class<?>>();
+
+    private List<Object> values = new ArrayList<Object>();
+
+    public RefTable(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @param prefix 字段名前缀
+     * @param type 字段类型
+     * @param value 注入的对象
+     * @return 字段名
+     */
+    public String add(String prefix, Class<?> type, Object value) {
+        String name = prefix + names.size();
+        names.add(name);
+        types.add(type);
+        values.add(value);
+        return name;
+    }
+
+    public void load(String name, MethodVisitor mv) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, owner, name, Type.getDescriptor(types.get(names.indexOf(name))));
+    }
+
+    public void emit(ClassWriter cw, Coder coder) {
+        int len = names.size();
+        for (int i = 0; i < len; i++) {
+            cw.visitField(ACC_PRIVATE, names.get(i), Type.getDescriptor(types.get(i)), null, null).visitEnd();
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "setRefer", "(Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, "[Ljava/lang/Object;");
+        mv.visitVarInsn(ASTORE, 2);
+        for (int i = 0; i < len; i++) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 2);
+            coder.pushInt(i, mv);
+            mv.visitInsn(AALOAD);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(types.get(i)));
+            mv.visitFieldInsn(PUTFIELD, owner, names.get(i), Type.getDescriptor(types.get(i)));
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    public Object[] values() {
+        return values.toArray();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+}
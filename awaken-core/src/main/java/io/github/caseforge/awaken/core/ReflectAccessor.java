@@ -0,0 +1,70 @@
+package io.github.caseforge.awaken.core;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * 无法生成访问类时(如类型不可见)使用的反射实现
+ */
+public class ReflectAccessor extends AbstractAccessor {
+
+    private final Method[] readMethods;
+
+    private final Method[] writeMethods;
+
+    public ReflectAccessor(List<Property> properties) {
+        super(keysOf(properties), typesOf(properties));
+        int len = properties.size();
+        readMethods = new Method[len];
+        writeMethods = new Method[len];
+        for (int i = 0; i < len; i++) {
+            readMethods[i] = accessible(properties.get(i).getReadMethod());
+            writeMethods[i] = accessible(properties.get(i).getWriteMethod());
+        }
+    }
+
+    /**
+     * 不可见类型的public方法也需要setAccessible才能通过反射调用
+     */
+    private static Method accessible(Method method) {
+        if (method != null && !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            method.setAccessible(true);
+        }
+        return method;
+    }
+
+    @Override
+    public Object get(Object target, int index) throws Exception {
+        Method method = readMethods[index];
+        if (method == null) {
+            return null;
+        }
+        return method.invoke(target);
+    }
+
+    @Override
+    public void set(Object target, int index, Object value) throws Exception {
+        Method method = writeMethods[index];
+        if (method != null) {
+            method.invoke(target, value);
+        }
+    }
+
+    static String[] keysOf(List<Property> properties) {
+        String[] keys = new String[properties.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = properties.get(i).getKey();
+        }
+        return keys;
+    }
+
+    static Class<?>[] typesOf(List<Property> properties) {
+        Class<?>[] types = new Class<?>[properties.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = properties.get(i).getType();
+        }
+        return types;
+    }
+
+}
@@ -0,0 +1,112 @@
+package io.github.caseforge.awaken.core;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.github.caseforge.awaken.binary.BinaryCodecs;
+
+/**
+ * 合并并发的相同调用: 按Request的值相等判断, 第一个调用执行, 其余调用等待它的结果.
+ * 等待者得到的是结果的二进制副本, 各自掩码时互不影响
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+
+    private final Type resultType;
+
+    public SingleFlight(Type resultType) {
+        this.resultType = resultType;
+    }
+
+    /**
+     * @param key 调用的键, 只在调用期间使用
+     * @param loader 执行实际调用
+     * @return
+     */
+    public CompletionStage<Object> execute(Object key, Supplier<CompletionStage<Object>> loader) {
+        for (;;) {
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, loader);
+            }
+            if (existing.join()) {
+                return existing.shared.thenApply(bs -> {
+                    try {
+                        return BinaryCodecs.decode(bs, resultType);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                });
+            }
+            // 已结束的调用还没有移除, 重新开始
+        }
+    }
+
+    private CompletionStage<Object> lead(Object key, Flight flight, Supplier<CompletionStage<Object>> loader) {
+        CompletionStage<Object> stage;
+        try {
+            stage = loader.get();
+        } catch (Throwable e) {
+            stage = AbstractInvoker.failed(e);
+        }
+        return stage.whenComplete((result, e) -> {
+            flights.remove(key, flight);
+            // 没有等待者时不需要序列化结果
+            if (flight.close() == 0) {
+                return;
+            }
+            if (e != null) {
+                flight.shared.completeExceptionally(e);
+                return;
+            }
+            try {
+                flight.shared.complete(BinaryCodecs.encode(result));
+            } catch (Exception ex) {
+                flight.shared.completeExceptionally(ex);
+            }
+        });
+    }
+
+    /**
+     * 正在执行的调用数
+     * 
+     * @return
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    static final class Flight {
+
+        final CompletableFuture<byte[]> shared = new CompletableFuture<byte[]>();
+
+        /**
+         * 等待者数量, -1表示已结束
+         */
+        final AtomicInteger waiters = new AtomicInteger();
+
+        boolean join() {
+            for (;;) {
+                int current = waiters.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (waiters.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        int close() {
+            return waiters.getAndSet(-1);
+        }
+    }
+
+}
@@ -1,35 +1,336 @@
 package io.github.caseforge.awaken.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
 import io.github.caseforge.awaken.assignment.Assignment;
+import io.github.caseforge.awaken.binary.BinaryCodecs;
+import io.github.caseforge.awaken.cache.TinyLfuCache;
+import io.github.caseforge.awaken.jfr.FlightEvents;
+import io.github.caseforge.awaken.metrics.InvokerMetrics;
 import io.github.caseforge.awaken.validation.Validation;
+import io.github.caseforge.awaken.validation.ValidationException;
 
 public class VerifyableInvoker extends DelegateInvoker {
 
+    /**
+     * 规则的 uri@rule, 用于JFR事件
+     */
+    private String id;
+
     private Assignment assignment;
     
     private Validation validation;
     
     private Assignment mask;
 
+    /**
+     * 赋值和校验后的Request到未掩码的Response的缓存, 值以二进制保存, 每次命中时解码出新的Response再掩码.
+     * Request按参数的equals比较, 注册时检查参数都是值类型
+     */
+    private TinyLfuCache<Object, byte[]> cache;
+
+    /**
+     * 不为null时合并并发的相同请求, 批量调用不合并
+     */
+    private SingleFlight singleFlight;
+
+    /**
+     * 不为null时记录成功调用各阶段的耗时和失败调用的总耗时
+     */
+    private InvokerMetrics metrics;
+
     @Override
     public Object invoke(Object input) throws Exception {
-        if (assignment != null) {
-            assignment.assign(input);
+        Object event = FlightEvents.beginInvocation();
+        boolean timed = event != null || metrics != null;
+        long start = timed ? System.nanoTime() : 0;
+        long assigned = 0;
+        long validated = 0;
+        long invoked = 0;
+        boolean success = false;
+        try {
+            if (assignment != null) {
+                assignment.assign(input);
+            }
+            if (timed) {
+                assigned = System.nanoTime();
+            }
+
+            if (validation != null) {
+                validate(input);
+            }
+            if (timed) {
+                validated = System.nanoTime();
+            }
+
+            Object result = cache == null ? null : cached(input);
+            if (result == null) {
+                result = singleFlight == null ? fetch(input) : AbstractInvoker.join(singleFlight.execute(input, () -> fetchAsync(input, false)));
+            }
+            if (timed) {
+                invoked = System.nanoTime();
+            }
+
+            if (mask != null) {
+                mask.assign(result);
+            }
+
+            success = true;
+            return result;
+        } finally {
+            if (timed) {
+                record(event, start, assigned, validated, invoked, success);
+            }
         }
+    }
+
+    /**
+     * 赋值和校验在当前线程执行, 掩码在结果完成后执行
+     */
+    @Override
+    public CompletionStage<Object> invokeAsync(Object input) {
+        Object event = FlightEvents.beginInvocation();
+        boolean timed = event != null || metrics != null;
+        long start = timed ? System.nanoTime() : 0;
+        long assigned = 0;
+        long validated = 0;
+
+        CompletionStage<Object> stage = null;
+        try {
+            if (assignment != null) {
+                assignment.assign(input);
+            }
+            if (timed) {
+                assigned = System.nanoTime();
+            }
 
-        if (validation != null) {
+            if (validation != null) {
+                validate(input);
+            }
+            if (timed) {
+                validated = System.nanoTime();
+            }
+
+            Object result = cache == null ? null : cached(input);
+            if (result != null) {
+                stage = CompletableFuture.completedFuture(result);
+            } else if (singleFlight == null) {
+                stage = fetchAsync(input, true);
+            } else {
+                stage = singleFlight.execute(input, () -> fetchAsync(input, true));
+            }
+        } catch (Throwable e) {
+            if (timed) {
+                record(event, start, assigned, validated, 0, false);
+            }
+            return AbstractInvoker.failed(e);
+        }
+
+        if (mask == null && !timed) {
+            return stage;
+        }
+
+        long assignedAt = assigned;
+        long validatedAt = validated;
+        return stage.handle((result, e) -> {
+            if (e != null) {
+                if (timed) {
+                    record(event, start, assignedAt, validatedAt, 0, false);
+                }
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+
+            long invoked = timed ? System.nanoTime() : 0;
+            try {
+                if (mask != null) {
+                    mask.assign(result);
+                }
+            } catch (Exception ex) {
+                if (timed) {
+                    record(event, start, assignedAt, validatedAt, invoked, false);
+                }
+                throw new CompletionException(ex);
+            }
+            if (timed) {
+                record(event, start, assignedAt, validatedAt, invoked, true);
+            }
+            return result;
+        });
+    }
+    
+    /**
+     * 整批请求一起赋值, 逐个校验, 整批结果一起掩码, 耗时按整批记录一次
+     */
+    @Override
+    public List<Object> invokeBatch(List<?> inputs) throws Exception {
+        Object event = FlightEvents.beginInvocation();
+        boolean timed = event != null || metrics != null;
+        long start = timed ? System.nanoTime() : 0;
+        long assigned = 0;
+        long validated = 0;
+        long invoked = 0;
+        boolean success = false;
+        try {
+            if (assignment != null) {
+                assignment.assignBatch(inputs);
+            }
+            if (timed) {
+                assigned = System.nanoTime();
+            }
+
+            if (validation != null) {
+                for (Object input : inputs) {
+                    validate(input);
+                }
+            }
+            if (timed) {
+                validated = System.nanoTime();
+            }
+
+            List<Object> results = null;
+            if (cache == null) {
+                results = super.invokeBatch(inputs);
+            } else {
+                // 只有未命中的请求继续批量调用
+                results = new ArrayList<Object>(inputs.size());
+                List<Object> misses = new ArrayList<Object>();
+                List<Object> keys = new ArrayList<Object>();
+                for (Object input : inputs) {
+                    Object result = cached(input);
+                    results.add(result);
+                    if (result == null) {
+                        misses.add(input);
+                        keys.add(keyOf(input));
+                    }
+                }
+                if (!misses.isEmpty()) {
+                    List<Object> values = super.invokeBatch(misses);
+                    for (int i = 0, j = 0; i < results.size(); i++) {
+                        if (results.get(i) == null) {
+                            Object value = values.get(j);
+                            cache(keys.get(j++), value);
+                            results.set(i, value);
+                        }
+                    }
+                }
+            }
+            if (timed) {
+                invoked = System.nanoTime();
+            }
+
+            if (mask != null) {
+                mask.assignBatch(results);
+            }
+
+            success = true;
+            return results;
+        } finally {
+            if (timed) {
+                record(event, start, assigned, validated, invoked, success);
+            }
+        }
+    }
+
+    /**
+     * 记录各阶段耗时并提交JFR事件, 失败时失败的阶段计到结束为止, 之后的阶段为0. 直方图只记录成功的调用
+     */
+    private void record(Object event, long start, long assigned, long validated, long invoked, boolean success) {
+        long end = System.nanoTime();
+        if (assigned == 0) {
+            assigned = end;
+        }
+        if (validated == 0) {
+            validated = end;
+        }
+        if (invoked == 0) {
+            invoked = end;
+        }
+        if (metrics != null) {
+            if (success) {
+                metrics.record(start, assigned, validated, invoked, end);
+            } else {
+                metrics.recordError(start, end);
+            }
+        }
+        FlightEvents.commitInvocation(event, id, assigned - start, validated - assigned, invoked - validated, end - invoked, success);
+    }
+
+    /**
+     * 校验失败时提交一次JFR事件, *节点合并的多个错误也只算一次失败
+     */
+    private void validate(Object input) throws Exception {
+        try {
             validation.validate(input);
+        } catch (ValidationException e) {
+            FlightEvents.validationFailed(e.getMessage());
+            throw e;
         }
+    }
 
+    /**
+     * 调用下一层并写入缓存
+     */
+    private Object fetch(Object input) throws Exception {
+        if (cache == null) {
+            return super.invoke(input);
+        }
+        Object key = keyOf(input);
         Object result = super.invoke(input);
+        cache(key, result);
+        return result;
+    }
 
-        if (mask != null) {
-            mask.assign(result);
+    /**
+     * @param async false时在当前线程同步调用下一层
+     */
+    private CompletionStage<Object> fetchAsync(Object input, boolean async) {
+        if (!async) {
+            try {
+                return CompletableFuture.completedFuture(fetch(input));
+            } catch (Throwable e) {
+                return AbstractInvoker.failed(e);
+            }
+        }
+        if (cache == null) {
+            return super.invokeAsync(input);
+        }
+        Object key;
+        try {
+            key = keyOf(input);
+        } catch (Throwable e) {
+            return AbstractInvoker.failed(e);
         }
+        return super.invokeAsync(input).thenApply(value -> {
+            try {
+                cache(key, value);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            return value;
+        });
+    }
 
-        return result;
+    private Object cached(Object input) throws Exception {
+        byte[] bs = cache.get(input);
+        return bs == null ? null : BinaryCodecs.decode(bs, getResponseType());
     }
-    
+
+    /**
+     * 缓存的键使用Request的副本, 调用方之后修改Request不影响缓存
+     */
+    private Object keyOf(Object input) throws Exception {
+        return BinaryCodecs.decode(BinaryCodecs.encode(input), getRequestType());
+    }
+
+    private void cache(Object key, Object result) throws Exception {
+        byte[] bs = BinaryCodecs.encode(result);
+        cache.put(key, bs, bs.length);
+    }
+
     public Assignment getAssignment() {
         return assignment;
     }
@@ -53,6 +354,38 @@ public class VerifyableInvoker extends DelegateInvoker {
     public void setMask(Assignment mask) {
         this.mask = mask;
     }
+
+    public TinyLfuCache<Object, byte[]> getCache() {
+        return cache;
+    }
+
+    public void setCache(TinyLfuCache<Object, byte[]> cache) {
+        this.cache = cache;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public InvokerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(InvokerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
     
     
 }
@@ -0,0 +1,79 @@
+package io.github.caseforge.awaken.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通过反射创建虚拟线程的Executor, 编译和运行时都不依赖Java 21, 不支持虚拟线程时使用平台线程
+ */
+public class VirtualThreads {
+
+    private static final ThreadFactory FACTORY = virtualThreadFactory();
+
+    /**
+     * 当前JVM是否支持虚拟线程
+     * 
+     * @return
+     */
+    public static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的Executor, 不支持虚拟线程时为按需创建守护线程的线程池
+     * 
+     * @param name 线程名的前缀
+     * @return
+     */
+    public static ExecutorService newExecutor(String name) {
+        if (FACTORY != null) {
+            try {
+                Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) method.invoke(null, named(FACTORY, name));
+            } catch (Exception e) {
+                // 退化为平台线程
+            }
+        }
+        return Executors.newCachedThreadPool(named(Executors.defaultThreadFactory(), name, true));
+    }
+
+    /**
+     * 通过public接口Thread.Builder调用factory(), 实现类ThreadBuilders$VirtualThreadBuilder不可访问.
+     * 创建一个不启动的线程确认确实是虚拟线程
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            ThreadFactory threadFactory = (ThreadFactory) factory.invoke(builder);
+            Thread thread = threadFactory.newThread(() -> {
+            });
+            if (!Boolean.TRUE.equals(Thread.class.getMethod("isVirtual").invoke(thread))) {
+                return null;
+            }
+            return threadFactory;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory named(ThreadFactory factory, String name) {
+        return named(factory, name, false);
+    }
+
+    private static ThreadFactory named(ThreadFactory factory, String name, boolean daemon) {
+        AtomicLong counter = new AtomicLong();
+        return r -> {
+            Thread thread = factory.newThread(r);
+            thread.setName(name + counter.incrementAndGet());
+            if (daemon) {
+                thread.setDaemon(true);
+            }
+            return thread;
+        };
+    }
+
+}
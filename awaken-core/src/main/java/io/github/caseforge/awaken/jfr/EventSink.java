@@ -0,0 +1,20 @@
+package io.github.caseforge.awaken.jfr;
+
+/**
+ * 由FlightEvents在运行时生成实现, 直接创建和提交JFR事件. begin方法在事件未开启时返回null
+ */
+public interface EventSink {
+
+    Object beginInvocation();
+
+    void commitInvocation(Object event, String uri, String rule, long assignment, long validation, long invoke, long mask, boolean success);
+
+    Object beginGeneration();
+
+    void commitGeneration(Object event, String className, String kind, String source, int bytes);
+
+    void validationFailed(String message);
+
+    void faultMapped(String exceptionType, String exceptionMessage, int code, String msg);
+
+}
@@ -0,0 +1,298 @@
+package io.github.caseforge.awaken.jfr;
+
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PUBLIC;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_SUPER;
+import static io.github.caseforge.awaken.asm.Opcodes.ACONST_NULL;
+import static io.github.caseforge.awaken.asm.Opcodes.ALOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.ARETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.ASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.CHECKCAST;
+import static io.github.caseforge.awaken.asm.Opcodes.DUP;
+import static io.github.caseforge.awaken.asm.Opcodes.IFEQ;
+import static io.github.caseforge.awaken.asm.Opcodes.ILOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKESPECIAL;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKEVIRTUAL;
+import static io.github.caseforge.awaken.asm.Opcodes.LLOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.NEW;
+import static io.github.caseforge.awaken.asm.Opcodes.PUTFIELD;
+import static io.github.caseforge.awaken.asm.Opcodes.RETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.V1_8;
+
+import java.lang.reflect.Method;
+
+import io.github.caseforge.awaken.asm.AnnotationVisitor;
+import io.github.caseforge.awaken.asm.ClassWriter;
+import io.github.caseforge.awaken.asm.FieldVisitor;
+import io.github.caseforge.awaken.asm.Label;
+import io.github.caseforge.awaken.asm.MethodVisitor;
+import io.github.caseforge.awaken.asm.Type;
+
+/**
+ * JFR事件的入口. 事件类在运行时生成, 编译和运行都不依赖jdk.jfr, 不支持JFR的JVM上所有方法都是空操作.
+ * 事件只在JFR记录中开启了对应事件时才创建和提交
+ */
+public final class FlightEvents {
+
+    private static final String EVENT = "jdk/jfr/Event";
+
+    private static final String PACKAGE = "io/github/caseforge/awaken/jfr/event/";
+
+    private static final String STRING = "Ljava/lang/String;";
+
+    /**
+     * 字段定义: 名称, 描述符, 标签, 是否为纳秒时长
+     */
+    private static final String[][] INVOCATION = { { "uri", STRING, "URI", "" }, { "rule", STRING, "Rule", "" }, { "assignment", "J", "Assignment", "t" }, { "validation", "J", "Validation", "t" }, { "invoke", "J", "Invoke", "t" }, { "mask", "J", "Mask", "t" }, { "success", "Z", "Success", "" } };
+
+    private static final String[][] GENERATION = { { "className", STRING, "Class Name", "" }, { "kind", STRING, "Kind", "" }, { "source", STRING, "Source", "" }, { "bytes", "I", "Bytes", "" } };
+
+    private static final String[][] VALIDATION = { { "message", STRING, "Message", "" } };
+
+    private static final String[][] FAULT = { { "exceptionType", STRING, "Exception Type", "" }, { "exceptionMessage", STRING, "Exception Message", "" }, { "code", "I", "Code", "" }, { "msg", STRING, "Fault Message", "" } };
+
+    private static final EventSink SINK = createSink();
+
+    private FlightEvents() {
+    }
+
+    /**
+     * 当前JVM是否支持JFR事件
+     * 
+     * @return
+     */
+    public static boolean isSupported() {
+        return SINK != null;
+    }
+
+    /**
+     * 开始一次调用事件
+     * 
+     * @return 事件未开启时为null
+     */
+    public static Object beginInvocation() {
+        return SINK == null ? null : SINK.beginInvocation();
+    }
+
+    /**
+     * @param event beginInvocation的返回值
+     * @param id uri@rule
+     * @param assignment 各阶段的纳秒数
+     * @param validation
+     * @param invoke
+     * @param mask
+     * @param success
+     */
+    public static void commitInvocation(Object event, String id, long assignment, long validation, long invoke, long mask, boolean success) {
+        if (event == null) {
+            return;
+        }
+        int index = id == null ? -1 : id.lastIndexOf('@');
+        String uri = index < 0 ? id : id.substring(0, index);
+        String rule = index < 0 ? null : id.substring(index + 1);
+        SINK.commitInvocation(event, uri, rule, assignment, validation, invoke, mask, success);
+    }
+
+    public static Object beginGeneration() {
+        return SINK == null ? null : SINK.beginGeneration();
+    }
+
+    /**
+     * @param event beginGeneration的返回值
+     * @param className
+     * @param source precompiled, cached或generated
+     * @param bytes 字节码长度
+     */
+    public static void commitGeneration(Object event, String className, String source, int bytes) {
+        if (event == null) {
+            return;
+        }
+        int index = className.lastIndexOf('.');
+        SINK.commitGeneration(event, className, className.substring(index + 1), source, bytes);
+    }
+
+    public static void validationFailed(String message) {
+        if (SINK != null) {
+            SINK.validationFailed(message);
+        }
+    }
+
+    public static void faultMapped(Throwable t, int code, String msg) {
+        if (SINK != null) {
+            SINK.faultMapped(t.getClass().getName(), t.getMessage(), code, msg);
+        }
+    }
+
+    private static EventSink createSink() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            EventLoader loader = new EventLoader(FlightEvents.class.getClassLoader());
+            register(loader.define(PACKAGE + "InvocationEvent", dumpEvent(PACKAGE + "InvocationEvent", "Invocation", "Awaken Invocation", false, INVOCATION)));
+            register(loader.define(PACKAGE + "GenerationEvent", dumpEvent(PACKAGE + "GenerationEvent", "ClassGeneration", "Awaken Class Generation", false, GENERATION)));
+            register(loader.define(PACKAGE + "ValidationEvent", dumpEvent(PACKAGE + "ValidationEvent", "ValidationFailure", "Awaken Validation Failure", true, VALIDATION)));
+            register(loader.define(PACKAGE + "FaultEvent", dumpEvent(PACKAGE + "FaultEvent", "FaultMapping", "Awaken Fault Mapping", true, FAULT)));
+            Class<?> type = loader.define(PACKAGE + "EventSinkImpl", dumpSink(PACKAGE + "EventSinkImpl"));
+            return (EventSink) type.getDeclaredConstructor().newInstance();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static void register(Class<?> eventType) throws Exception {
+        Method method = Class.forName("jdk.jfr.FlightRecorder").getMethod("register", Class.class);
+        method.invoke(null, eventType);
+    }
+
+    private static byte[] dumpEvent(String typeName, String name, String label, boolean stackTrace, String[][] fields) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, EVENT, null);
+
+        cw.visitAnnotation("Ljdk/jfr/Name;", true).visit("value", "io.github.caseforge.awaken." + name);
+        cw.visitAnnotation("Ljdk/jfr/Label;", true).visit("value", label);
+        AnnotationVisitor category = cw.visitAnnotation("Ljdk/jfr/Category;", true);
+        AnnotationVisitor values = category.visitArray("value");
+        values.visit(null, "Awaken");
+        values.visitEnd();
+        category.visitEnd();
+        cw.visitAnnotation("Ljdk/jfr/StackTrace;", true).visit("value", stackTrace);
+
+        for (String[] field : fields) {
+            FieldVisitor fv = cw.visitField(ACC_PUBLIC, field[0], field[1], null, null);
+            AnnotationVisitor av = fv.visitAnnotation("Ljdk/jfr/Label;", true);
+            av.visit("value", field[2]);
+            av.visitEnd();
+            if (!field[3].isEmpty()) {
+                av = fv.visitAnnotation("Ljdk/jfr/Timespan;", true);
+                av.visit("value", "NANOSECONDS");
+                av.visitEnd();
+            }
+            fv.visitEnd();
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, EVENT, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] dumpSink(String typeName) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, "java/lang/Object", new String[] { Type.getInternalName(EventSink.class) });
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        visitBegin(cw, "beginInvocation", PACKAGE + "InvocationEvent");
+        visitCommit(cw, "commitInvocation", PACKAGE + "InvocationEvent", INVOCATION, true);
+        visitBegin(cw, "beginGeneration", PACKAGE + "GenerationEvent");
+        visitCommit(cw, "commitGeneration", PACKAGE + "GenerationEvent", GENERATION, true);
+        visitCommit(cw, "validationFailed", PACKAGE + "ValidationEvent", VALIDATION, false);
+        visitCommit(cw, "faultMapped", PACKAGE + "FaultEvent", FAULT, false);
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 创建事件, 开启时调用begin并返回事件, 否则返回null
+     */
+    private static void visitBegin(ClassWriter cw, String methodName, String eventTypeName) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, methodName, "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        Label disabled = new Label();
+        mv.visitTypeInsn(NEW, eventTypeName);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, eventTypeName, "<init>", "()V", false);
+        mv.visitVarInsn(ASTORE, 1);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, eventTypeName, "isEnabled", "()Z", false);
+        mv.visitJumpInsn(IFEQ, disabled);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, eventTypeName, "begin", "()V", false);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(disabled);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 按参数顺序给事件的字段赋值后提交
+     * 
+     * @param begun true时第一个参数为begin返回的事件, 否则创建一个瞬时事件
+     */
+    private static void visitCommit(ClassWriter cw, String methodName, String eventTypeName, String[][] fields, boolean begun) {
+        StringBuilder desc = new StringBuilder("(");
+        if (begun) {
+            desc.append("Ljava/lang/Object;");
+        }
+        int slots = begun ? 2 : 1;
+        for (String[] field : fields) {
+            desc.append(field[1]);
+            slots += "J".equals(field[1]) ? 2 : 1;
+        }
+        desc.append(")V");
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, methodName, desc.toString(), null, null);
+        mv.visitCode();
+        Label disabled = new Label();
+        int eventSlot = slots;
+        if (begun) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, eventTypeName);
+            mv.visitVarInsn(ASTORE, eventSlot);
+        } else {
+            mv.visitTypeInsn(NEW, eventTypeName);
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL, eventTypeName, "<init>", "()V", false);
+            mv.visitVarInsn(ASTORE, eventSlot);
+            mv.visitVarInsn(ALOAD, eventSlot);
+            mv.visitMethodInsn(INVOKEVIRTUAL, eventTypeName, "isEnabled", "()Z", false);
+            mv.visitJumpInsn(IFEQ, disabled);
+        }
+
+        int slot = begun ? 2 : 1;
+        for (String[] field : fields) {
+            mv.visitVarInsn(ALOAD, eventSlot);
+            if ("J".equals(field[1])) {
+                mv.visitVarInsn(LLOAD, slot);
+                slot += 2;
+            } else if ("I".equals(field[1]) || "Z".equals(field[1])) {
+                mv.visitVarInsn(ILOAD, slot++);
+            } else {
+                mv.visitVarInsn(ALOAD, slot++);
+            }
+            mv.visitFieldInsn(PUTFIELD, eventTypeName, field[0], field[1]);
+        }
+        mv.visitVarInsn(ALOAD, eventSlot);
+        mv.visitMethodInsn(INVOKEVIRTUAL, eventTypeName, "commit", "()V", false);
+        mv.visitLabel(disabled);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    static class EventLoader extends ClassLoader {
+
+        EventLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String typeName, byte[] bs) {
+            return defineClass(typeName.replace('/', '.'), bs, 0, bs.length);
+        }
+    }
+
+}
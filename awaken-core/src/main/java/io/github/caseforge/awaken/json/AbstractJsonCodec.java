@@ -0,0 +1,70 @@
+package io.github.caseforge.awaken.json;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import io.github.caseforge.awaken.core.Property;
+
+/**
+ * 生成的JsonCodec的父类, 属性值的JsonCodec在第一次使用时按属性的泛型类型解析
+ */
+public abstract class AbstractJsonCodec implements JsonCodec {
+
+    private final Class<?> type;
+
+    /**
+     * 属性名, 首字母大写, 与getter/setter方法名的后半部分一致
+     */
+    private final String[] keys;
+
+    private final JsonCodec[] codecs;
+
+    protected AbstractJsonCodec(Class<?> type, String[] keys) {
+        this.type = type;
+        this.keys = keys;
+        this.codecs = new JsonCodec[keys.length];
+    }
+
+    protected JsonCodec codecOf(int index) {
+        JsonCodec codec = codecs[index];
+        if (codec == null) {
+            Type genericType = Property.propertyOf(type, keys[index]).getGenericType();
+            codec = JsonCodecs.of(genericType);
+            codecs[index] = codec;
+        }
+        return codec;
+    }
+
+    /**
+     * 生成按字节比较的属性名
+     *
+     * @param names JSON中的属性名
+     * @return
+     */
+    public static byte[][] namesOf(String[] names) {
+        byte[][] bs = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bs[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bs;
+    }
+
+    /**
+     * 生成写出时使用的属性名
+     *
+     * @param names JSON中的属性名
+     * @return
+     */
+    public static byte[][] fieldsOf(String[] names) {
+        byte[][] bs = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bs[i] = JsonWriter.fieldOf(names[i]);
+        }
+        return bs;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+}
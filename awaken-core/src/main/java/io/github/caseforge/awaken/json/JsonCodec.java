@@ -0,0 +1,11 @@
+package io.github.caseforge.awaken.json;
+
+import java.io.IOException;
+
+public interface JsonCodec {
+
+    Object read(JsonReader reader) throws IOException;
+
+    void write(JsonWriter writer, Object value) throws IOException;
+
+}
@@ -0,0 +1,695 @@
+package io.github.caseforge.awaken.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+
+import io.github.caseforge.awaken.core.Coder;
+import io.github.caseforge.awaken.core.Property;
+
+/**
+ * 按类型查找JsonCodec: 基本类型, 字符串, 枚举, 集合, 数组和Map使用内置实现,
+ * Request/Response等bean使用Coder生成的JsonCodec, 其它JDK类型交给Gson
+ */
+public class JsonCodecs {
+
+    private static final ClassValue<JsonCodec> CODECS = new ClassValue<JsonCodec>() {
+        @Override
+        protected JsonCodec computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private static final Map<Type, JsonCodec> GENERIC_CODECS = new ConcurrentHashMap<Type, JsonCodec>();
+
+    public static JsonCodec of(Type type) {
+        if (type instanceof Class) {
+            return CODECS.get((Class<?>) type);
+        }
+
+        if (type instanceof ParameterizedType) {
+            Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+            if (!Collection.class.isAssignableFrom(rawType) && !Map.class.isAssignableFrom(rawType)) {
+                return CODECS.get(rawType);
+            }
+            JsonCodec codec = GENERIC_CODECS.get(type);
+            if (codec == null) {
+                codec = createGeneric((ParameterizedType) type, rawType);
+                GENERIC_CODECS.put(type, codec);
+            }
+            return codec;
+        }
+
+        if (type instanceof GenericArrayType) {
+            Type componentType = ((GenericArrayType) type).getGenericComponentType();
+            return new ArrayCodec(rawTypeOf(componentType), of(componentType));
+        }
+
+        return CODECS.get(rawTypeOf(type));
+    }
+
+    public static Object decode(byte[] bs, Type type) throws IOException {
+        return of(type).read(new JsonReader(bs));
+    }
+
+    public static Object decode(ByteBuffer buffer, Type type) throws IOException {
+        return of(type).read(JsonReader.of(buffer));
+    }
+
+    public static Object decode(InputStream inputStream, Type type) throws IOException {
+        return of(type).read(JsonReader.of(inputStream));
+    }
+
+    public static byte[] encode(Object value) throws IOException {
+        JsonWriter writer = new JsonWriter();
+        OBJECT.write(writer, value);
+        return writer.toByteArray();
+    }
+
+    public static void encode(Object value, OutputStream outputStream) throws IOException {
+        JsonWriter writer = new JsonWriter(outputStream);
+        OBJECT.write(writer, value);
+        writer.flush();
+    }
+
+    public static void encode(Object value, ByteBuffer buffer) throws IOException {
+        JsonWriter writer = new JsonWriter();
+        OBJECT.write(writer, value);
+        writer.writeTo(buffer);
+    }
+
+    /**
+     * JSON中的属性名: 优先使用同名字段的名称(如Request中的参数名), 否则按JavaBean规则转换
+     *
+     * @param type
+     * @param property
+     * @return
+     */
+    public static String nameOf(Class<?> type, Property property) {
+        String key = property.getKey();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                String fieldName = field.getName();
+                if (!Modifier.isStatic(field.getModifiers()) && fieldName.length() == key.length() && fieldName.regionMatches(1, key, 1, key.length() - 1) && Character.toUpperCase(fieldName.charAt(0)) == key.charAt(0)) {
+                    return fieldName;
+                }
+            }
+        }
+
+        if (key.length() > 1 && Character.isUpperCase(key.charAt(1))) {
+            return key;
+        }
+        return Character.toLowerCase(key.charAt(0)) + key.substring(1);
+    }
+
+    private static JsonCodec create(Class<?> type) {
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == Object.class) {
+            return OBJECT;
+        }
+        if (type == int.class || type == Integer.class) {
+            return INT;
+        }
+        if (type == long.class || type == Long.class) {
+            return LONG;
+        }
+        if (type == double.class || type == Double.class) {
+            return DOUBLE;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return BOOLEAN;
+        }
+        if (type == float.class || type == Float.class) {
+            return FLOAT;
+        }
+        if (type == short.class || type == Short.class) {
+            return SHORT;
+        }
+        if (type == byte.class || type == Byte.class) {
+            return BYTE;
+        }
+        if (type == char.class || type == Character.class) {
+            return CHAR;
+        }
+        if (type == BigDecimal.class) {
+            return BIG_DECIMAL;
+        }
+        if (type == BigInteger.class) {
+            return BIG_INTEGER;
+        }
+        if (type.isEnum()) {
+            return new EnumCodec(type);
+        }
+        if (Enum.class.isAssignableFrom(type) && type.getSuperclass().isEnum()) {
+            // 带方法体的枚举常量
+            return CODECS.get(type.getSuperclass());
+        }
+        if (type.isArray()) {
+            return new ArrayCodec(type.getComponentType(), of(type.getComponentType()));
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return new CollectionCodec(type, OBJECT);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return new MapCodec(type, String.class, OBJECT);
+        }
+
+        String name = type.getName();
+        List<Property> properties = Property.propertiesOf(type);
+        if (name.startsWith("java.") || name.startsWith("javax.") || properties.isEmpty()) {
+            return new GsonCodec(type);
+        }
+
+        String[] names = new String[properties.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = nameOf(type, properties.get(i));
+        }
+
+        if (generatable(type, properties)) {
+            try {
+                Class<?> codecType = Coder.of(type.getClassLoader()).getJsonCodecType(type);
+                return (JsonCodec) codecType.getDeclaredConstructor().newInstance();
+            } catch (Throwable e) {
+                // 无法生成时退化为反射
+            }
+        }
+        return new ReflectJsonCodec(type, properties, names);
+    }
+
+    /**
+     * 生成的Codec需要直接创建实例和调用属性的getter/setter
+     */
+    public static boolean generatable(Class<?> type, List<Property> properties) {
+        if (type.getClassLoader() == null || type.isInterface() || !Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        if (type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) {
+            return false;
+        }
+
+        try {
+            if (!Modifier.isPublic(type.getConstructor().getModifiers())) {
+                return false;
+            }
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+
+        for (Property property : properties) {
+            Method writeMethod = property.getWriteMethod();
+            if (writeMethod != null && !isPublic(property.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    private static JsonCodec createGeneric(ParameterizedType type, Class<?> rawType) {
+        Type[] arguments = type.getActualTypeArguments();
+        if (Collection.class.isAssignableFrom(rawType)) {
+            return new CollectionCodec(rawType, of(arguments[0]));
+        }
+        return new MapCodec(rawType, rawTypeOf(arguments[0]), of(arguments[1]));
+    }
+
+    private static Class<?> rawTypeOf(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawTypeOf(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawTypeOf(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            return rawTypeOf(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    private static final JsonCodec STRING = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.readString();
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            writer.writeString((String) value);
+        }
+    };
+
+    /**
+     * 声明类型为Object时, 按运行时类型写出, 读取为Map/List/String/Double/Boolean
+     */
+    private static final JsonCodec OBJECT = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.readValue();
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else if (value.getClass() == Object.class) {
+                writer.beginObject();
+                writer.endObject();
+            } else {
+                of(value.getClass()).write(writer, value);
+            }
+        }
+    };
+
+    private static final JsonCodec INT = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Integer.valueOf(reader.readInt());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeInt(((Number) value).intValue());
+            }
+        }
+    };
+
+    private static final JsonCodec LONG = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Long.valueOf(reader.readLong());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeLong(((Number) value).longValue());
+            }
+        }
+    };
+
+    private static final JsonCodec SHORT = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Short.valueOf((short) reader.readInt());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeInt(((Number) value).shortValue());
+            }
+        }
+    };
+
+    private static final JsonCodec BYTE = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Byte.valueOf((byte) reader.readInt());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeInt(((Number) value).byteValue());
+            }
+        }
+    };
+
+    private static final JsonCodec DOUBLE = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Double.valueOf(reader.readDouble());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeDouble(((Number) value).doubleValue());
+            }
+        }
+    };
+
+    private static final JsonCodec FLOAT = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Float.valueOf(reader.readFloat());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeFloat(((Number) value).floatValue());
+            }
+        }
+    };
+
+    private static final JsonCodec BOOLEAN = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Boolean.valueOf(reader.readBoolean());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeBoolean((Boolean) value);
+            }
+        }
+    };
+
+    private static final JsonCodec CHAR = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            return reader.nextNull() ? null : Character.valueOf(reader.readChar());
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeChar((Character) value);
+            }
+        }
+    };
+
+    private static final JsonCodec BIG_DECIMAL = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            String value = reader.readString();
+            return value == null ? null : new BigDecimal(value);
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeNumber(value.toString());
+            }
+        }
+    };
+
+    private static final JsonCodec BIG_INTEGER = new JsonCodec() {
+        public Object read(JsonReader reader) throws IOException {
+            String value = reader.readString();
+            return value == null ? null : new BigInteger(value);
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeNumber(value.toString());
+            }
+        }
+    };
+
+    static class EnumCodec implements JsonCodec {
+
+        private final Class<?> type;
+
+        private final Map<String, Object> constants = new HashMap<String, Object>();
+
+        EnumCodec(Class<?> type) {
+            this.type = type;
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+
+        public Object read(JsonReader reader) throws IOException {
+            String name = reader.readString();
+            return name == null ? null : constants.get(name);
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            writer.writeString(value == null ? null : ((Enum<?>) value).name());
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+    }
+
+    static class ArrayCodec implements JsonCodec {
+
+        private final Class<?> componentType;
+
+        private final JsonCodec componentCodec;
+
+        ArrayCodec(Class<?> componentType, JsonCodec componentCodec) {
+            this.componentType = componentType;
+            this.componentCodec = componentCodec;
+        }
+
+        public Object read(JsonReader reader) throws IOException {
+            if (reader.nextNull()) {
+                return null;
+            }
+            List<Object> list = new ArrayList<Object>();
+            reader.beginArray();
+            while (reader.hasNextElement()) {
+                list.add(componentCodec.read(reader));
+            }
+
+            int len = list.size();
+            Object array = Array.newInstance(componentType, len);
+            boolean primitive = componentType.isPrimitive();
+            for (int i = 0; i < len; i++) {
+                Object element = list.get(i);
+                if (element != null || !primitive) {
+                    Array.set(array, i, element);
+                }
+            }
+            return array;
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+                return;
+            }
+            writer.beginArray();
+            for (int i = 0, len = Array.getLength(value); i < len; i++) {
+                if (i > 0) {
+                    writer.writeComma();
+                }
+                componentCodec.write(writer, Array.get(value, i));
+            }
+            writer.endArray();
+        }
+    }
+
+    static class CollectionCodec implements JsonCodec {
+
+        private final Class<?> type;
+
+        private final JsonCodec elementCodec;
+
+        CollectionCodec(Class<?> type, JsonCodec elementCodec) {
+            this.type = type;
+            this.elementCodec = elementCodec;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object read(JsonReader reader) throws IOException {
+            if (reader.nextNull()) {
+                return null;
+            }
+            Collection<Object> collection = (Collection<Object>) newCollection();
+            reader.beginArray();
+            while (reader.hasNextElement()) {
+                collection.add(elementCodec.read(reader));
+            }
+            return collection;
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+                return;
+            }
+            writer.beginArray();
+            if (value instanceof List && value instanceof java.util.RandomAccess) {
+                List<?> list = (List<?>) value;
+                for (int i = 0, len = list.size(); i < len; i++) {
+                    if (i > 0) {
+                        writer.writeComma();
+                    }
+                    elementCodec.write(writer, list.get(i));
+                }
+            } else {
+                boolean first = true;
+                for (Object element : (Collection<?>) value) {
+                    if (!first) {
+                        writer.writeComma();
+                    }
+                    elementCodec.write(writer, element);
+                    first = false;
+                }
+            }
+            writer.endArray();
+        }
+
+        private Object newCollection() throws IOException {
+            if (type.isAssignableFrom(ArrayList.class)) {
+                return new ArrayList<Object>();
+            }
+            if (type.isAssignableFrom(LinkedHashSet.class)) {
+                return new LinkedHashSet<Object>();
+            }
+            if (type.isAssignableFrom(TreeSet.class) && SortedSet.class.isAssignableFrom(type)) {
+                return new TreeSet<Object>();
+            }
+            if (type.isAssignableFrom(ArrayDeque.class) && Queue.class.isAssignableFrom(type)) {
+                return new ArrayDeque<Object>();
+            }
+            return newInstance(type);
+        }
+    }
+
+    static class MapCodec implements JsonCodec {
+
+        private final Class<?> type;
+
+        private final Class<?> keyType;
+
+        private final JsonCodec keyCodec;
+
+        private final JsonCodec valueCodec;
+
+        MapCodec(Class<?> type, Class<?> keyType, JsonCodec valueCodec) {
+            this.type = type;
+            this.keyType = keyType;
+            this.keyCodec = keyType == String.class || keyType == Object.class ? null : of(keyType);
+            this.valueCodec = valueCodec;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object read(JsonReader reader) throws IOException {
+            if (reader.nextNull()) {
+                return null;
+            }
+            Map<Object, Object> map = (Map<Object, Object>) newMap();
+            reader.beginObject();
+            while (reader.hasNextField()) {
+                String name = reader.nextName();
+                Object key = name;
+                if (keyCodec != null) {
+                    // 键按JSON字符串再解析一次, 数字和枚举都可以从字符串读取
+                    byte[] field = JsonWriter.fieldOf(name);
+                    key = keyCodec.read(new JsonReader(field, 1, field.length - 2));
+                }
+                map.put(key, valueCodec.read(reader));
+            }
+            return map;
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+                return;
+            }
+            writer.beginObject();
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object key = entry.getKey();
+                writer.writeName(key instanceof Enum ? ((Enum<?>) key).name() : String.valueOf(key), first);
+                valueCodec.write(writer, entry.getValue());
+                first = false;
+            }
+            writer.endObject();
+        }
+
+        private Object newMap() throws IOException {
+            if (type.isAssignableFrom(LinkedHashMap.class)) {
+                return new LinkedHashMap<Object, Object>();
+            }
+            if (type.isAssignableFrom(TreeMap.class) && SortedMap.class.isAssignableFrom(type)) {
+                return new TreeMap<Object, Object>();
+            }
+            if (type.isAssignableFrom(ConcurrentHashMap.class)) {
+                return new ConcurrentHashMap<Object, Object>();
+            }
+            return newInstance(type);
+        }
+
+        public Class<?> getKeyType() {
+            return keyType;
+        }
+    }
+
+    /**
+     * 没有内置实现的JDK类型(如Date), 与原来一样使用Gson读写
+     */
+    static class GsonCodec implements JsonCodec {
+
+        private static final Gson GSON = new Gson();
+
+        private final Class<?> type;
+
+        GsonCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        public Object read(JsonReader reader) throws IOException {
+            if (reader.nextNull()) {
+                return null;
+            }
+            return GSON.fromJson(reader.readRaw(), type);
+        }
+
+        public void write(JsonWriter writer, Object value) throws IOException {
+            if (value == null) {
+                writer.writeNull();
+                return;
+            }
+            writer.writeRaw(GSON.toJson(value, type));
+        }
+    }
+
+    private static Object newInstance(Class<?> type) throws IOException {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new JsonException("can not create instance of " + type.getName(), e);
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package io.github.caseforge.awaken.json;
+
+import java.io.IOException;
+
+@SuppressWarnings("serial")
+public class JsonException extends IOException {
+
+    public JsonException(String message) {
+        super(message);
+    }
+
+    public JsonException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
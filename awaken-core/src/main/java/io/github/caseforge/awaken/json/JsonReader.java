@@ -0,0 +1,529 @@
+package io.github.caseforge.awaken.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 直接在UTF-8字节上解析JSON, 属性名按字节比较, 不生成中间的字符串和JsonElement
+ */
+public class JsonReader {
+
+    private final byte[] buf;
+
+    private int pos;
+
+    private final int limit;
+
+    public JsonReader(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    public JsonReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    public static JsonReader of(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            JsonReader reader = new JsonReader(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return reader;
+        }
+        byte[] bs = new byte[buffer.remaining()];
+        buffer.get(bs);
+        return new JsonReader(bs);
+    }
+
+    public static JsonReader of(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] bs = new byte[4096];
+        int len = 0;
+        while ((len = inputStream.read(bs)) != -1) {
+            bos.write(bs, 0, len);
+        }
+        return new JsonReader(bos.toByteArray());
+    }
+
+    /**
+     * 下一个值是null时跳过并返回true
+     */
+    public boolean nextNull() throws IOException {
+        int c = peek();
+        if (c == 'n') {
+            expectLiteral("null");
+            return true;
+        }
+        return false;
+    }
+
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    /**
+     * 跳过分隔的逗号, 遇到}时结束当前对象并返回false
+     */
+    public boolean hasNextField() throws IOException {
+        int c = peek();
+        if (c == '}') {
+            pos++;
+            return false;
+        }
+        if (c == ',') {
+            pos++;
+        }
+        return true;
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    /**
+     * 跳过分隔的逗号, 遇到]时结束当前数组并返回false
+     */
+    public boolean hasNextElement() throws IOException {
+        int c = peek();
+        if (c == ']') {
+            pos++;
+            return false;
+        }
+        if (c == ',') {
+            pos++;
+        }
+        return true;
+    }
+
+    /**
+     * 读取属性名和冒号, 返回属性名在names中的下标
+     *
+     * @param names 属性名的UTF-8字节
+     * @return 不存在时返回-1
+     * @throws IOException
+     */
+    public int nextField(byte[][] names) throws IOException {
+        expect('"');
+        int start = pos;
+        boolean escaped = false;
+        while (true) {
+            if (pos >= limit) {
+                throw error("unterminated string");
+            }
+            byte b = buf[pos];
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\') {
+                escaped = true;
+                pos++;
+            }
+            pos++;
+        }
+        int end = pos++;
+        expect(':');
+
+        if (escaped) {
+            String name = decode(start, end);
+            for (int i = 0; i < names.length; i++) {
+                if (name.equals(new String(names[i], StandardCharsets.UTF_8))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int len = end - start;
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length != len) {
+                continue;
+            }
+            int j = 0;
+            while (j < len && name[j] == buf[start + j]) {
+                j++;
+            }
+            if (j == len) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String nextName() throws IOException {
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    public String readString() throws IOException {
+        int c = peek();
+        if (c == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        if (c != '"') {
+            // 与Gson一致, 数字和布尔值可以作为字符串读取
+            return readToken();
+        }
+        pos++;
+
+        int start = pos;
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b == '"') {
+                return new String(buf, start, pos++ - start, StandardCharsets.ISO_8859_1);
+            }
+            if (b == '\\' || b < 0) {
+                break;
+            }
+            pos++;
+        }
+
+        // 含有转义或非ASCII字符
+        int end = start;
+        while (true) {
+            if (end >= limit) {
+                throw error("unterminated string");
+            }
+            byte b = buf[end];
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\') {
+                end++;
+            }
+            end++;
+        }
+        pos = end + 1;
+        return decode(start, end);
+    }
+
+    public char readChar() throws IOException {
+        String s = readString();
+        if (s == null || s.length() != 1) {
+            throw error("expected a char but was " + s);
+        }
+        return s.charAt(0);
+    }
+
+    public boolean readBoolean() throws IOException {
+        int c = peek();
+        boolean quoted = c == '"';
+        if (quoted) {
+            pos++;
+            c = peek();
+        }
+        boolean value = false;
+        if (c == 't') {
+            expectLiteral("true");
+            value = true;
+        } else if (c == 'f') {
+            expectLiteral("false");
+        } else {
+            throw error("expected a boolean");
+        }
+        if (quoted) {
+            expect('"');
+        }
+        return value;
+    }
+
+    public int readInt() throws IOException {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("expected an int but was " + value);
+        }
+        return (int) value;
+    }
+
+    public long readLong() throws IOException {
+        int c = peek();
+        boolean quoted = c == '"';
+        if (quoted) {
+            pos++;
+        }
+
+        int start = pos;
+        boolean negative = false;
+        if (pos < limit && buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (pos < limit) {
+            int d = buf[pos] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            value = value * 10 + d;
+            digits++;
+            pos++;
+        }
+
+        if (digits == 0 || digits > 18 || (pos < limit && isFraction(buf[pos]))) {
+            // 小数, 指数或可能溢出的数字
+            pos = start;
+            String token = readToken(quoted);
+            try {
+                return Long.parseLong(token);
+            } catch (NumberFormatException e) {
+                double d = parseDouble(token);
+                long l = (long) d;
+                if (l != d) {
+                    throw error("expected a long but was " + token);
+                }
+                return l;
+            }
+        }
+
+        if (quoted) {
+            expect('"');
+        }
+        return negative ? -value : value;
+    }
+
+    public double readDouble() throws IOException {
+        int c = peek();
+        boolean quoted = c == '"';
+        if (quoted) {
+            pos++;
+        }
+        return parseDouble(readToken(quoted));
+    }
+
+    public float readFloat() throws IOException {
+        return (float) readDouble();
+    }
+
+    /**
+     * 读取任意值, 对象为Map, 数组为List, 数字为Double, 与Gson读取Object时一致
+     */
+    public Object readValue() throws IOException {
+        int c = peek();
+        switch (c) {
+        case '{':
+            pos++;
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            while (hasNextField()) {
+                String name = nextName();
+                map.put(name, readValue());
+            }
+            return map;
+        case '[':
+            pos++;
+            List<Object> list = new ArrayList<Object>();
+            while (hasNextElement()) {
+                list.add(readValue());
+            }
+            return list;
+        case '"':
+            return readString();
+        case 't':
+        case 'f':
+            return readBoolean();
+        case 'n':
+            expectLiteral("null");
+            return null;
+        default:
+            return readDouble();
+        }
+    }
+
+    /**
+     * 读取下一个值的原始文本
+     */
+    public String readRaw() throws IOException {
+        peek();
+        int start = pos;
+        skipValue();
+        return new String(buf, start, pos - start, StandardCharsets.UTF_8);
+    }
+
+    public void skipValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            skipString();
+            return;
+        }
+
+        if (c != '{' && c != '[') {
+            readToken();
+            return;
+        }
+
+        int depth = 0;
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b == '"') {
+                skipString();
+                continue;
+            }
+            pos++;
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("unexpected end of input");
+    }
+
+    private void skipString() throws IOException {
+        pos++;
+        while (pos < limit) {
+            byte b = buf[pos++];
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                pos++;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private String readToken() throws IOException {
+        return readToken(false);
+    }
+
+    private String readToken(boolean quoted) throws IOException {
+        int start = pos;
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (quoted ? b == '"' : isDelimiter(b)) {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw error("expected a value");
+        }
+        String token = new String(buf, start, pos - start, StandardCharsets.ISO_8859_1);
+        if (quoted) {
+            expect('"');
+        }
+        return token;
+    }
+
+    private double parseDouble(String token) throws IOException {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw error("expected a number but was " + token);
+        }
+    }
+
+    private String decode(int start, int end) throws IOException {
+        StringBuilder builder = new StringBuilder(end - start);
+        int segment = start;
+        int i = start;
+        while (i < end) {
+            if (buf[i] != '\\') {
+                i++;
+                continue;
+            }
+            if (i > segment) {
+                builder.append(new String(buf, segment, i - segment, StandardCharsets.UTF_8));
+            }
+            if (i + 1 >= end) {
+                throw error("invalid escape");
+            }
+            byte e = buf[i + 1];
+            i += 2;
+            switch (e) {
+            case 'n':
+                builder.append('\n');
+                break;
+            case 't':
+                builder.append('\t');
+                break;
+            case 'r':
+                builder.append('\r');
+                break;
+            case 'b':
+                builder.append('\b');
+                break;
+            case 'f':
+                builder.append('\f');
+                break;
+            case 'u':
+                if (i + 4 > end) {
+                    throw error("invalid unicode escape");
+                }
+                try {
+                    builder.append((char) Integer.parseInt(new String(buf, i, 4, StandardCharsets.ISO_8859_1), 16));
+                } catch (NumberFormatException ex) {
+                    throw error("invalid unicode escape");
+                }
+                i += 4;
+                break;
+            default:
+                builder.append((char) e);
+            }
+            segment = i;
+        }
+        if (end > segment) {
+            builder.append(new String(buf, segment, end - segment, StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+    }
+
+    private boolean isFraction(byte b) {
+        return b == '.' || b == 'e' || b == 'E';
+    }
+
+    private boolean isDelimiter(byte b) {
+        return b == ',' || b == '}' || b == ']' || b == ':' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        int len = literal.length();
+        if (pos + len > limit) {
+            throw error("expected " + literal);
+        }
+        for (int i = 0; i < len; i++) {
+            if (buf[pos + i] != literal.charAt(i)) {
+                throw error("expected " + literal);
+            }
+        }
+        pos += len;
+    }
+
+    private void expect(char c) throws IOException {
+        if (peek() != c) {
+            throw error("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * 跳过空白, 返回下一个字符但不消费
+     */
+    private int peek() throws IOException {
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b;
+            }
+            pos++;
+        }
+        throw error("unexpected end of input");
+    }
+
+    private JsonException error(String message) {
+        return new JsonException(message + " at position " + pos);
+    }
+
+}
@@ -0,0 +1,327 @@
+package io.github.caseforge.awaken.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 直接写出UTF-8字节的JSON输出, 指定OutputStream时缓冲区写满后写入流中
+ */
+public class JsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * 每次编码的字符数, 用于限制缓冲区的扩容
+     */
+    private static final int CHUNK = 1024;
+
+    private byte[] buf;
+
+    private int count;
+
+    private OutputStream out;
+
+    public JsonWriter() {
+        this(256);
+    }
+
+    public JsonWriter(int size) {
+        buf = new byte[size];
+    }
+
+    public JsonWriter(OutputStream out) {
+        this(8192);
+        this.out = out;
+    }
+
+    /**
+     * 生成属性名的字节, 格式为 ,"name": 第一个属性写出时跳过逗号
+     *
+     * @param name
+     * @return
+     */
+    public static byte[] fieldOf(String name) {
+        JsonWriter writer = new JsonWriter(name.length() + 8);
+        try {
+            writer.writeByte(',');
+            writer.writeString(name);
+            writer.writeByte(':');
+        } catch (IOException e) {
+            // 没有OutputStream时不会发生
+            throw new IllegalStateException(e);
+        }
+        return writer.toByteArray();
+    }
+
+    public void writeNull() throws IOException {
+        writeBytes(NULL);
+    }
+
+    public void beginObject() throws IOException {
+        writeByte('{');
+    }
+
+    public void endObject() throws IOException {
+        writeByte('}');
+    }
+
+    public void beginArray() throws IOException {
+        writeByte('[');
+    }
+
+    public void endArray() throws IOException {
+        writeByte(']');
+    }
+
+    public void writeComma() throws IOException {
+        writeByte(',');
+    }
+
+    /**
+     * @param field 由{@link #fieldOf(String)}生成
+     * @param first 是否为对象的第一个属性
+     */
+    public void writeField(byte[] field, boolean first) throws IOException {
+        int offset = first ? 1 : 0;
+        int len = field.length - offset;
+        ensure(len);
+        System.arraycopy(field, offset, buf, count, len);
+        count += len;
+    }
+
+    public void writeName(String name, boolean first) throws IOException {
+        if (!first) {
+            writeByte(',');
+        }
+        writeString(name);
+        writeByte(':');
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        writeBytes(value ? TRUE : FALSE);
+    }
+
+    public void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+            return;
+        }
+
+        ensure(20);
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+
+        int start = count;
+        do {
+            buf[count++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+
+        // 反转写出的数字
+        for (int i = start, j = count - 1; i < j; i++, j--) {
+            byte b = buf[i];
+            buf[i] = buf[j];
+            buf[j] = b;
+        }
+    }
+
+    public void writeDouble(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new JsonException(value + " is not a valid JSON number");
+        }
+        // 与Double.toString的结果一致, 小于1e7的整数不需要转换为字符串
+        if (value == (long) value && Math.abs(value) < 1e7) {
+            writeLong((long) value);
+            writeByte('.');
+            writeByte('0');
+            return;
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    public void writeFloat(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new JsonException(value + " is not a valid JSON number");
+        }
+        writeAscii(Float.toString(value));
+    }
+
+    public void writeChar(char value) throws IOException {
+        writeString(String.valueOf(value));
+    }
+
+    /**
+     * 写出数字的文本, 如BigDecimal
+     */
+    public void writeNumber(String value) throws IOException {
+        writeAscii(value);
+    }
+
+    /**
+     * 写出已经是JSON格式的文本
+     */
+    public void writeRaw(String json) throws IOException {
+        writeBytes(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+
+        writeByte('"');
+        int len = value.length();
+        int i = 0;
+        while (i < len) {
+            int to = Math.min(len, i + CHUNK);
+            // 最坏情况每个字符输出6个字节, 末尾的代理对可能多读一个字符
+            ensure((to - i) * 6 + 4);
+            while (i < to) {
+                char c = value.charAt(i++);
+                if (c < 0x80) {
+                    if (c >= 0x20 && c != '"' && c != '\\') {
+                        buf[count++] = (byte) c;
+                    } else {
+                        escape(c);
+                    }
+                } else if (c < 0x800) {
+                    buf[count++] = (byte) (0xc0 | (c >> 6));
+                    buf[count++] = (byte) (0x80 | (c & 0x3f));
+                } else if (c == '\u2028' || c == '\u2029') {
+                    escape(c);
+                } else if (Character.isHighSurrogate(c) && i < len && Character.isLowSurrogate(value.charAt(i))) {
+                    int cp = Character.toCodePoint(c, value.charAt(i++));
+                    buf[count++] = (byte) (0xf0 | (cp >> 18));
+                    buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    buf[count++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    buf[count++] = (byte) (0xe0 | (c >> 12));
+                    buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buf[count++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+        writeByte('"');
+    }
+
+    private void escape(char c) {
+        buf[count++] = '\\';
+        switch (c) {
+        case '"':
+            buf[count++] = '"';
+            break;
+        case '\\':
+            buf[count++] = '\\';
+            break;
+        case '\n':
+            buf[count++] = 'n';
+            break;
+        case '\r':
+            buf[count++] = 'r';
+            break;
+        case '\t':
+            buf[count++] = 't';
+            break;
+        case '\b':
+            buf[count++] = 'b';
+            break;
+        case '\f':
+            buf[count++] = 'f';
+            break;
+        default:
+            buf[count++] = 'u';
+            buf[count++] = HEX[(c >> 12) & 0xf];
+            buf[count++] = HEX[(c >> 8) & 0xf];
+            buf[count++] = HEX[(c >> 4) & 0xf];
+            buf[count++] = HEX[c & 0xf];
+        }
+    }
+
+    private void writeAscii(String value) throws IOException {
+        int len = value.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    public void writeByte(int b) throws IOException {
+        ensure(1);
+        buf[count++] = (byte) b;
+    }
+
+    public void writeBytes(byte[] bs) throws IOException {
+        ensure(bs.length);
+        System.arraycopy(bs, 0, buf, count, bs.length);
+        count += bs.length;
+    }
+
+    private void ensure(int len) throws IOException {
+        if (count + len <= buf.length) {
+            return;
+        }
+        if (out != null && count > 0) {
+            flushBuffer();
+            if (len <= buf.length) {
+                return;
+            }
+        }
+        buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buf, 0, count);
+        count = 0;
+    }
+
+    /**
+     * 把缓冲区中的内容写入OutputStream
+     */
+    public void flush() throws IOException {
+        if (out != null) {
+            out.write(buf, 0, count);
+            count = 0;
+            out.flush();
+        }
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buf, 0, count);
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(buf, 0, count);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+}
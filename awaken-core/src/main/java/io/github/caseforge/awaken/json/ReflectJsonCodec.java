@@ -0,0 +1,120 @@
+package io.github.caseforge.awaken.json;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.List;
+
+import io.github.caseforge.awaken.core.Accessor;
+import io.github.caseforge.awaken.core.Accessors;
+import io.github.caseforge.awaken.core.Property;
+
+/**
+ * 无法生成JsonCodec的类型(如非public的类型)通过Accessor读写属性
+ */
+public class ReflectJsonCodec extends AbstractJsonCodec {
+
+    private final Accessor accessor;
+
+    private final Property[] properties;
+
+    private final int[] indexes;
+
+    private final byte[][] names;
+
+    private final byte[][] fields;
+
+    private volatile Constructor<?> constructor;
+
+    public ReflectJsonCodec(Class<?> type, List<Property> properties, String[] names) {
+        super(type, keysOf(properties));
+        this.accessor = Accessors.of(type);
+        this.properties = properties.toArray(new Property[properties.size()]);
+        this.names = namesOf(names);
+        this.fields = fieldsOf(names);
+        this.indexes = new int[this.properties.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = accessor.indexOf(this.properties[i].getKey());
+        }
+    }
+
+    @Override
+    public Object read(JsonReader reader) throws IOException {
+        if (reader.nextNull()) {
+            return null;
+        }
+
+        Object bean = newInstance();
+        reader.beginObject();
+        while (reader.hasNextField()) {
+            int i = reader.nextField(names);
+            if (i < 0 || properties[i].getWriteMethod() == null) {
+                reader.skipValue();
+                continue;
+            }
+
+            Object value = codecOf(i).read(reader);
+            if (value == null && properties[i].getType().isPrimitive()) {
+                continue;
+            }
+            try {
+                accessor.set(bean, indexes[i], value);
+            } catch (Exception e) {
+                throw new JsonException("error in setting " + properties[i].getKey() + " of " + getType().getName(), e);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public void write(JsonWriter writer, Object value) throws IOException {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+
+        writer.beginObject();
+        boolean first = true;
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i].getReadMethod() == null) {
+                continue;
+            }
+
+            Object propertyValue = null;
+            try {
+                propertyValue = accessor.get(value, indexes[i]);
+            } catch (Exception e) {
+                throw new JsonException("error in getting " + properties[i].getKey() + " of " + getType().getName(), e);
+            }
+
+            if (propertyValue != null) {
+                writer.writeField(fields[i], first);
+                codecOf(i).write(writer, propertyValue);
+                first = false;
+            }
+        }
+        writer.endObject();
+    }
+
+    private Object newInstance() throws IOException {
+        try {
+            Constructor<?> c = constructor;
+            if (c == null) {
+                c = getType().getDeclaredConstructor();
+                c.setAccessible(true);
+                constructor = c;
+            }
+            return c.newInstance();
+        } catch (Exception e) {
+            throw new JsonException("can not create instance of " + getType().getName(), e);
+        }
+    }
+
+    private static String[] keysOf(List<Property> properties) {
+        String[] keys = new String[properties.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = properties.get(i).getKey();
+        }
+        return keys;
+    }
+
+}
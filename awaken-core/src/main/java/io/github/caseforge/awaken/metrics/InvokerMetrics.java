@@ -0,0 +1,178 @@
+package io.github.caseforge.awaken.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.github.caseforge.awaken.cache.TinyLfuCache;
+
+/**
+ * 一个 uri@rule 各阶段的延迟直方图, 各阶段只记录成功的调用, 失败调用的总耗时记在error中
+ */
+public class InvokerMetrics implements InvokerMetricsMXBean {
+
+    public static final String ASSIGNMENT = "assignment";
+
+    public static final String VALIDATION = "validation";
+
+    public static final String INVOKE = "invoke";
+
+    public static final String MASK = "mask";
+
+    public static final String TOTAL = "total";
+
+    public static final String ERROR = "error";
+
+    private static final String[] PHASES = { ASSIGNMENT, VALIDATION, INVOKE, MASK, TOTAL, ERROR };
+
+    private final String id;
+
+    private final LatencyHistogram assignment = new LatencyHistogram();
+
+    private final LatencyHistogram validation = new LatencyHistogram();
+
+    private final LatencyHistogram invoke = new LatencyHistogram();
+
+    private final LatencyHistogram mask = new LatencyHistogram();
+
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    private final LatencyHistogram error = new LatencyHistogram();
+
+    /**
+     * 规则配置了cache时的响应缓存, 否则为null
+     */
+    private volatile TinyLfuCache<?, ?> cache;
+
+    public InvokerMetrics(String id) {
+        this.id = id;
+    }
+
+    /**
+     * 记录一次调用各阶段的时间点, 没有的阶段传入与上一个相同的时间点
+     * 
+     * @param start 开始
+     * @param assigned 赋值结束
+     * @param validated 校验结束
+     * @param invoked 调用结束
+     * @param masked 掩码结束
+     */
+    public void record(long start, long assigned, long validated, long invoked, long masked) {
+        assignment.record(assigned - start);
+        validation.record(validated - assigned);
+        invoke.record(invoked - validated);
+        mask.record(masked - invoked);
+        total.record(masked - start);
+    }
+
+    /**
+     * 记录一次失败调用的总耗时
+     * 
+     * @param start 开始
+     * @param end 失败时
+     */
+    public void recordError(long start, long end) {
+        error.record(end - start);
+    }
+
+    public LatencyHistogram histogramOf(String phase) {
+        if (ASSIGNMENT.equals(phase)) {
+            return assignment;
+        } else if (VALIDATION.equals(phase)) {
+            return validation;
+        } else if (INVOKE.equals(phase)) {
+            return invoke;
+        } else if (MASK.equals(phase)) {
+            return mask;
+        } else if (TOTAL.equals(phase)) {
+            return total;
+        } else if (ERROR.equals(phase)) {
+            return error;
+        }
+        throw new IllegalArgumentException("unknown phase " + phase);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Map<String, Long> getCount() {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        for (String phase : PHASES) {
+            map.put(phase, histogramOf(phase).snapshot().getCount());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getP50() {
+        return percentiles(50);
+    }
+
+    @Override
+    public Map<String, Long> getP99() {
+        return percentiles(99);
+    }
+
+    @Override
+    public Map<String, Long> getP999() {
+        return percentiles(99.9);
+    }
+
+    @Override
+    public Map<String, Long> getMax() {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        for (String phase : PHASES) {
+            map.put(phase, histogramOf(phase).snapshot().getMax());
+        }
+        return map;
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        TinyLfuCache<?, ?> c = cache;
+        return c == null ? 0 : c.getHitCount();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        TinyLfuCache<?, ?> c = cache;
+        return c == null ? 0 : c.getMissCount();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        TinyLfuCache<?, ?> c = cache;
+        return c == null ? 0 : c.getHitRate();
+    }
+
+    @Override
+    public long percentile(String phase, double percentile) {
+        return histogramOf(phase).snapshot().percentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        for (String phase : PHASES) {
+            histogramOf(phase).reset();
+        }
+    }
+
+    private Map<String, Long> percentiles(double percentile) {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        for (String phase : PHASES) {
+            map.put(phase, histogramOf(phase).snapshot().percentile(percentile));
+        }
+        return map;
+    }
+
+    public TinyLfuCache<?, ?> getCache() {
+        return cache;
+    }
+
+    public void setCache(TinyLfuCache<?, ?> cache) {
+        this.cache = cache;
+    }
+
+}
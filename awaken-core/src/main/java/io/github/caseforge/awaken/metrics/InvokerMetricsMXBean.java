@@ -0,0 +1,35 @@
+package io.github.caseforge.awaken.metrics;
+
+import java.util.Map;
+
+/**
+ * 每个 uri@rule 一个MBean, Map的键为阶段名: assignment, validation, invoke, mask, total, 以及失败调用的error. 时间单位为纳秒
+ */
+public interface InvokerMetricsMXBean {
+
+    String getId();
+
+    Map<String, Long> getCount();
+
+    Map<String, Long> getP50();
+
+    Map<String, Long> getP99();
+
+    Map<String, Long> getP999();
+
+    Map<String, Long> getMax();
+
+    /**
+     * 规则没有配置cache时为0
+     */
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    double getCacheHitRate();
+
+    long percentile(String phase, double percentile);
+
+    void reset();
+
+}
@@ -0,0 +1,209 @@
+package io.github.caseforge.awaken.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 纳秒延迟的对数线性直方图(与HdrHistogram相同的分桶方式): 小于64的值每个值一个桶,
+ * 之后每个2的幂区间分为32个桶, 相对误差不超过1/32.
+ * <p>
+ * 与LongAdder相同的分段方式: 每个线程按自己的探针选择分段, 累加不加锁, 出现竞争时线程更换探针,
+ * 分段数翻倍, 最多为不小于CPU核数的2的幂. 没有竞争时只有一个分段, 没有调用的规则不占用计数数组. 读取时合并各分段
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+    /**
+     * 超过2^36纳秒(约68秒)的值记在最后一个桶
+     */
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private static final int MAX_STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    /**
+     * 每个线程的探针, 所有直方图共用, 竞争时按xorshift更换
+     */
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[] { mix(Thread.currentThread().getId()) });
+
+    private volatile AtomicLongArray[] stripes;
+
+    public void record(long nanos) {
+        int index = indexOf(Math.min(Math.max(nanos, 0), MAX_VALUE));
+        int[] probe = PROBE.get();
+        AtomicLongArray[] array = stripes;
+        if (array == null) {
+            array = grow(null);
+        }
+        AtomicLongArray stripe = array[probe[0] & (array.length - 1)];
+        if (stripe == null) {
+            stripe = stripeOf(probe[0] & (array.length - 1));
+        }
+
+        long count = stripe.get(index);
+        if (stripe.compareAndSet(index, count, count + 1)) {
+            return;
+        }
+
+        // 发生竞争: 本次记录仍写入当前分段, 之后换到其它分段
+        stripe.getAndIncrement(index);
+        int p = probe[0];
+        p ^= p << 13;
+        p ^= p >>> 17;
+        p ^= p << 5;
+        probe[0] = p;
+        if (array.length < MAX_STRIPES) {
+            grow(array);
+        }
+    }
+
+    /**
+     * @param current 调用方看到的分段数组, 已被其它线程替换时不再扩容
+     */
+    private synchronized AtomicLongArray[] grow(AtomicLongArray[] current) {
+        AtomicLongArray[] array = stripes;
+        if (array == null) {
+            array = new AtomicLongArray[] { new AtomicLongArray(BUCKET_COUNT) };
+        } else if (array == current && array.length < MAX_STRIPES) {
+            AtomicLongArray[] grown = new AtomicLongArray[array.length << 1];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            array = grown;
+        }
+        stripes = array;
+        return array;
+    }
+
+    /**
+     * 分段只在最新的数组中创建, 扩容复制的是分段的引用, 所以任何分段都不会丢失计数
+     */
+    private synchronized AtomicLongArray stripeOf(int i) {
+        AtomicLongArray[] latest = stripes;
+        if (latest[i] == null) {
+            latest[i] = new AtomicLongArray(BUCKET_COUNT);
+            // 重新发布数组, 使其它线程看到新分段
+            stripes = latest;
+        }
+        return latest[i];
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        int p = (int) (h ^ (h >>> 32));
+        return p == 0 ? 1 : p;
+    }
+
+    /**
+     * 合并各分段的计数, 结果与之后的记录无关
+     * 
+     * @return
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        AtomicLongArray[] array = stripes;
+        if (array != null) {
+            for (AtomicLongArray stripe : array) {
+                if (stripe != null) {
+                    for (int i = 0; i < BUCKET_COUNT; i++) {
+                        counts[i] += stripe.get(i);
+                    }
+                }
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    public void reset() {
+        AtomicLongArray[] array = stripes;
+        if (array != null) {
+            for (AtomicLongArray stripe : array) {
+                if (stripe != null) {
+                    for (int i = 0; i < BUCKET_COUNT; i++) {
+                        stripe.set(i, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    static int indexOf(long value) {
+        int magnitude = 64 - Long.numberOfLeadingZeros(value | (SUB_BUCKET_HALF * 2 - 1)) - SUB_BUCKET_BITS;
+        return magnitude * SUB_BUCKET_HALF + (int) (value >>> magnitude);
+    }
+
+    /**
+     * 桶中的最大值
+     */
+    static long valueOf(int index) {
+        if (index < SUB_BUCKET_HALF * 2) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKET_HALF - 1;
+        long sub = index - magnitude * SUB_BUCKET_HALF;
+        return ((sub + 1) << magnitude) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile 0到100
+         * @return 纳秒, 没有记录时为0
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return valueOf(i);
+                }
+            }
+            return valueOf(counts.length - 1);
+        }
+
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return valueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        public double getMean() {
+            if (count == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    sum += (double) counts[i] * valueOf(i);
+                }
+            }
+            return sum / count;
+        }
+    }
+
+}
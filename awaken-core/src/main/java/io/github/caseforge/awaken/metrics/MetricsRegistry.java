@@ -0,0 +1,92 @@
+package io.github.caseforge.awaken.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 uri@rule 保存InvokerMetrics, 规则重新加载后继续使用原来的直方图
+ */
+public class MetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    public static final String DOMAIN = "io.github.caseforge.awaken";
+
+    private final Map<String, InvokerMetrics> metricsMap = new ConcurrentHashMap<String, InvokerMetrics>();
+
+    /**
+     * 是否把每个InvokerMetrics注册为JMX MBean
+     */
+    private boolean jmx;
+
+    public InvokerMetrics of(String id) {
+        return metricsMap.computeIfAbsent(id, key -> {
+            InvokerMetrics metrics = new InvokerMetrics(key);
+            if (jmx) {
+                register(metrics);
+            }
+            return metrics;
+        });
+    }
+
+    public InvokerMetrics find(String id) {
+        return metricsMap.get(id);
+    }
+
+    public Map<String, InvokerMetrics> getMetricsMap() {
+        return metricsMap;
+    }
+
+    /**
+     * 注销所有MBean
+     */
+    public void close() {
+        if (!jmx) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String id : metricsMap.keySet()) {
+            try {
+                ObjectName name = nameOf(id);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("error in unregistering metrics of " + id, e);
+            }
+        }
+    }
+
+    private void register(InvokerMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = nameOf(metrics.getId());
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (Exception e) {
+            LOGGER.warn("error in registering metrics of " + metrics.getId(), e);
+        }
+    }
+
+    private ObjectName nameOf(String id) throws Exception {
+        return new ObjectName(DOMAIN + ":type=Invoker,name=" + ObjectName.quote(id));
+    }
+
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    public void setJmx(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+}
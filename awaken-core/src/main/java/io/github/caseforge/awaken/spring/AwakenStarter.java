@@ -7,10 +7,16 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
@@ -30,8 +36,12 @@ import io.github.caseforge.awaken.annotation.Provider;
 import io.github.caseforge.awaken.annotation.Validator;
 import io.github.caseforge.awaken.core.Coder;
 import io.github.caseforge.awaken.core.InvokerRegister;
+import io.github.caseforge.awaken.core.InvokerRouter;
+import io.github.caseforge.awaken.core.VirtualThreads;
+import io.github.caseforge.awaken.jfr.FlightEvents;
+import io.github.caseforge.awaken.metrics.MetricsRegistry;
 
-public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitionRegistryPostProcessor, ApplicationListener<ContextRefreshedEvent> {
+public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitionRegistryPostProcessor, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AwakenStarter.class);
 
@@ -39,19 +49,82 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
 
     protected String[] basePackages;
 
+    /**
+     * 启动时并发生成Request/Response/Invoker类的线程数, 小于1时不预先生成
+     */
+    protected int parallelism;
+
+    /**
+     * 是否把assignment, validation和mask规则编译为字节码, 默认使用规则树解释执行
+     */
+    protected boolean compile;
+
+    /**
+     * 是否为每条规则生成一个合并了赋值, 校验, 调用和掩码的Invoker类
+     */
+    protected boolean fuse;
+
+    /**
+     * 是否在虚拟线程中执行invoke, invokeBatch和invokeAsync, 同步调用时调用线程等待执行完成, 不支持虚拟线程的JVM使用平台线程
+     */
+    protected boolean virtualThreads;
+
+    /**
+     * 执行调用的Executor, 为null且virtualThreads为true时自动创建
+     */
+    protected ExecutorService executor;
+
+    private boolean ownedExecutor;
+
+    /**
+     * 是否记录每条规则赋值, 校验, 调用和掩码的耗时, 并注册为JMX MBean
+     */
+    protected boolean metrics;
+
+    protected MetricsRegistry metricsRegistry;
+
+    /**
+     * 规则配置了parallelThreshold时*节点并行赋值和校验使用的线程池, 为null时使用ForkJoinPool.commonPool()
+     */
+    protected ForkJoinPool forkJoinPool;
+
+    /**
+     * 检查规则文件变化的间隔(毫秒), 小于1时不检查
+     */
+    protected long reloadInterval;
+
     protected BeanDefinitionRegistry registry;
 
+    protected InvokerRegister invokerRegister;
+
+    protected ScheduledExecutorService ruleWatcher;
+
     protected Map<String, Method> svcMethodMap = new HashMap<String, Method>();
 
     protected Map<String, Invoker> invokerMap = new HashMap<String, Invoker>();
 
+    /**
+     * 注册完成后由invokerMap生成, 查找时不拼接字符串
+     */
+    protected volatile InvokerRouter router = InvokerRouter.EMPTY;
+
     protected Map<String, Integer> faultCodeMap = new HashMap<String, Integer>();
 
     protected Map<String, String> faultMsgMap = new HashMap<String, String>();
 
     @Override
     public Invoker findInvoker(String id) {
-        return invokerMap.get(id);
+        return router.find(id);
+    }
+
+    @Override
+    public Invoker findInvoker(CharSequence uri, CharSequence rule) {
+        return router.find(uri, rule);
+    }
+
+    @Override
+    public Invoker findInvoker(byte[] bs, int offset, int length) {
+        return router.find(bs, offset, length);
     }
 
     @Override
@@ -79,12 +152,32 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
             
             registValidatorAndProvider(ctx);
 
+            if (parallelism > 0) {
+                coder.prepare(svcMethodMap.values(), parallelism);
+            }
+
             // 注册invoker
             Set<String> uriSet = svcMethodMap.keySet();
 
-            InvokerRegister invokerRegister = new InvokerRegister();
+            invokerRegister = new InvokerRegister();
             invokerRegister.setCoder(coder);
             invokerRegister.setInvokerMap(invokerMap);
+            invokerRegister.setCompile(compile);
+            invokerRegister.setFuse(fuse);
+
+            if (executor == null && virtualThreads) {
+                executor = VirtualThreads.newExecutor("awaken-invoker-");
+                ownedExecutor = true;
+                LOGGER.info("invokers dispatched to " + (VirtualThreads.isSupported() ? "virtual threads" : "platform threads, virtual threads are not supported"));
+            }
+            invokerRegister.setExecutor(executor);
+
+            if (metrics && metricsRegistry == null) {
+                metricsRegistry = new MetricsRegistry();
+                metricsRegistry.setJmx(true);
+            }
+            invokerRegister.setMetricsRegistry(metricsRegistry);
+            invokerRegister.setForkJoinPool(forkJoinPool);
 
             invokerRegister.setResourceProvider(resourceProvider);
 
@@ -94,6 +187,17 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
                 invokerRegister.regist(uri, method);
             }
 
+            router = invokerRegister.buildRouter();
+
+            if (reloadInterval > 0 && ruleWatcher == null) {
+                ruleWatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "awaken-rule-watcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                ruleWatcher.scheduleWithFixedDelay(this::reloadRules, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+            }
+
             // 初始化异常处理
             initFaultHandler(ctx);
 
@@ -103,6 +207,35 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
         }
     }
 
+    /**
+     * 重新加载变化的规则文件, 生成新的路由表后一次性替换, 正在执行的请求继续使用原来的Invoker
+     */
+    protected void reloadRules() {
+        try {
+            if (invokerRegister.reload()) {
+                invokerMap = invokerRegister.getInvokerMap();
+                router = invokerRegister.buildRouter();
+                LOGGER.info("rules reloaded, " + router.size() + " invokers registered");
+            }
+        } catch (Throwable e) {
+            LOGGER.error("error in reloading rules, the previous rules are kept", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (ruleWatcher != null) {
+            ruleWatcher.shutdownNow();
+            ruleWatcher = null;
+        }
+        if (ownedExecutor) {
+            executor.shutdown();
+        }
+        if (metricsRegistry != null) {
+            metricsRegistry.close();
+        }
+    }
+
     protected void registStaticValidator(ApplicationContext ctx) throws Exception {
         Resource[] resources = ctx.getResources("classpath*:validators.properties");
         for (Resource resource : resources) {
@@ -266,7 +399,9 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
     @Override
     public Fault handle(Throwable t) {
         if (t instanceof Fault) {
-            return (Fault) t;
+            Fault fault = (Fault) t;
+            FlightEvents.faultMapped(t, fault.getCode(), fault.getMsg());
+            return fault;
         }
 
         Class<?> type = t.getClass();
@@ -289,6 +424,7 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
             type = type.getSuperclass();
         }
 
+        FlightEvents.faultMapped(t, faultImpl.getCode(), faultImpl.getMsg());
         return faultImpl;
     }
 
@@ -300,4 +436,72 @@ public class AwakenStarter implements InvokerBucket, FaultHandler, BeanDefinitio
         this.basePackages = basePackages;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isCompile() {
+        return compile;
+    }
+
+    public void setCompile(boolean compile) {
+        this.compile = compile;
+    }
+
+    public boolean isFuse() {
+        return fuse;
+    }
+
+    public void setFuse(boolean fuse) {
+        this.fuse = fuse;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
 }
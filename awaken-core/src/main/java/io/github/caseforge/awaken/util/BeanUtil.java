@@ -3,54 +3,28 @@ package io.github.caseforge.awaken.util;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-public class BeanUtil {
-
-    private static Map<String, Method> writeMethodMap = new HashMap<String, Method>();
+import io.github.caseforge.awaken.core.Accessor;
+import io.github.caseforge.awaken.core.Accessors;
 
-    private static Map<String, Method> readMethodMap = new HashMap<String, Method>();
+public class BeanUtil {
 
     public static void set(Object target, String name, Object value) throws Exception {
-        Class<? extends Object> type = target.getClass();
-        String key = resolveKey(type, name);
-        Method method = writeMethodMap.get(key);
-        if (method == null) {
-            synchronized (writeMethodMap) {
-                method = writeMethodMap.get(key);
-                if (method == null) {
-                    method = obtainWriteMethod(type, name);
-                    writeMethodMap.put(key, method);
-                }
-            }
-        }
-
-        if (method != null) {
-            method.invoke(target, value);
+        Accessor accessor = Accessors.of(target.getClass());
+        int index = accessor.indexOf(name);
+        if (index > -1) {
+            accessor.set(target, index, value);
         }
     }
 
     public static Object get(Object target, String name) throws Exception {
-        Class<? extends Object> type = target.getClass();
-        String key = resolveKey(type, name);
-        Method method = readMethodMap.get(key);
-        if (method == null) {
-            synchronized (readMethodMap) {
-                method = readMethodMap.get(key);
-                if (method == null) {
-                    method = obtainReadMethod(type, name);
-                    readMethodMap.put(key, method);
-                }
-            }
-        }
-        if (method != null) {
-            return method.invoke(target);
+        Accessor accessor = Accessors.of(target.getClass());
+        int index = accessor.indexOf(name);
+        if (index > -1) {
+            return accessor.get(target, index);
         }
-
         return null;
-
     }
     
     @SuppressWarnings({ "unchecked", "rawtypes" })
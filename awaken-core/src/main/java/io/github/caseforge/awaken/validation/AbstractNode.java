@@ -1,9 +1,10 @@
 package io.github.caseforge.awaken.validation;
 
+import java.lang.reflect.Modifier;
 import java.util.List;
 
 import io.github.caseforge.awaken.Validator;
-
+import io.github.caseforge.awaken.core.PropertyRef;
 
 public abstract class AbstractNode implements Node {
 
@@ -13,6 +14,121 @@ public abstract class AbstractNode implements Node {
 
     protected List<Validator> validators;
 
+    /**
+     * 最近一次访问的目标类型上解析好的属性, 类型不变时直接按下标访问
+     */
+    protected volatile PropertyRef property;
+
+    protected PropertyRef propertyOf(Object target) {
+        PropertyRef ref = property;
+        Class<?> type = target.getClass();
+        if (ref == null || !ref.accept(type)) {
+            ref = PropertyRef.of(type, name);
+            property = ref;
+        }
+        return ref;
+    }
+
+    /**
+     * 在构建时按声明类型预先解析属性
+     * 
+     * @param ownerType 节点所在对象的类型, 未知时为null
+     */
+    public void prepare(Class<?> ownerType) {
+        Class<?> valueType = null;
+        if ("".equals(name)) {
+            valueType = ownerType;
+        } else if (isConcrete(ownerType)) {
+            property = PropertyRef.of(ownerType, name);
+            valueType = property.getType();
+        }
+
+        if (children != null) {
+            for (Node child : children) {
+                if (child instanceof AbstractNode) {
+                    ((AbstractNode) child).prepare(valueType);
+                }
+            }
+        }
+    }
+
+    /**
+     * 不为未通过的校验器创建ValidationException的校验, 用于收集全部错误.
+     * 默认调用validate并取出异常的信息
+     * 
+     * @param target
+     * @return 第一个错误信息, 通过时返回null
+     * @throws Exception 校验本身出错时抛出
+     */
+    public String check(Object target) throws Exception {
+        try {
+            validate(target);
+            return null;
+        } catch (ValidationException e) {
+            return String.valueOf(e.getMessage());
+        }
+    }
+
+    /**
+     * 依次执行本节点的校验器, CheckingValidator按返回值判断, 其它校验器仍通过异常判断
+     * 
+     * @param value 本节点的值
+     * @return 第一个错误信息, 通过时返回null
+     */
+    protected String checkValidators(Object value) throws Exception {
+        if (validators == null) {
+            return null;
+        }
+        for (Validator validator : validators) {
+            if (value == null && !(validator instanceof ForceValidator)) {
+                continue;
+            }
+            if (validator instanceof CheckingValidator) {
+                CheckingValidator checkingValidator = (CheckingValidator) validator;
+                if (!checkingValidator.check(value)) {
+                    return String.valueOf(checkingValidator.getMessage());
+                }
+            } else {
+                try {
+                    validator.validate(value);
+                } catch (ValidationException e) {
+                    return String.valueOf(e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param value 本节点的值, 为null时不校验子节点
+     * @return 第一个错误信息, 通过时返回null
+     */
+    protected String checkChildren(Object value) throws Exception {
+        if (children == null || value == null) {
+            return null;
+        }
+        for (Node child : children) {
+            String message = null;
+            if (child instanceof AbstractNode) {
+                message = ((AbstractNode) child).check(value);
+            } else {
+                try {
+                    child.validate(value);
+                } catch (ValidationException e) {
+                    message = String.valueOf(e.getMessage());
+                }
+            }
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    protected boolean isConcrete(Class<?> type) {
+        return type != null && !type.isInterface() && !type.isPrimitive() && !type.isArray() && !Modifier.isAbstract(type.getModifiers());
+    }
+
     public String getName() {
         return name;
     }
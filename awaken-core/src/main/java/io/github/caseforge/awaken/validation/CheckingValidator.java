@@ -0,0 +1,30 @@
+package io.github.caseforge.awaken.validation;
+
+import io.github.caseforge.awaken.Validator;
+
+/**
+ * 不抛出异常就能给出结果的校验器. 收集全部错误(maxErrors大于0)时按返回值记录错误, 不为每个失败的元素创建ValidationException;
+ * 其余情况仍通过validate抛出
+ */
+public interface CheckingValidator extends Validator {
+
+    /**
+     * @param target
+     * @return 是否通过
+     * @throws Exception 校验本身出错时抛出
+     */
+    boolean check(Object target) throws Exception;
+
+    /**
+     * @return 未通过时的错误信息
+     */
+    String getMessage();
+
+    @Override
+    default void validate(Object target) throws Exception {
+        if (!check(target)) {
+            throw new ValidationException(getMessage());
+        }
+    }
+
+}
@@ -1,10 +1,356 @@
 package io.github.caseforge.awaken.validation;
 
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.caseforge.awaken.Context;
+import io.github.caseforge.awaken.Validator;
+import io.github.caseforge.awaken.core.AbstractInvoker;
+
+/**
+ * 名称为*的节点, 目标为集合或数组, 校验器和子节点作用于其中的每个元素.
+ * 默认在第一个错误处停止(fail-fast);
+ * maxErrors大于0时校验全部元素, 通过{@link #check(Object)}取得每个元素的错误信息, 不为失败的元素抛出异常,
+ * 错误写入缓冲区, 最后合并为一个ValidationException抛出
+ */
 public class MultipleNode extends AbstractNode {
 
+    /**
+     * 大于0时收集全部错误, 最多记录的错误个数
+     */
+    private int maxErrors;
+
+    /**
+     * 元素个数不小于该值时拆分到ForkJoinPool中并行校验, 小于1时不并行.
+     * 并行时校验器会在多个线程中同时调用, 必须是线程安全的
+     */
+    private int parallelThreshold;
+
+    /**
+     * 并行校验使用的线程池, 为null时使用ForkJoinPool.commonPool()
+     */
+    private ForkJoinPool pool;
+
     public void validate(Object target) throws Exception {
-        // TODO Auto-generated method stub
-        
+        if (maxErrors < 1) {
+            forEach(target, null);
+            return;
+        }
+        String message = check(target);
+        if (message != null) {
+            throw new ValidationException(message);
+        }
+    }
+
+    /**
+     * 收集全部错误时返回合并后的错误信息, 不抛出ValidationException
+     */
+    @Override
+    public String check(Object target) throws Exception {
+        if (maxErrors < 1) {
+            return super.check(target);
+        }
+        Errors errors = new Errors(maxErrors);
+        forEach(target, errors);
+        return errors.toMessage();
+    }
+
+    /**
+     * @param errors 为null时在第一个错误处抛出ValidationException
+     */
+    private void forEach(Object target, Errors errors) throws Exception {
+        if (target instanceof Object[]) {
+            Object[] array = (Object[]) target;
+            forEach(array.length, i -> array[i], errors);
+        } else if (target instanceof List && target instanceof RandomAccess) {
+            List<?> list = (List<?>) target;
+            forEach(list.size(), list::get, errors);
+        } else if (target.getClass().isArray()) {
+            forEach(Array.getLength(target), i -> Array.get(target, i), errors);
+        } else if (target instanceof Iterable) {
+            int i = 0;
+            for (Object element : (Iterable<?>) target) {
+                if (errors == null) {
+                    validateElement(element);
+                } else if (!errors.add(i, checkElement(element))) {
+                    break;
+                }
+                i++;
+            }
+        } else {
+            throw new UnsupportedOperationException("* requires an array or an iterable, but got " + target.getClass().getName());
+        }
+    }
+
+    private void validateElement(Object element) throws Exception {
+        if (validators != null) {
+            for (Validator validator : validators) {
+                if (element != null || validator instanceof ForceValidator) {
+                    validator.validate(element);
+                }
+            }
+        }
+
+        if (children != null && element != null) {
+            for (Node child : children) {
+                child.validate(element);
+            }
+        }
+    }
+
+    /**
+     * @return 元素的第一个错误信息, 通过时返回null
+     */
+    private String checkElement(Object element) throws Exception {
+        String message = checkValidators(element);
+        return message != null ? message : checkChildren(element);
+    }
+
+    private void forEach(int size, Elements elements, Errors errors) throws Exception {
+        if (parallelThreshold < 1 || size < parallelThreshold) {
+            for (int i = 0; i < size; i++) {
+                if (errors == null) {
+                    validateElement(elements.get(i));
+                } else if (!errors.add(i, checkElement(elements.get(i)))) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        ForkJoinPool forkJoinPool = pool != null ? pool : ForkJoinPool.commonPool();
+        // 每个线程约分到4段, 以便在元素耗时不均时互相窃取
+        int leafSize = Math.max(1, size / (forkJoinPool.getParallelism() * 4));
+        if (errors != null) {
+            errors.reserve(size);
+        }
+        try {
+            forkJoinPool.invoke(new Slice(this, new Run(elements, errors, Context.snapshot()), 0, size, leafSize));
+        } catch (CompletionException e) {
+            throw AbstractInvoker.unwrap(e);
+        }
+    }
+
+    /**
+     * 元素类型在构建时未知, 子节点在校验时按元素的实际类型解析属性
+     */
+    @Override
+    public void prepare(Class<?> ownerType) {
+        if (children != null) {
+            for (Node child : children) {
+                if (child instanceof AbstractNode) {
+                    ((AbstractNode) child).prepare(null);
+                }
+            }
+        }
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private interface Elements {
+
+        Object get(int index);
+
+    }
+
+    /**
+     * 按元素下标记录的错误, 最多limit个.
+     * 顺序校验时在第一个错误处才分配, 之后按需扩大; 并行校验前按min(limit, 元素个数)一次分配, 各线程通过计数器领取不同的槽位
+     */
+    private static final class Errors {
+
+        private static final int[] NO_INDEXES = new int[0];
+
+        private static final String[] NO_MESSAGES = new String[0];
+
+        private final int limit;
+
+        private int[] indexes = NO_INDEXES;
+
+        private String[] messages = NO_MESSAGES;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * @param limit 最多记录的错误个数
+         */
+        Errors(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * 并行校验前调用, 之后不再扩大
+         * 
+         * @param size 元素个数
+         */
+        void reserve(int size) {
+            int capacity = Math.min(limit, size);
+            indexes = new int[capacity];
+            messages = new String[capacity];
+        }
+
+        /**
+         * @param message 为null时表示通过, 不记录
+         * @return 缓冲区已满时返回false, 不再需要继续校验
+         */
+        boolean add(int index, String message) {
+            if (message == null) {
+                return true;
+            }
+            int slot = count.getAndIncrement();
+            if (slot >= limit) {
+                return false;
+            }
+            if (slot >= indexes.length) {
+                // 只在顺序校验中发生
+                int capacity = Math.min(limit, Math.max(4, indexes.length * 2));
+                indexes = Arrays.copyOf(indexes, capacity);
+                messages = Arrays.copyOf(messages, capacity);
+            }
+            indexes[slot] = index;
+            messages[slot] = message;
+            return true;
+        }
+
+        /**
+         * @return 没有错误时返回null
+         */
+        String toMessage() {
+            int size = Math.min(count.get(), limit);
+            if (size == 0) {
+                return null;
+            }
+            // 并行校验时槽位顺序不确定, 按元素下标排序
+            for (int i = 1; i < size; i++) {
+                int index = indexes[i];
+                String message = messages[i];
+                int j = i - 1;
+                for (; j >= 0 && indexes[j] > index; j--) {
+                    indexes[j + 1] = indexes[j];
+                    messages[j + 1] = messages[j];
+                }
+                indexes[j + 1] = index;
+                messages[j + 1] = message;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sb.append("; ");
+                }
+                sb.append('[').append(indexes[i]).append("] ").append(messages[i]);
+            }
+            if (count.get() > limit) {
+                sb.append("; ...");
+            }
+            return sb.toString();
+        }
+
+    }
+
+    /**
+     * 一次并行校验中各分段共享的状态
+     */
+    private static final class Run {
+
+        private final Elements elements;
+
+        private final Errors errors;
+
+        private final Map<String, Object> snapshot;
+
+        private volatile boolean stopped;
+
+        Run(Elements elements, Errors errors, Map<String, Object> snapshot) {
+            this.elements = elements;
+            this.errors = errors;
+            this.snapshot = snapshot;
+        }
+
+    }
+
+    /**
+     * 按下标区间二分, 区间不大于leafSize时在当前线程顺序校验, 调用方的上下文以副本传递到执行线程.
+     * fail-fast时任一分段出错后其余分段不再继续
+     */
+    @SuppressWarnings("serial")
+    private static final class Slice extends RecursiveAction {
+
+        private final MultipleNode node;
+
+        private final Run run;
+
+        private final int from;
+
+        private final int to;
+
+        private final int leafSize;
+
+        Slice(MultipleNode node, Run run, int from, int to, int leafSize) {
+            this.node = node;
+            this.run = run;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (run.stopped) {
+                return;
+            }
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Slice(node, run, from, middle, leafSize), new Slice(node, run, middle, to, leafSize));
+                return;
+            }
+
+            try {
+                Context.call(run.snapshot, () -> {
+                    for (int i = from; i < to && !run.stopped; i++) {
+                        if (run.errors == null) {
+                            node.validateElement(run.elements.get(i));
+                        } else if (!run.errors.add(i, node.checkElement(run.elements.get(i)))) {
+                            run.stopped = true;
+                        }
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                run.stopped = true;
+                throw new CompletionException(e);
+            }
+        }
+
     }
 
 }
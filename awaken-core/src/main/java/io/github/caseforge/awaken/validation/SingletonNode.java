@@ -1,7 +1,6 @@
 package io.github.caseforge.awaken.validation;
 
 import io.github.caseforge.awaken.Validator;
-import io.github.caseforge.awaken.util.BeanUtil;
 
 public class SingletonNode extends AbstractNode {
 
@@ -10,7 +9,7 @@ public class SingletonNode extends AbstractNode {
         if ("".equals(name)) { // root node's name is empty string
             value = target;
         } else {
-            value = BeanUtil.get(target, name);
+            value = propertyOf(target).get(target);
         }
         
         if (validators != null) {
@@ -31,5 +30,12 @@ public class SingletonNode extends AbstractNode {
             }
         }
     }
-    
+
+    @Override
+    public String check(Object target) throws Exception {
+        Object value = "".equals(name) ? target : propertyOf(target).get(target);
+        String message = checkValidators(value);
+        return message != null ? message : checkChildren(value);
+    }
+
 }
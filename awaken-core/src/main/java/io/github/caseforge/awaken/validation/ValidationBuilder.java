@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -26,16 +27,48 @@ public class ValidationBuilder {
 
     private Gson gson = new Gson();
 
+    /**
+     * 传给*节点, 大于0时收集全部错误, 最多记录的错误个数
+     */
+    private int maxErrors;
+
+    /**
+     * 传给*节点, 元素个数不小于该值时并行校验, 小于1时不并行
+     */
+    private int parallelThreshold;
+
+    private ForkJoinPool pool;
+
     public ValidationBuilder() {
         rootNode.setName("");
         nodeMap.put("", rootNode);
     }
 
     public static Validation build(JsonObject config, ResourceProvider resourceProvider) throws Exception {
+        return build(config, resourceProvider, null);
+    }
+
+    /**
+     * @param type 校验目标的类型, 用于预先解析各节点的属性
+     */
+    public static Validation build(JsonObject config, ResourceProvider resourceProvider, Class<?> type) throws Exception {
+        return build(config, resourceProvider, type, 0, 0, null);
+    }
+
+    /**
+     * @param maxErrors *节点大于0时收集全部错误, 最多记录的错误个数, 否则在第一个错误处停止
+     * @param parallelThreshold *节点并行校验的最小元素个数, 小于1时不并行
+     * @param pool 并行校验使用的线程池, 为null时使用ForkJoinPool.commonPool()
+     */
+    public static Validation build(JsonObject config, ResourceProvider resourceProvider, Class<?> type, int maxErrors, int parallelThreshold, ForkJoinPool pool) throws Exception {
         ValidationBuilder builder = new ValidationBuilder();
         builder.config = config;
         builder.resourceProvider = resourceProvider;
+        builder.maxErrors = maxErrors;
+        builder.parallelThreshold = parallelThreshold;
+        builder.pool = pool;
         builder.build();
+        builder.rootNode.prepare(type);
         return builder.rootNode;
     }
 
@@ -93,13 +126,19 @@ public class ValidationBuilder {
 
         boolean multiNode = isMultipleNode(nodeName);
         if (multiNode) {
-            node = new MultipleNode();
+            MultipleNode multipleNode = new MultipleNode();
+            multipleNode.setMaxErrors(maxErrors);
+            multipleNode.setParallelThreshold(parallelThreshold);
+            multipleNode.setPool(pool);
+            node = multipleNode;
         } else {
             node = new SingletonNode();
         }
 
         node.setName(nodeName);
         children.add(node);
+        // 同一路径只建一个节点, 否则*节点收集错误时各路径的校验器分散在不同节点中
+        nodeMap.put(path, node);
 
         return node;
     }
@@ -0,0 +1,467 @@
+package io.github.caseforge.awaken.validation;
+
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_PUBLIC;
+import static io.github.caseforge.awaken.asm.Opcodes.ACC_SUPER;
+import static io.github.caseforge.awaken.asm.Opcodes.ACONST_NULL;
+import static io.github.caseforge.awaken.asm.Opcodes.ALOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.ARRAYLENGTH;
+import static io.github.caseforge.awaken.asm.Opcodes.ASTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.ATHROW;
+import static io.github.caseforge.awaken.asm.Opcodes.CHECKCAST;
+import static io.github.caseforge.awaken.asm.Opcodes.DCMPG;
+import static io.github.caseforge.awaken.asm.Opcodes.DCMPL;
+import static io.github.caseforge.awaken.asm.Opcodes.DUP;
+import static io.github.caseforge.awaken.asm.Opcodes.DUP2;
+import static io.github.caseforge.awaken.asm.Opcodes.F2D;
+import static io.github.caseforge.awaken.asm.Opcodes.I2D;
+import static io.github.caseforge.awaken.asm.Opcodes.IFGE;
+import static io.github.caseforge.awaken.asm.Opcodes.IFLE;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNE;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNONNULL;
+import static io.github.caseforge.awaken.asm.Opcodes.IFNULL;
+import static io.github.caseforge.awaken.asm.Opcodes.IF_ICMPGE;
+import static io.github.caseforge.awaken.asm.Opcodes.IF_ICMPLE;
+import static io.github.caseforge.awaken.asm.Opcodes.ILOAD;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKEINTERFACE;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKESPECIAL;
+import static io.github.caseforge.awaken.asm.Opcodes.INVOKEVIRTUAL;
+import static io.github.caseforge.awaken.asm.Opcodes.ISTORE;
+import static io.github.caseforge.awaken.asm.Opcodes.L2D;
+import static io.github.caseforge.awaken.asm.Opcodes.NEW;
+import static io.github.caseforge.awaken.asm.Opcodes.RETURN;
+import static io.github.caseforge.awaken.asm.Opcodes.V1_8;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.Gson;
+
+import io.github.caseforge.awaken.Validator;
+import io.github.caseforge.awaken.asm.ClassWriter;
+import io.github.caseforge.awaken.asm.Label;
+import io.github.caseforge.awaken.asm.MethodVisitor;
+import io.github.caseforge.awaken.asm.Type;
+import io.github.caseforge.awaken.core.Coder;
+import io.github.caseforge.awaken.core.Property;
+import io.github.caseforge.awaken.core.RefTable;
+import io.github.caseforge.awaken.core.Referable;
+import io.github.caseforge.awaken.validators.LengthValidator;
+import io.github.caseforge.awaken.validators.RangeValidator;
+import io.github.caseforge.awaken.validators.RequiredValidator;
+import io.github.caseforge.awaken.validators.StringsValidator;
+
+/**
+ * 把校验规则树编译为字节码, 内置的Required/Length/Range/Strings校验按属性类型直接展开,
+ * 其它Validator通过字段直接调用, 编译期无法确定类型的子树仍然交给原来的节点执行
+ */
+public class ValidationCompiler {
+
+    /**
+     * 枚举值不超过该数量时展开为equals比较, 否则使用HashSet
+     */
+    private static final int MAX_INLINE_STRINGS = 8;
+
+    private static final Gson GSON = new Gson();
+
+    private Coder coder;
+
+    private RefTable refs;
+
+    private String prefix;
+
+    public ValidationCompiler(Coder coder, RefTable refs, String prefix) {
+        this.coder = coder;
+        this.refs = refs;
+        this.prefix = prefix;
+    }
+
+    /**
+     * 编译为一个独立的Validation类
+     *
+     * @param validation ValidationBuilder构建的规则树
+     * @param type 校验目标的类型
+     * @param coder
+     * @return
+     * @throws Exception
+     */
+    public static Validation compile(Validation validation, Class<?> type, Coder coder) throws Exception {
+        if (!(validation instanceof SingletonNode) || type == null) {
+            return validation;
+        }
+
+        String name = type.getName() + Coder.SUFFIX_VALIDATION + coder.digest(describe(validation, type));
+        String typeName = name.replace('.', '/');
+        RefTable refs = new RefTable(typeName);
+
+        // 引用的对象在生成字节码时收集, 所以类已定义过时也要重新生成一次
+        ClassWriter cw = coder.createClassWriter();
+        cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, typeName, null, "java/lang/Object", new String[] { Type.getInternalName(Validation.class), Type.getInternalName(Referable.class) });
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        new ValidationCompiler(coder, refs, "v").compile(cw, ACC_PUBLIC, "validate", validation, type);
+        refs.emit(cw, coder);
+        cw.visitEnd();
+        final byte[] bs = cw.toByteArray();
+
+        Class<?> compiledType = coder.defineIfAbsent(name, () -> bs);
+        Object compiled = compiledType.getDeclaredConstructor().newInstance();
+        ((Referable) compiled).setRefer(refs.values());
+        return (Validation) compiled;
+    }
+
+    /**
+     * 生成方法 void methodName(Object target)
+     *
+     * @param cw
+     * @param access
+     * @param methodName
+     * @param validation
+     * @param type
+     */
+    public void compile(ClassWriter cw, int access, String methodName, Validation validation, Class<?> type) {
+        MethodVisitor mv = cw.visitMethod(access, methodName, "(Ljava/lang/Object;)V", null, new String[] { "java/lang/Exception" });
+        mv.visitCode();
+
+        if (!(validation instanceof SingletonNode) || !compilable(type)) {
+            fallback(validation, 1, mv);
+        } else {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+            mv.visitVarInsn(ASTORE, 2);
+            compileValue((SingletonNode) validation, type, 2, 3, mv);
+        }
+
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void compileChildren(List<Node> children, Class<?> ownerType, int ownerSlot, int nextSlot, MethodVisitor mv) {
+        for (Node child : children) {
+            Property property = null;
+            if (child instanceof SingletonNode) {
+                property = Property.propertyOf(ownerType, child.getName());
+            }
+
+            if (property == null || property.getReadMethod() == null) {
+                fallback(child, ownerSlot, mv);
+                continue;
+            }
+
+            Class<?> valueType = property.getType();
+            Method readMethod = property.getReadMethod();
+            boolean interfaceFlag = ownerType.isInterface();
+
+            mv.visitVarInsn(ALOAD, ownerSlot);
+            mv.visitMethodInsn(interfaceFlag ? INVOKEINTERFACE : INVOKEVIRTUAL, Type.getInternalName(ownerType), readMethod.getName(), Type.getMethodDescriptor(readMethod), interfaceFlag);
+            mv.visitVarInsn(Type.getType(valueType).getOpcode(ISTORE), nextSlot);
+
+            compileValue((SingletonNode) child, valueType, nextSlot, nextSlot + Type.getType(valueType).getSize(), mv);
+        }
+    }
+
+    /**
+     * 值已保存在valueSlot中, 依次执行节点的校验和子节点
+     */
+    private void compileValue(SingletonNode node, Class<?> valueType, int valueSlot, int nextSlot, MethodVisitor mv) {
+        List<Validator> validators = node.getValidators();
+        if (validators != null) {
+            for (Validator validator : validators) {
+                compileValidator(validator, valueType, valueSlot, mv);
+            }
+        }
+
+        List<Node> children = node.getChildren();
+        if (children == null || children.isEmpty()) {
+            return;
+        }
+
+        if (valueType.isPrimitive()) {
+            load(valueType, valueSlot, mv);
+            coder.box(valueType, mv);
+            mv.visitVarInsn(ASTORE, nextSlot);
+            fallbackChildren(children, nextSlot, mv);
+            return;
+        }
+
+        Label end = new Label();
+        mv.visitVarInsn(ALOAD, valueSlot);
+        mv.visitJumpInsn(IFNULL, end);
+        if (compilable(valueType)) {
+            compileChildren(children, valueType, valueSlot, nextSlot, mv);
+        } else {
+            fallbackChildren(children, valueSlot, mv);
+        }
+        mv.visitLabel(end);
+    }
+
+    private void compileValidator(Validator validator, Class<?> valueType, int valueSlot, MethodVisitor mv) {
+        boolean primitive = valueType.isPrimitive();
+
+        if (validator.getClass() == RequiredValidator.class) {
+            if (!primitive) {
+                Label ok = new Label();
+                mv.visitVarInsn(ALOAD, valueSlot);
+                mv.visitJumpInsn(IFNONNULL, ok);
+                throwValidationException(((RequiredValidator) validator).getMessage(), mv);
+                mv.visitLabel(ok);
+            }
+            return;
+        }
+
+        // 值为null时只执行ForceValidator
+        Label skip = new Label();
+        boolean guard = !primitive && !(validator instanceof ForceValidator);
+        if (guard) {
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitJumpInsn(IFNULL, skip);
+        }
+
+        if (!inline(validator, valueType, valueSlot, mv)) {
+            String field = refs.add(prefix, Validator.class, validator);
+            refs.load(field, mv);
+            load(valueType, valueSlot, mv);
+            coder.box(valueType, mv);
+            mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Validator.class), "validate", "(Ljava/lang/Object;)V", true);
+        }
+
+        if (guard) {
+            mv.visitLabel(skip);
+        }
+    }
+
+    private boolean inline(Validator validator, Class<?> valueType, int valueSlot, MethodVisitor mv) {
+        Class<?> validatorType = validator.getClass();
+        if (validatorType == LengthValidator.class) {
+            return inlineLength((LengthValidator) validator, valueType, valueSlot, mv);
+        }
+        if (validatorType == RangeValidator.class) {
+            return inlineRange((RangeValidator) validator, valueType, valueSlot, mv);
+        }
+        if (validatorType == StringsValidator.class) {
+            return inlineStrings((StringsValidator) validator, valueType, valueSlot, mv);
+        }
+        return false;
+    }
+
+    private boolean inlineLength(LengthValidator validator, Class<?> valueType, int valueSlot, MethodVisitor mv) {
+        Integer max = validator.getMaxLength();
+        Integer min = validator.getMinLength();
+
+        if (max == null && min == null) {
+            return valueType == String.class || valueType.isArray() || Collection.class.isAssignableFrom(valueType);
+        }
+
+        if (valueType == String.class) {
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+        } else if (valueType.isArray()) {
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitInsn(ARRAYLENGTH);
+        } else if (Collection.class.isAssignableFrom(valueType)) {
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Collection", "size", "()I", true);
+        } else {
+            return false;
+        }
+
+        if (max != null && min != null) {
+            mv.visitInsn(DUP);
+        }
+
+        if (max != null) {
+            Label ok = new Label();
+            coder.pushInt(max, mv);
+            mv.visitJumpInsn(IF_ICMPLE, ok);
+            throwValidationException(validator.getMessage(), mv);
+            mv.visitLabel(ok);
+        }
+
+        if (min != null) {
+            Label ok = new Label();
+            coder.pushInt(min, mv);
+            mv.visitJumpInsn(IF_ICMPGE, ok);
+            throwValidationException(validator.getMessage(), mv);
+            mv.visitLabel(ok);
+        }
+        return true;
+    }
+
+    private boolean inlineRange(RangeValidator validator, Class<?> valueType, int valueSlot, MethodVisitor mv) {
+        Double max = validator.getMax();
+        Double min = validator.getMin();
+
+        if (max == null && min == null) {
+            return valueType != boolean.class && valueType != char.class && (valueType.isPrimitive() || Number.class.isAssignableFrom(valueType));
+        }
+
+        if (valueType == int.class || valueType == short.class || valueType == byte.class) {
+            mv.visitVarInsn(ILOAD, valueSlot);
+            mv.visitInsn(I2D);
+        } else if (valueType == long.class) {
+            load(valueType, valueSlot, mv);
+            mv.visitInsn(L2D);
+        } else if (valueType == float.class) {
+            load(valueType, valueSlot, mv);
+            mv.visitInsn(F2D);
+        } else if (valueType == double.class) {
+            load(valueType, valueSlot, mv);
+        } else if (!valueType.isPrimitive() && Number.class.isAssignableFrom(valueType)) {
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(valueType), "doubleValue", "()D", false);
+        } else {
+            return false;
+        }
+
+        if (max != null && min != null) {
+            mv.visitInsn(DUP2);
+        }
+
+        // NaN不触发异常, 与max < v, min > v的比较结果一致
+        if (max != null) {
+            Label ok = new Label();
+            mv.visitLdcInsn(max);
+            mv.visitInsn(DCMPL);
+            mv.visitJumpInsn(IFLE, ok);
+            throwValidationException(validator.getMessage(), mv);
+            mv.visitLabel(ok);
+        }
+
+        if (min != null) {
+            Label ok = new Label();
+            mv.visitLdcInsn(min);
+            mv.visitInsn(DCMPG);
+            mv.visitJumpInsn(IFGE, ok);
+            throwValidationException(validator.getMessage(), mv);
+            mv.visitLabel(ok);
+        }
+        return true;
+    }
+
+    private boolean inlineStrings(StringsValidator validator, Class<?> valueType, int valueSlot, MethodVisitor mv) {
+        List<String> values = validator.getRefs();
+        if (values == null || valueType != String.class) {
+            return false;
+        }
+
+        Label ok = new Label();
+        if (values.size() <= MAX_INLINE_STRINGS) {
+            for (String value : values) {
+                if (value == null) {
+                    continue;
+                }
+                mv.visitVarInsn(ALOAD, valueSlot);
+                mv.visitLdcInsn(value);
+                mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(IFNE, ok);
+            }
+        } else {
+            String field = refs.add(prefix, Set.class, new HashSet<String>(values));
+            refs.load(field, mv);
+            mv.visitVarInsn(ALOAD, valueSlot);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Set", "contains", "(Ljava/lang/Object;)Z", true);
+            mv.visitJumpInsn(IFNE, ok);
+        }
+        throwValidationException(validator.getMessage(), mv);
+        mv.visitLabel(ok);
+        return true;
+    }
+
+    private void throwValidationException(String message, MethodVisitor mv) {
+        String exceptionType = Type.getInternalName(ValidationException.class);
+        mv.visitTypeInsn(NEW, exceptionType);
+        mv.visitInsn(DUP);
+        if (message == null) {
+            mv.visitInsn(ACONST_NULL);
+        } else {
+            mv.visitLdcInsn(message);
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, exceptionType, "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitInsn(ATHROW);
+    }
+
+    private void load(Class<?> type, int slot, MethodVisitor mv) {
+        mv.visitVarInsn(Type.getType(type).getOpcode(ILOAD), slot);
+    }
+
+    private void fallbackChildren(List<Node> children, int ownerSlot, MethodVisitor mv) {
+        for (Node child : children) {
+            fallback(child, ownerSlot, mv);
+        }
+    }
+
+    private void fallback(Validation node, int ownerSlot, MethodVisitor mv) {
+        String field = refs.add(prefix, Validation.class, node);
+        refs.load(field, mv);
+        mv.visitVarInsn(ALOAD, ownerSlot);
+        mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Validation.class), "validate", "(Ljava/lang/Object;)V", true);
+    }
+
+    /**
+     * 只有public且当前加载器可见的非数组引用类型, 才能按静态类型直接调用其方法
+     */
+    private boolean compilable(Class<?> type) {
+        if (type == null || type.isPrimitive() || type.isArray() || !Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        if (type.getName().startsWith("java.")) {
+            return false;
+        }
+        return coder.isVisible(type);
+    }
+
+    /**
+     * 规则树的结构描述, 内置校验的参数会编译为常量, 所以也计入描述
+     *
+     * @param validation
+     * @param type
+     * @return
+     */
+    public static String describe(Validation validation, Class<?> type) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(type == null ? "?" : type.getName()).append(':');
+        if (validation instanceof Node) {
+            describe((Node) validation, builder);
+        } else {
+            builder.append(validation.getClass().getName());
+        }
+        return builder.toString();
+    }
+
+    private static void describe(Node node, StringBuilder builder) {
+        builder.append(node.getClass().getSimpleName()).append('(').append(node.getName()).append(')');
+        if (node instanceof AbstractNode && ((AbstractNode) node).getValidators() != null) {
+            builder.append('[');
+            for (Validator validator : ((AbstractNode) node).getValidators()) {
+                Class<?> validatorType = validator.getClass();
+                builder.append(validatorType.getName());
+                if (validatorType == RequiredValidator.class || validatorType == LengthValidator.class || validatorType == RangeValidator.class || validatorType == StringsValidator.class) {
+                    builder.append(GSON.toJson(validator));
+                }
+                builder.append(',');
+            }
+            builder.append(']');
+        }
+        List<Node> children = node.getChildren();
+        if (children != null) {
+            builder.append('{');
+            for (Node child : children) {
+                describe(child, builder);
+                builder.append(',');
+            }
+            builder.append('}');
+        }
+    }
+
+}
@@ -6,13 +6,12 @@ package io.github.caseforge.awaken.validators;
 import java.lang.reflect.Array;
 import java.util.Collection;
 
-import io.github.caseforge.awaken.Validator;
-import io.github.caseforge.awaken.validation.ValidationException;
+import io.github.caseforge.awaken.validation.CheckingValidator;
 
 /**
  * 
  */
-public class LengthValidator implements Validator {
+public class LengthValidator implements CheckingValidator {
 
     private String message;
 
@@ -21,17 +20,17 @@ public class LengthValidator implements Validator {
     private Integer minLength;
 
     @Override
-    public void validate(Object target) throws Exception {
+    public boolean check(Object target) throws Exception {
         int len = lengthOf(target);
 
         if (maxLength != null && len > maxLength) {
-            throw new ValidationException(message);
+            return false;
         }
 
         if (minLength != null && len < minLength) {
-            throw new ValidationException(message);
+            return false;
         }
-
+        return true;
     }
 
     private int lengthOf(Object target) {
@@ -3,13 +3,12 @@
  */
 package io.github.caseforge.awaken.validators;
 
-import io.github.caseforge.awaken.Validator;
-import io.github.caseforge.awaken.validation.ValidationException;
+import io.github.caseforge.awaken.validation.CheckingValidator;
 
 /**
  * 
  */
-public class RangeValidator implements Validator {
+public class RangeValidator implements CheckingValidator {
 
     private String message;
 
@@ -18,15 +17,16 @@ public class RangeValidator implements Validator {
     private Double min;
 
     @Override
-    public void validate(Object target) throws Exception {
+    public boolean check(Object target) throws Exception {
         double v = ((Number) target).doubleValue();
         if (max != null && max < v) {
-            throw new ValidationException(message);
+            return false;
         }
         
         if (min != null && min > v) {
-            throw new ValidationException(message);
+            return false;
         }
+        return true;
     }
 
     public Double getMax() {
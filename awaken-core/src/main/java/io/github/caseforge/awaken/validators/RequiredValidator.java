@@ -3,21 +3,22 @@
  */
 package io.github.caseforge.awaken.validators;
 
+import io.github.caseforge.awaken.validation.CheckingValidator;
 import io.github.caseforge.awaken.validation.ForceValidator;
-import io.github.caseforge.awaken.validation.ValidationException;
 
 /**
  * 
  */
-public class RequiredValidator implements ForceValidator {
+public class RequiredValidator implements ForceValidator, CheckingValidator {
 
     private String message;
     
     @Override
-    public void validate(Object target) throws Exception {
+    public boolean check(Object target) throws Exception {
         if (target == null) {
-            throw new ValidationException(message);
+            return false;
         }
+        return true;
     }
 
     public String getMessage() {
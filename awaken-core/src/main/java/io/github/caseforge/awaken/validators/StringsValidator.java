@@ -5,23 +5,23 @@ package io.github.caseforge.awaken.validators;
 
 import java.util.List;
 
-import io.github.caseforge.awaken.Validator;
-import io.github.caseforge.awaken.validation.ValidationException;
+import io.github.caseforge.awaken.validation.CheckingValidator;
 
 /**
  * 
  */
-public class StringsValidator implements Validator {
+public class StringsValidator implements CheckingValidator {
 
     private String message;
 
     private List<String> refs;
 
     @Override
-    public void validate(Object target) throws Exception {
+    public boolean check(Object target) throws Exception {
         if (!refs.contains(target)) {
-            throw new ValidationException(message);
+            return false;
         }
+        return true;
     }
 
     public List<String> getRefs() {
@@ -0,0 +1,125 @@
+package io.github.caseforge.awaken.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.github.caseforge.awaken.core.Coder;
+import io.github.caseforge.awaken.sample.IncrementProvider;
+import io.github.caseforge.awaken.sample.Item;
+import io.github.caseforge.awaken.sample.NullProvider;
+import io.github.caseforge.awaken.sample.Order;
+import io.github.caseforge.awaken.sample.SampleResources;
+import io.github.caseforge.awaken.sample.UpperProvider;
+
+/**
+ * 同一份规则编译前后的赋值结果应当一致
+ */
+public class AssignmentCompilerTest {
+
+    private final SampleResources resources = new SampleResources()
+            .bean("upper", UpperProvider.class)
+            .bean("null", NullProvider.class)
+            .bean("increment", IncrementProvider.class);
+
+    private final Coder coder = new Coder();
+
+    @Test
+    public void testProviders() throws Exception {
+        assertSame("{\"user\":\"upper\",\"main/name\":\"upper\",\"main/qty\":{\"type\":\"increment\",\"step\":2}}", sample());
+    }
+
+    @Test
+    public void testNullOnPrimitiveSetter() throws Exception {
+        assertSame("{\"count\":\"null\",\"main/qty\":\"null\",\"main/stock\":\"null\",\"main/name\":\"null\"}", sample());
+    }
+
+    @Test
+    public void testNullIntermediate() throws Exception {
+        Order order = sample();
+        order.setMain(null);
+        assertSame("{\"main/name\":\"upper\",\"main/qty\":\"increment\"}", order);
+    }
+
+    @Test
+    public void testMultipleFallback() throws Exception {
+        assertSame("{\"user\":\"upper\",\"items/*/name\":\"upper\",\"extra/*/qty\":\"increment\",\"codes/*\":\"increment\"}", sample());
+    }
+
+    @Test
+    public void testMultipleOnSet() throws Exception {
+        Order order = sample();
+        order.setItems(new ArrayList<Item>(new LinkedHashSet<Item>(order.getItems())));
+        assertSame("{\"items/*/name\":\"upper\",\"items/*/stock\":\"null\"}", order);
+    }
+
+    private void assertSame(String rule, Order order) throws Exception {
+        JsonObject config = new JsonParser().parse(rule).getAsJsonObject();
+        Assignment interpreted = AssignmentBuilder.build(config, resources, Order.class);
+        Assignment compiled = AssignmentCompiler.compile(AssignmentBuilder.build(config, resources, Order.class), Order.class, coder);
+        assertNotSame(interpreted.getClass(), compiled.getClass());
+
+        Order expected = copyOf(order);
+        Order actual = copyOf(order);
+        assertEquals(outcome(interpreted, expected), outcome(compiled, actual));
+    }
+
+    private static String outcome(Assignment assignment, Order order) {
+        try {
+            assignment.assign(order);
+            return order.toString();
+        } catch (Exception e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static Order sample() {
+        Order order = new Order();
+        order.setUser("u");
+        order.setCount(3);
+        order.setMain(new Item("main", 1, 1));
+        order.setItems(new ArrayList<Item>(Arrays.asList(new Item("a", 1, 1), null, new Item("b", 2, 2))));
+        order.setExtra(new Item[] { new Item("c", 3, 3) });
+        order.setCodes(new int[] { 1, 2 });
+        return order;
+    }
+
+    private static Order copyOf(Order order) {
+        Order copy = new Order();
+        copy.setUser(order.getUser());
+        copy.setCount(order.getCount());
+        copy.setMain(copyOf(order.getMain()));
+        if (order.getItems() != null) {
+            copy.setItems(new ArrayList<Item>());
+            for (Item item : order.getItems()) {
+                copy.getItems().add(copyOf(item));
+            }
+        }
+        if (order.getExtra() != null) {
+            copy.setExtra(new Item[order.getExtra().length]);
+            for (int i = 0; i < order.getExtra().length; i++) {
+                copy.getExtra()[i] = copyOf(order.getExtra()[i]);
+            }
+        }
+        copy.setCodes(order.getCodes() == null ? null : order.getCodes().clone());
+        return copy;
+    }
+
+    private static Item copyOf(Item item) {
+        if (item == null) {
+            return null;
+        }
+        Item copy = new Item(item.getName(), item.getPrice(), item.getQty());
+        copy.setStock(item.getStock());
+        return copy;
+    }
+
+}
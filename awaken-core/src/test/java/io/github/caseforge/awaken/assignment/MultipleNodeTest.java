@@ -0,0 +1,211 @@
+package io.github.caseforge.awaken.assignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.JsonParser;
+
+import io.github.caseforge.awaken.BatchProvider;
+import io.github.caseforge.awaken.Context;
+import io.github.caseforge.awaken.Provider;
+import io.github.caseforge.awaken.sample.IncrementProvider;
+import io.github.caseforge.awaken.sample.Item;
+import io.github.caseforge.awaken.sample.Order;
+import io.github.caseforge.awaken.sample.SampleResources;
+import io.github.caseforge.awaken.sample.UpperProvider;
+
+public class MultipleNodeTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private final CountingBatchProvider batch = new CountingBatchProvider();
+
+    private final SampleResources resources = new SampleResources()
+            .bean("upper", UpperProvider.class)
+            .bean("increment", IncrementProvider.class)
+            .bean("suffix", new SuffixProvider())
+            .bean("batch", batch);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        Context.clear();
+    }
+
+    @Test
+    public void testArraysAndLists() throws Exception {
+        Order order = new Order();
+        order.setItems(new ArrayList<Item>(Arrays.asList(new Item("a", 1, 1), null, new Item("b", 2, 2))));
+        order.setExtra(new Item[] { new Item("c", 3, 3), null });
+        order.setCodes(new int[] { 1, 2, 3 });
+        build("{\"items/*/name\":\"upper\",\"extra/*/qty\":\"increment\",\"codes/*\":\"increment\"}", 0).assign(order);
+        assertEquals("[A/1.0/1/null, null, B/2.0/2/null]", order.getItems().toString());
+        assertEquals("[c/3.0/4/null, null]", Arrays.toString(order.getExtra()));
+        assertArrayEquals(new int[] { 2, 3, 4 }, order.getCodes());
+    }
+
+    @Test
+    public void testProviderReplacesElements() throws Exception {
+        Order order = new Order();
+        order.setItems(new LinkedList<Item>(Arrays.asList(new Item("a", 1, 1), new Item("b", 2, 2))));
+        order.setExtra(new Item[] { new Item("c", 3, 3) });
+        build("{\"items/*\":\"batch\",\"extra/*\":\"batch\"}", 0).assign(order);
+        // 不是RandomAccess的List通过ListIterator按位置写回
+        assertEquals(LinkedList.class, order.getItems().getClass());
+        assertEquals("[a!/1.0/1/null, b!/2.0/2/null]", order.getItems().toString());
+        assertEquals("[c!/3.0/3/null]", Arrays.toString(order.getExtra()));
+    }
+
+    @Test
+    public void testBatchProviderCalledOncePerNode() throws Exception {
+        List<Order> orders = new ArrayList<Order>();
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order();
+            order.setItems(new ArrayList<Item>(Arrays.asList(new Item("a" + i, 1, 1), new Item("b" + i, 2, 2))));
+            orders.add(order);
+        }
+        orders.add(null);
+        build("{\"items/*\":\"batch\"}", 0).assignBatch(orders);
+        assertEquals(1, batch.calls.get());
+        assertEquals(6, batch.elements.get());
+        assertEquals("[a2!/1.0/1/null, b2!/2.0/2/null]", orders.get(2).getItems().toString());
+    }
+
+    @Test
+    public void testParallelWithContext() throws Exception {
+        List<Item> items = new ArrayList<Item>();
+        Item[] extra = new Item[1000];
+        for (int i = 0; i < 1000; i++) {
+            items.add(i % 10 == 0 ? null : new Item("i" + i, i, i));
+            extra[i] = new Item("e" + i, i, i);
+        }
+        Order order = new Order();
+        order.setItems(items);
+        order.setExtra(extra);
+        order.setCodes(new int[1000]);
+        Context.set("suffix", "-x");
+        build("{\"items/*/name\":\"suffix\",\"extra/*/qty\":\"increment\",\"codes/*\":\"increment\"}", 16).assign(order);
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 0) {
+                assertNull(items.get(i));
+            } else {
+                assertEquals("i" + i + "-x", items.get(i).getName());
+            }
+            assertEquals(i + 1, extra[i].getQty());
+            assertEquals(1, order.getCodes()[i]);
+        }
+    }
+
+    @Test
+    public void testParallelExceptionUnwrapped() throws Exception {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 100; i++) {
+            items.add(new Item(i == 57 ? null : "i" + i, i, i));
+        }
+        Order order = new Order();
+        order.setItems(items);
+        try {
+            build("{\"items/*/name\":\"suffix\"}", 16).assign(order);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("no name", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSet() throws Exception {
+        Basket basket = new Basket();
+        basket.setItems(new LinkedHashSet<Item>(Arrays.asList(new Item("a", 1, 1), new Item("b", 2, 2))));
+        build(Basket.class, "{\"items/*/name\":\"upper\"}", 0).assign(basket);
+        assertEquals("[A/1.0/1/null, B/2.0/2/null]", basket.getItems().toString());
+
+        try {
+            build(Basket.class, "{\"items/*\":\"batch\",\"items/*/name\":\"upper\"}", 0).assign(basket);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Set无法按位置写回Provider的新值
+        }
+    }
+
+    private Assignment build(String rule, int parallelThreshold) throws Exception {
+        return build(Order.class, rule, parallelThreshold);
+    }
+
+    private Assignment build(Class<?> type, String rule, int parallelThreshold) throws Exception {
+        return AssignmentBuilder.build(new JsonParser().parse(rule).getAsJsonObject(), resources, type, parallelThreshold, pool);
+    }
+
+    public static class Basket {
+
+        private Set<Item> items;
+
+        public Set<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(Set<Item> items) {
+            this.items = items;
+        }
+
+    }
+
+    /**
+     * 名称末尾追加上下文中的suffix, 名称为null时抛出异常
+     */
+    private static class SuffixProvider implements Provider {
+
+        @Override
+        public Object provide(Object oldValue) throws Exception {
+            if (oldValue == null) {
+                throw new IllegalStateException("no name");
+            }
+            return oldValue + String.valueOf(Context.get("suffix"));
+        }
+
+    }
+
+    /**
+     * 返回名称末尾加!的新元素, 记录批量调用的次数
+     */
+    private static class CountingBatchProvider implements BatchProvider {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicInteger elements = new AtomicInteger();
+
+        @Override
+        public Object provide(Object oldValue) throws Exception {
+            return provideBatch(Arrays.asList(oldValue)).get(0);
+        }
+
+        @Override
+        public List<Object> provideBatch(List<Object> oldValues) throws Exception {
+            calls.incrementAndGet();
+            elements.addAndGet(oldValues.size());
+            List<Object> newValues = new ArrayList<Object>(oldValues.size());
+            for (Object oldValue : oldValues) {
+                Item item = (Item) oldValue;
+                Item newItem = new Item(item.getName() + "!", item.getPrice(), item.getQty());
+                newItem.setStock(item.getStock());
+                newValues.add(newItem);
+            }
+            return newValues;
+        }
+
+    }
+
+}
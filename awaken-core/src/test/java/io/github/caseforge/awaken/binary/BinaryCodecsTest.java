@@ -0,0 +1,121 @@
+package io.github.caseforge.awaken.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.github.caseforge.awaken.json.JsonCodecs;
+import io.github.caseforge.awaken.sample.Item;
+import io.github.caseforge.awaken.sample.Order;
+
+public class BinaryCodecsTest {
+
+    @Test
+    public void testGeneratedRoundTrip() throws Exception {
+        assertTrue(BinaryCodecs.of(Order.class).getClass().getName().startsWith(Order.class.getName()));
+        Order order = order();
+        byte[] bs = BinaryCodecs.encode(order);
+        assertEquals(order.toString(), BinaryCodecs.decode(bs, Order.class).toString());
+        assertTrue(bs.length < JsonCodecs.encode(order).length);
+    }
+
+    @Test
+    public void testNullsAndDefaults() throws Exception {
+        Order order = new Order();
+        assertEquals(order.toString(), BinaryCodecs.decode(BinaryCodecs.encode(order), Order.class).toString());
+
+        order.setUser("");
+        order.setItems(Collections.<Item>emptyList());
+        order.setExtra(new Item[0]);
+        order.setCodes(new int[0]);
+        assertEquals(order.toString(), BinaryCodecs.decode(BinaryCodecs.encode(order), Order.class).toString());
+    }
+
+    @Test
+    public void testBufferPosition() throws Exception {
+        Order order = order();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        BinaryCodecs.encode(order, buffer);
+        BinaryCodecs.encode("tail", buffer);
+        buffer.flip();
+        assertEquals(order.toString(), BinaryCodecs.decode(buffer, Order.class).toString());
+        assertEquals("tail", BinaryCodecs.decode(buffer, String.class));
+        assertFalse(buffer.hasRemaining());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryCodecs.encode(order, out);
+        assertEquals(order.toString(), BinaryCodecs.decode(out.toByteArray(), Order.class).toString());
+    }
+
+    @Test
+    public void testGenericTypes() throws Exception {
+        Type type = Order.class.getDeclaredField("items").getGenericType();
+        List<Item> items = Arrays.asList(new Item("a", Double.NaN, 1), null, new Item("b", -2, 2));
+        // encode按运行时类型写出, 泛型参数需要通过声明的类型取得Codec
+        BinaryWriter writer = new BinaryWriter();
+        BinaryCodecs.of(type).write(writer, items);
+        assertEquals(items.toString(), BinaryCodecs.decode(writer.toByteArray(), type).toString());
+    }
+
+    @Test
+    public void testJsonFallbackRoundTrip() throws Exception {
+        assertFalse(BinaryCodecs.of(Hidden.class).getClass().getName().startsWith(Hidden.class.getName()));
+        Hidden hidden = new Hidden();
+        hidden.setName("隐藏");
+        hidden.setItem(new Item("a", 1, 2));
+        Hidden decoded = (Hidden) BinaryCodecs.decode(BinaryCodecs.encode(hidden), Hidden.class);
+        assertEquals("隐藏", decoded.getName());
+        assertEquals("a/1.0/2/null", decoded.getItem().toString());
+    }
+
+    static Order order() {
+        Item main = new Item("主 😀", 9.99, 3);
+        main.setStock(-1);
+        Order order = new Order();
+        order.setUser("u1");
+        order.setCount(-42);
+        order.setMain(main);
+        order.setItems(Arrays.asList(new Item("a", 1.5, 1), new Item("b", 0, Integer.MIN_VALUE)));
+        order.setExtra(new Item[] { null, new Item("c", -3.25, 7) });
+        order.setCodes(new int[] { 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE });
+        order.setNamed(Collections.singletonMap("k", new Item("d", 4, 4)));
+        return order;
+    }
+
+    /**
+     * 非public的类型无法生成Codec, 以JSON字节写出
+     */
+    static class Hidden {
+
+        private String name;
+
+        private Item item;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Item getItem() {
+            return item;
+        }
+
+        public void setItem(Item item) {
+            this.item = item;
+        }
+
+    }
+
+}
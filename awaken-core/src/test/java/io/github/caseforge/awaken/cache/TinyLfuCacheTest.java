@@ -0,0 +1,99 @@
+package io.github.caseforge.awaken.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(10, 0, 0);
+        assertNull(cache.get("a"));
+        cache.put("a", "1", 1);
+        assertEquals("1", cache.get("a"));
+        cache.put("a", "2", 1);
+        assertEquals("2", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testSizeBounded() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<Integer, Integer>(100, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i, 1);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<Integer, Integer>(100, 0, 0);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (cache.get(i) == null) {
+                    cache.put(i, i, 1);
+                }
+            }
+        }
+        // 只访问一次的条目不应挤掉经常访问的条目
+        for (int i = 1000; i < 11000; i++) {
+            cache.put(i, i, 1);
+        }
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(i) != null) {
+                retained++;
+            }
+        }
+        assertTrue("retained " + retained, retained >= 45);
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testWeightBounded() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(100, 100, 0);
+        cache.put("a", "a", 60);
+        cache.put("b", "b", 60);
+        assertTrue(cache.getWeightedSize() <= 100);
+        assertEquals(1, cache.size());
+
+        // 超过最大总权重的条目不缓存
+        cache.put("c", "c", 101);
+        assertNull(cache.get("c"));
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(10, 0, 50);
+        cache.put("a", "1", 1);
+        assertEquals("1", cache.get("a"));
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+
+        // 重新写入后重新计时
+        cache.put("a", "2", 1);
+        assertEquals("2", cache.get("a"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(10, 0, 0);
+        cache.put("a", "1", 1);
+        cache.put("b", "2", 1);
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeightedSize());
+    }
+
+}
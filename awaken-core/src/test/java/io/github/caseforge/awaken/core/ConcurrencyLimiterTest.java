@@ -0,0 +1,180 @@
+package io.github.caseforge.awaken.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.github.caseforge.awaken.Invoker;
+import io.github.caseforge.awaken.validation.ValidationException;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testInitialLimitClamped() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setInitialLimit(50);
+        limiter.setMaxLimit(10);
+        assertEquals(10, limiter.getLimit());
+        limiter.setMinLimit(20);
+        limiter.setMaxLimit(100);
+        assertEquals(50, limiter.getLimit());
+    }
+
+    @Test
+    public void testRejectAtLimit() {
+        ConcurrencyLimiter limiter = limiter(2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.ignore();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInflight());
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        ConcurrencyLimiter limiter = limiter(4);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.release(100);
+        assertEquals(5, limiter.getLimit());
+
+        // 并发不到上限一半时不增加
+        limiter.release(100);
+        limiter.release(100);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void testDecreaseOnSlowCall() {
+        ConcurrencyLimiter limiter = limiter(20);
+        limiter.tryAcquire();
+        limiter.release(100);
+        limiter.tryAcquire();
+        limiter.release(1000);
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    public void testDecreaseOnDrop() {
+        ConcurrencyLimiter limiter = limiter(20);
+        for (int i = 0; i < 30; i++) {
+            limiter.tryAcquire();
+            limiter.drop();
+        }
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void testWindowedMinimum() {
+        ConcurrencyLimiter limiter = limiter(20);
+        limiter.setProbeInterval(4);
+        limiter.setTolerance(100);
+        // 第一个窗口的最小值为100, 窗口末尾的大样本不会成为新的基准
+        release(limiter, 100, 200, 300, 5000);
+        limiter.setTolerance(2);
+        int limit = limiter.getLimit();
+        release(limiter, 150);
+        assertEquals(limit, limiter.getLimit());
+        release(limiter, 250);
+        assertEquals((int) (limit * 0.9), limiter.getLimit());
+    }
+
+    @Test
+    public void testLocalRejectionsIgnored() throws Exception {
+        ConcurrencyLimiter limiter = limiter(20);
+        LimitedInvoker invoker = new LimitedInvoker();
+        invoker.setLimiter(limiter);
+        invoker.setDelegate(new FailingInvoker(new ValidationException("bad")));
+        for (int i = 0; i < 10; i++) {
+            try {
+                invoker.invoke("a");
+            } catch (ValidationException e) {
+                // 预期的校验失败
+            }
+        }
+        assertEquals(20, limiter.getLimit());
+
+        invoker.setDelegate(new FailingInvoker(new IllegalStateException("timeout")));
+        try {
+            invoker.invoke("a");
+        } catch (IllegalStateException e) {
+            // 预期的下游失败
+        }
+        assertEquals(18, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void testAsyncFailureDecreases() throws Exception {
+        ConcurrencyLimiter limiter = limiter(20);
+        LimitedInvoker invoker = new LimitedInvoker();
+        invoker.setLimiter(limiter);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            ExecutorInvoker executorInvoker = new ExecutorInvoker();
+            executorInvoker.setExecutor(executor);
+            executorInvoker.setDelegate(new FailingInvoker(new IllegalStateException("timeout")));
+            invoker.setDelegate(executorInvoker);
+            CompletableFuture<Object> future = invoker.invokeAsync("a").toCompletableFuture();
+            future.whenComplete((result, e) -> latch.countDown());
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(future.isCompletedExceptionally());
+            assertEquals(18, limiter.getLimit());
+            assertEquals(0, limiter.getInflight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ConcurrencyLimiter limiter(int initialLimit) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setInitialLimit(initialLimit);
+        return limiter;
+    }
+
+    private static void release(ConcurrencyLimiter limiter, long... rtts) {
+        for (long rtt : rtts) {
+            limiter.tryAcquire();
+            limiter.release(rtt);
+        }
+    }
+
+    private static class FailingInvoker implements Invoker {
+
+        private final Exception exception;
+
+        FailingInvoker(Exception exception) {
+            this.exception = exception;
+        }
+
+        public Class<?> getRequestType() {
+            return String.class;
+        }
+
+        public Class<?> getResponseType() {
+            return String.class;
+        }
+
+        public void setTarget(Object target) {
+        }
+
+        public Object invoke(Object input) throws Exception {
+            throw exception;
+        }
+
+    }
+
+}
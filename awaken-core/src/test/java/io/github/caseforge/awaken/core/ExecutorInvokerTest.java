@@ -0,0 +1,108 @@
+package io.github.caseforge.awaken.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.caseforge.awaken.Context;
+import io.github.caseforge.awaken.Invoker;
+
+public class ExecutorInvokerTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        Context.clear();
+    }
+
+    @Test
+    public void testInvokeOnExecutor() throws Exception {
+        ExecutorInvoker invoker = executorInvoker(new ThreadNameInvoker());
+        assertNotEquals(Thread.currentThread().getName(), invoker.invoke("a"));
+        assertEquals(Arrays.asList(invoker.invoke("b"), invoker.invoke("c")), invoker.invokeBatch(Arrays.asList("b", "c")));
+    }
+
+    @Test
+    public void testContextCopiedBack() throws Exception {
+        Context.set("user", "u1");
+        ExecutorInvoker invoker = executorInvoker(new ThreadNameInvoker());
+        invoker.invoke("a");
+        assertEquals("u1", Context.get("user"));
+        assertEquals("a", Context.get("last"));
+    }
+
+    @Test
+    public void testNestedInvokeDoesNotDeadlock() throws Exception {
+        ExecutorInvoker inner = executorInvoker(new ThreadNameInvoker());
+        ExecutorInvoker outer = executorInvoker(new ForwardInvoker(inner));
+        // 单线程的Executor中嵌套调用必须在当前线程执行
+        assertEquals(outer.invoke("a"), inner.invokeAsync("a").toCompletableFuture().get());
+    }
+
+    @Test
+    public void testExceptionUnwrapped() throws Exception {
+        ExecutorInvoker invoker = executorInvoker(new ForwardInvoker(null));
+        try {
+            invoker.invoke("a");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("no delegate", e.getMessage());
+        }
+        assertNull(Context.get("last"));
+    }
+
+    private ExecutorInvoker executorInvoker(Invoker delegate) {
+        ExecutorInvoker invoker = new ExecutorInvoker();
+        invoker.setDelegate(delegate);
+        invoker.setExecutor(executor);
+        return invoker;
+    }
+
+    private static class ThreadNameInvoker implements Invoker {
+
+        public Class<?> getRequestType() {
+            return String.class;
+        }
+
+        public Class<?> getResponseType() {
+            return String.class;
+        }
+
+        public void setTarget(Object target) {
+        }
+
+        public Object invoke(Object input) throws Exception {
+            Context.set("last", input);
+            return Thread.currentThread().getName();
+        }
+
+    }
+
+    private static class ForwardInvoker extends ThreadNameInvoker {
+
+        private final Invoker delegate;
+
+        ForwardInvoker(Invoker delegate) {
+            this.delegate = delegate;
+        }
+
+        public Object invoke(Object input) throws Exception {
+            if (delegate == null) {
+                throw new IllegalArgumentException("no delegate");
+            }
+            return delegate.invoke(input);
+        }
+
+    }
+
+}
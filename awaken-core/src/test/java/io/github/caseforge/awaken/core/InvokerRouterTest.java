@@ -0,0 +1,126 @@
+package io.github.caseforge.awaken.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.github.caseforge.awaken.Invoker;
+
+public class InvokerRouterTest {
+
+    private static final List<String> KEYS = Arrays.asList("/order/query@default", "/order/query@admin", "/order@query", "/订单/查询@默认", "/é/ß@ü", "/emoji/😀@😁", "/bad\uD800@r", "@", "/empty@");
+
+    @Test
+    public void testAllLookupsAgree() {
+        Map<String, Invoker> invokerMap = invokerMap(KEYS);
+        InvokerRouter router = new InvokerRouter(invokerMap);
+        assertEquals(invokerMap.size(), router.size());
+        for (Map.Entry<String, Invoker> entry : invokerMap.entrySet()) {
+            assertLookups(router, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Test
+    public void testManyKeysWithCollisions() {
+        Map<String, Invoker> invokerMap = new LinkedHashMap<String, Invoker>();
+        for (int i = 0; i < 500; i++) {
+            invokerMap.put("/服务" + i + "/m@r" + (i % 7), new NamedInvoker("k" + i));
+        }
+        InvokerRouter router = new InvokerRouter(invokerMap);
+        for (Map.Entry<String, Invoker> entry : invokerMap.entrySet()) {
+            assertLookups(router, entry.getKey(), entry.getValue());
+        }
+        assertLookups(router, "/服务500/m@r3", null);
+    }
+
+    @Test
+    public void testMisses() {
+        InvokerRouter router = new InvokerRouter(invokerMap(KEYS));
+        for (String id : Arrays.asList("/order/query", "/order/query@", "/order/query@defaul", "/order/query@defaultx", "/order@query@default", "/订单/查询@默", "/emoji/😀@😂", "")) {
+            assertLookups(router, id, null);
+        }
+        // uri中也可以包含@, 分开传入时与拼接后的结果一致
+        assertSame(router.find("/order@query"), router.find("/order", "query"));
+        assertNull(router.find("/order@query", "default"));
+    }
+
+    @Test
+    public void testEmptyRouter() {
+        assertEquals(0, InvokerRouter.EMPTY.size());
+        assertLookups(InvokerRouter.EMPTY, "/order/query@default", null);
+    }
+
+    /**
+     * CharSequence, byte[]以及uri和rule分开传入的各种查找方式结果一致, byte[]放在有前后缀的缓冲区中
+     */
+    private static void assertLookups(InvokerRouter router, String id, Invoker expected) {
+        assertSame(id, expected, router.find(id));
+        assertSame(id, expected, router.find(new StringBuilder(id)));
+
+        byte[] bs = id.getBytes(StandardCharsets.UTF_8);
+        byte[] buffer = new byte[bs.length + 8];
+        Arrays.fill(buffer, (byte) '@');
+        System.arraycopy(bs, 0, buffer, 3, bs.length);
+        assertSame(id, expected, router.find(buffer, 3, bs.length));
+
+        int separator = id.lastIndexOf('@');
+        if (separator < 0) {
+            return;
+        }
+        String uri = id.substring(0, separator);
+        String rule = id.substring(separator + 1);
+        assertSame(id, expected, router.find(uri, rule));
+        assertSame(id, expected, router.find(new StringBuilder(uri), new StringBuilder(rule)));
+
+        byte[] uriBytes = uri.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(uriBytes, 0, buffer, 5, uriBytes.length);
+        assertSame(id, expected, router.find(buffer, 5, uriBytes.length, rule));
+    }
+
+    private static Map<String, Invoker> invokerMap(List<String> keys) {
+        Map<String, Invoker> invokerMap = new LinkedHashMap<String, Invoker>();
+        for (String key : keys) {
+            invokerMap.put(key, new NamedInvoker(key));
+        }
+        return invokerMap;
+    }
+
+    private static class NamedInvoker implements Invoker {
+
+        private final String name;
+
+        NamedInvoker(String name) {
+            this.name = name;
+        }
+
+        public Class<?> getRequestType() {
+            return String.class;
+        }
+
+        public Class<?> getResponseType() {
+            return String.class;
+        }
+
+        public void setTarget(Object target) {
+        }
+
+        public Object invoke(Object input) throws Exception {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+}
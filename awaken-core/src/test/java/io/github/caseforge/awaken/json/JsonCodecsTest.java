@@ -0,0 +1,125 @@
+package io.github.caseforge.awaken.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.github.caseforge.awaken.sample.Item;
+import io.github.caseforge.awaken.sample.Order;
+
+public class JsonCodecsTest {
+
+    @Test
+    public void testGeneratedRoundTrip() throws Exception {
+        assertFalse(JsonCodecs.of(Order.class) instanceof ReflectJsonCodec);
+        Order order = order();
+        Order decoded = (Order) JsonCodecs.decode(JsonCodecs.encode(order), Order.class);
+        assertEquals(order.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testNullsAndDefaults() throws Exception {
+        Order order = new Order();
+        Order decoded = (Order) JsonCodecs.decode(JsonCodecs.encode(order), Order.class);
+        assertEquals(order.toString(), decoded.toString());
+
+        decoded = (Order) JsonCodecs.decode("{\"user\":null,\"count\":3,\"unknown\":{\"a\":[1,\"x\",null]},\"main\":{\"name\":\"m\",\"stock\":null}}".getBytes(StandardCharsets.UTF_8), Order.class);
+        assertNull(decoded.getUser());
+        assertEquals(3, decoded.getCount());
+        assertEquals("m/0.0/0/null", decoded.getMain().toString());
+    }
+
+    @Test
+    public void testEscapedStrings() throws Exception {
+        Order order = new Order();
+        order.setUser("\"引号\"\\ \n\t\u0001 😀 é");
+        byte[] bs = JsonCodecs.encode(order);
+        assertEquals(order.getUser(), ((Order) JsonCodecs.decode(bs, Order.class)).getUser());
+    }
+
+    @Test
+    public void testStreamsAndBuffers() throws Exception {
+        Order order = order();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonCodecs.encode(order, out);
+        assertEquals(order.toString(), JsonCodecs.decode(new ByteArrayInputStream(out.toByteArray()), Order.class).toString());
+
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        JsonCodecs.encode(order, buffer);
+        buffer.flip();
+        assertEquals(order.toString(), JsonCodecs.decode(buffer, Order.class).toString());
+    }
+
+    @Test
+    public void testGenericTypes() throws Exception {
+        Type type = Order.class.getDeclaredField("items").getGenericType();
+        List<Item> items = Arrays.asList(new Item("a", 1.5, 1), null, new Item("b", -2, 2));
+        assertEquals(items.toString(), JsonCodecs.decode(JsonCodecs.encode(items), type).toString());
+        assertEquals(Collections.emptyList(), JsonCodecs.decode(JsonCodecs.encode(Collections.emptyList()), type));
+    }
+
+    @Test
+    public void testReflectRoundTrip() throws Exception {
+        assertTrue(JsonCodecs.of(Hidden.class) instanceof ReflectJsonCodec);
+        Hidden hidden = new Hidden();
+        hidden.setName("h");
+        hidden.setItem(new Item("a", 1, 2));
+        Hidden decoded = (Hidden) JsonCodecs.decode(JsonCodecs.encode(hidden), Hidden.class);
+        assertEquals("h", decoded.getName());
+        assertEquals("a/1.0/2/null", decoded.getItem().toString());
+    }
+
+    static Order order() {
+        Item main = new Item("主", 9.99, 3);
+        main.setStock(-1);
+        Order order = new Order();
+        order.setUser("u1");
+        order.setCount(-42);
+        order.setMain(main);
+        order.setItems(Arrays.asList(new Item("a", 1.5, 1), new Item("b", 0, Integer.MIN_VALUE)));
+        order.setExtra(new Item[] { null, new Item("c", -3.25, 7) });
+        order.setCodes(new int[] { 0, -1, Integer.MAX_VALUE });
+        order.setNamed(Collections.singletonMap("k", new Item("d", 4, 4)));
+        return order;
+    }
+
+    /**
+     * 非public的类型使用ReflectJsonCodec
+     */
+    static class Hidden {
+
+        private String name;
+
+        private Item item;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Item getItem() {
+            return item;
+        }
+
+        public void setItem(Item item) {
+            this.item = item;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package io.github.caseforge.awaken.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.valueOf(LatencyHistogram.indexOf(value)));
+        }
+        // 桶中的最大值不小于记录的值, 相对误差不超过1/32
+        for (long value = 64; value < (1L << 36); value = value * 3 / 2 + 7) {
+            long upper = LatencyHistogram.valueOf(LatencyHistogram.indexOf(value));
+            assertTrue(value + " -> " + upper, upper >= value && upper - value <= value / 32);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertNear(500000, snapshot.percentile(50));
+        assertNear(990000, snapshot.percentile(99));
+        assertNear(1000000, snapshot.getMax());
+        assertNear(500500, (long) snapshot.getMean());
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().percentile(99));
+    }
+
+    @Test
+    public void testOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.percentile(50));
+        assertTrue(snapshot.getMax() >= (1L << 36) - 1);
+    }
+
+    @Test
+    public void testConcurrentRecordsNotLost() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int records = 100000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> list = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < records; i++) {
+                    histogram.record(100);
+                }
+            });
+            thread.start();
+            list.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : list) {
+            thread.join();
+        }
+        assertEquals((long) threads * records, histogram.snapshot().getCount());
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 32 + 1);
+    }
+
+}
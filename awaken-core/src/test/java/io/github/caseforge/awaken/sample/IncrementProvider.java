@@ -0,0 +1,22 @@
+package io.github.caseforge.awaken.sample;
+
+import io.github.caseforge.awaken.Provider;
+
+public class IncrementProvider implements Provider {
+
+    private int step = 1;
+
+    @Override
+    public Object provide(Object oldValue) throws Exception {
+        return oldValue == null ? null : ((Number) oldValue).intValue() + step;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public void setStep(int step) {
+        this.step = step;
+    }
+
+}
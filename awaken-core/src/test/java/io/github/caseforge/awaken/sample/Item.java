@@ -0,0 +1,59 @@
+package io.github.caseforge.awaken.sample;
+
+public class Item {
+
+    private String name;
+
+    private double price;
+
+    private int qty;
+
+    private Integer stock;
+
+    public Item() {
+    }
+
+    public Item(String name, double price, int qty) {
+        this.name = name;
+        this.price = price;
+        this.qty = qty;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public void setQty(int qty) {
+        this.qty = qty;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    @Override
+    public String toString() {
+        return name + "/" + price + "/" + qty + "/" + stock;
+    }
+
+}
@@ -0,0 +1,12 @@
+package io.github.caseforge.awaken.sample;
+
+import io.github.caseforge.awaken.Provider;
+
+public class NullProvider implements Provider {
+
+    @Override
+    public Object provide(Object oldValue) throws Exception {
+        return null;
+    }
+
+}
@@ -0,0 +1,84 @@
+package io.github.caseforge.awaken.sample;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class Order {
+
+    private String user;
+
+    private int count;
+
+    private Item main;
+
+    private List<Item> items;
+
+    private Item[] extra;
+
+    private int[] codes;
+
+    private Map<String, Item> named;
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Item getMain() {
+        return main;
+    }
+
+    public void setMain(Item main) {
+        this.main = main;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public Item[] getExtra() {
+        return extra;
+    }
+
+    public void setExtra(Item[] extra) {
+        this.extra = extra;
+    }
+
+    public int[] getCodes() {
+        return codes;
+    }
+
+    public void setCodes(int[] codes) {
+        this.codes = codes;
+    }
+
+    public Map<String, Item> getNamed() {
+        return named;
+    }
+
+    public void setNamed(Map<String, Item> named) {
+        this.named = named;
+    }
+
+    @Override
+    public String toString() {
+        return user + " " + count + " " + main + " " + items + " " + Arrays.toString(extra) + " " + Arrays.toString(codes) + " " + named;
+    }
+
+}
@@ -0,0 +1,51 @@
+package io.github.caseforge.awaken.sample;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.caseforge.awaken.ResourceProvider;
+import io.github.caseforge.awaken.validators.LengthValidator;
+import io.github.caseforge.awaken.validators.RangeValidator;
+import io.github.caseforge.awaken.validators.RequiredValidator;
+
+/**
+ * 测试用的ResourceProvider, 注册为Class的bean每次获取时新建实例
+ */
+public class SampleResources implements ResourceProvider {
+
+    private final Map<String, Object> beans = new HashMap<String, Object>();
+
+    private final Map<String, String> resources = new HashMap<String, String>();
+
+    public SampleResources() {
+        beans.put("requiredValidator", RequiredValidator.class);
+        beans.put("lengthValidator", LengthValidator.class);
+        beans.put("rangeValidator", RangeValidator.class);
+    }
+
+    public SampleResources bean(String name, Object bean) {
+        beans.put(name, bean);
+        return this;
+    }
+
+    public SampleResources resource(String uri, String content) {
+        resources.put(uri, content);
+        return this;
+    }
+
+    @Override
+    public Object getBean(String name) throws Exception {
+        Object bean = beans.get(name);
+        if (bean == null) {
+            throw new Exception("no bean found for name " + name);
+        }
+        return bean instanceof Class ? ((Class<?>) bean).newInstance() : bean;
+    }
+
+    @Override
+    public byte[] getResource(String uri) throws Exception {
+        String content = resources.get(uri);
+        return content == null ? null : content.getBytes("utf-8");
+    }
+
+}
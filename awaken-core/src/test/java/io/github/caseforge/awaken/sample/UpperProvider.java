@@ -0,0 +1,12 @@
+package io.github.caseforge.awaken.sample;
+
+import io.github.caseforge.awaken.Provider;
+
+public class UpperProvider implements Provider {
+
+    @Override
+    public Object provide(Object oldValue) throws Exception {
+        return oldValue == null ? null : oldValue.toString().toUpperCase();
+    }
+
+}
@@ -0,0 +1,164 @@
+package io.github.caseforge.awaken.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.github.caseforge.awaken.sample.Item;
+import io.github.caseforge.awaken.sample.Order;
+import io.github.caseforge.awaken.sample.SampleResources;
+
+public class MultipleNodeTest {
+
+    private static final String RULE = "{"
+            + "\"items/*\":[{\"type\":\"required\",\"message\":\"item required\"}],"
+            + "\"items/*/price\":[{\"type\":\"range\",\"max\":10,\"message\":\"price too high\"}],"
+            + "\"codes/*\":[{\"type\":\"range\",\"min\":0,\"message\":\"code negative\"}]"
+            + "}";
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private final SampleResources resources = new SampleResources().bean("counting", CountingValidator.class);
+
+    @AfterClass
+    public static void tearDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        assertEquals("price too high", outcome(validation(RULE, 0, 0), order(10)));
+        // 并行时先完成的分段的错误先抛出
+        String message = outcome(validation(RULE, 0, 2), order(10));
+        assertEquals(true, "price too high".equals(message) || "item required".equals(message));
+    }
+
+    @Test
+    public void testCollectAll() throws Exception {
+        String expected = "[1] price too high; [3] item required; [5] price too high; [7] item required; [9] price too high";
+        assertEquals(expected, outcome(validation(RULE, 100, 0), order(10)));
+        // 并行校验的结果按元素下标排序, 与顺序校验一致
+        assertEquals(expected, outcome(validation(RULE, 100, 2), order(10)));
+    }
+
+    @Test
+    public void testCollectLimited() throws Exception {
+        String expected = "[1] price too high; [3] item required; ...";
+        assertEquals(expected, outcome(validation(RULE, 2, 0), order(10)));
+        assertEquals("[1] price too high; [3] item required", outcome(validation(RULE, 2, 0), order(4)));
+
+        Order order = order(1000);
+        String message = outcome(validation(RULE, 3, 2), order);
+        assertEquals(3, message.split("; \\[").length);
+        assertEquals(true, message.endsWith("; ..."));
+    }
+
+    @Test
+    public void testIterable() throws Exception {
+        Order order = order(10);
+        List<Item> items = new ArrayList<Item>(order.getItems());
+        items.remove(3);
+        items.remove(6);
+        order.setItems(new LinkedList<Item>(items));
+        // 不按RandomAccess访问的List, 逐个迭代
+        assertEquals("[1] price too high; [4] price too high; [7] price too high", outcome(validation(RULE, 100, 0), order));
+    }
+
+    @Test
+    public void testPrimitiveArray() throws Exception {
+        Order order = order(0);
+        order.setCodes(new int[] { 1, -1, 2, -2 });
+        assertEquals("code negative", outcome(validation(RULE, 0, 0), order));
+        assertEquals("[1] code negative; [3] code negative", outcome(validation(RULE, 100, 0), order));
+        assertEquals("[1] code negative; [3] code negative", outcome(validation(RULE, 100, 2), order));
+    }
+
+    @Test
+    public void testValid() throws Exception {
+        Order order = new Order();
+        order.setItems(Arrays.asList(new Item("a", 1, 1)));
+        assertNull(validation(RULE, 100, 0).check(order));
+        assertEquals("ok", outcome(validation(RULE, 0, 0), order));
+    }
+
+    @Test
+    public void testCollectWithoutThrowing() throws Exception {
+        CountingValidator.checks.set(0);
+        Validation validation = validation("{\"items/*/name\":[{\"type\":\"counting\",\"message\":\"bad name\"}]}", 100, 0);
+        Order order = order(6);
+        order.getItems().set(3, new Item("x", 1, 1));
+        assertEquals("[0] bad name; [1] bad name; [2] bad name; [3] bad name; [4] bad name; [5] bad name", outcome(validation, order));
+        assertEquals(6, CountingValidator.checks.get());
+    }
+
+    private AbstractNode validation(String rule, int maxErrors, int parallelThreshold) throws Exception {
+        JsonObject config = new JsonParser().parse(rule).getAsJsonObject();
+        return (AbstractNode) ValidationBuilder.build(config, resources, Order.class, maxErrors, parallelThreshold, POOL);
+    }
+
+    private static String outcome(Validation validation, Order order) {
+        try {
+            validation.validate(order);
+            return "ok";
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * 奇数下标的价格超出范围, 下标除4余3的元素为null
+     */
+    private static Order order(int size) {
+        Order order = new Order();
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < size; i++) {
+            items.add(i % 4 == 3 ? null : new Item("n" + i, i % 2 == 1 ? 20 : 1, 1));
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    /**
+     * 收集全部错误时只应调用check
+     */
+    public static class CountingValidator implements CheckingValidator {
+
+        static final AtomicInteger checks = new AtomicInteger();
+
+        private String message;
+
+        @Override
+        public boolean check(Object target) throws Exception {
+            checks.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public void validate(Object target) throws Exception {
+            fail("validate called");
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+    }
+
+}
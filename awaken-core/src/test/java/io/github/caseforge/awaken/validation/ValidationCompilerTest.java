@@ -0,0 +1,120 @@
+package io.github.caseforge.awaken.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.github.caseforge.awaken.core.Coder;
+import io.github.caseforge.awaken.sample.Item;
+import io.github.caseforge.awaken.sample.Order;
+import io.github.caseforge.awaken.sample.SampleResources;
+
+/**
+ * 同一份规则编译前后的校验结果应当一致
+ */
+public class ValidationCompilerTest {
+
+    private static final String RULE = "{"
+            + "\"user\":[{\"type\":\"required\",\"message\":\"user required\"},{\"type\":\"length\",\"maxLength\":3,\"message\":\"user too long\"}],"
+            + "\"count\":[{\"type\":\"range\",\"min\":1,\"message\":\"count too small\"}],"
+            + "\"main\":[{\"type\":\"required\",\"message\":\"main required\"}],"
+            + "\"main/name\":[{\"type\":\"length\",\"maxLength\":4,\"message\":\"name too long\"}],"
+            + "\"main/stock\":[{\"type\":\"range\",\"min\":0,\"message\":\"stock negative\"}],"
+            + "\"items/*\":[{\"type\":\"required\",\"message\":\"item required\"}],"
+            + "\"items/*/price\":[{\"type\":\"range\",\"max\":10,\"message\":\"price too high\"}],"
+            + "\"codes/*\":[{\"type\":\"range\",\"min\":0,\"message\":\"code negative\"}]"
+            + "}";
+
+    private final SampleResources resources = new SampleResources();
+
+    private final Coder coder = new Coder();
+
+    @Test
+    public void testValid() throws Exception {
+        assertEquals("ok", assertSame(sample()));
+    }
+
+    @Test
+    public void testRequired() throws Exception {
+        Order order = sample();
+        order.setUser(null);
+        assertEquals("user required", assertSame(order));
+
+        order = sample();
+        order.setMain(null);
+        assertEquals("main required", assertSame(order));
+    }
+
+    @Test
+    public void testProperties() throws Exception {
+        Order order = sample();
+        order.setCount(0);
+        assertEquals("count too small", assertSame(order));
+
+        order = sample();
+        order.getMain().setName("too long");
+        assertEquals("name too long", assertSame(order));
+
+        order = sample();
+        order.getMain().setStock(-1);
+        assertEquals("stock negative", assertSame(order));
+    }
+
+    @Test
+    public void testMultipleFallback() throws Exception {
+        Order order = sample();
+        order.getItems().add(null);
+        assertEquals("item required", assertSame(order));
+
+        order = sample();
+        order.getItems().get(1).setPrice(11);
+        assertEquals("price too high", assertSame(order));
+
+        order = sample();
+        order.setCodes(new int[] { 1, -1 });
+        assertEquals("code negative", assertSame(order));
+
+        order = sample();
+        order.setItems(null);
+        order.setCodes(null);
+        assertEquals("ok", assertSame(order));
+    }
+
+    private String assertSame(Order order) throws Exception {
+        JsonObject config = new JsonParser().parse(RULE).getAsJsonObject();
+        Validation interpreted = ValidationBuilder.build(config, resources, Order.class);
+        Validation compiled = ValidationCompiler.compile(ValidationBuilder.build(config, resources, Order.class), Order.class, coder);
+        assertNotSame(interpreted.getClass(), compiled.getClass());
+
+        String expected = outcome(interpreted, order);
+        assertEquals(expected, outcome(compiled, order));
+        return expected;
+    }
+
+    private static String outcome(Validation validation, Order order) {
+        try {
+            validation.validate(order);
+            return "ok";
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    private static Order sample() {
+        Order order = new Order();
+        order.setUser("u");
+        order.setCount(3);
+        order.setMain(new Item("main", 1, 1));
+        order.setItems(new ArrayList<Item>(Arrays.asList(new Item("a", 1, 1), new Item("b", 2, 2))));
+        order.setCodes(new int[] { 1, 2 });
+        return order;
+    }
+
+}
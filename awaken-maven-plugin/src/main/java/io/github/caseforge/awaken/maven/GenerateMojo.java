@@ -0,0 +1,203 @@
+package io.github.caseforge.awaken.maven;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import io.github.caseforge.awaken.annotation.Provider;
+import io.github.caseforge.awaken.annotation.SPI;
+import io.github.caseforge.awaken.annotation.Svc;
+import io.github.caseforge.awaken.annotation.Validator;
+import io.github.caseforge.awaken.core.Coder;
+
+/**
+ * 在构建期生成Request/Response/Invoker/Proxy/Provider/Validator类,
+ * 运行时由{@link Coder}直接加载, 不再调用ASM生成
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    @Parameter(property = "awaken.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("awaken generation is skipped");
+            return;
+        }
+
+        if (!classesDirectory.isDirectory()) {
+            getLog().info("no classes found in " + classesDirectory);
+            return;
+        }
+
+        try {
+            List<String> classNames = new ArrayList<String>();
+            scan(classesDirectory, "", classNames);
+            Collections.sort(classNames);
+
+            delete(new File(classesDirectory, Coder.CLASSES_RESOURCE));
+
+            ClassLoader loader = createClassLoader();
+            Coder coder = new Coder(loader);
+
+            int count = 0;
+            for (String className : classNames) {
+                Class<?> type = null;
+                try {
+                    type = Class.forName(className, false, loader);
+                } catch (Throwable e) {
+                    getLog().debug("skip type " + className + " : " + e);
+                    continue;
+                }
+                count += generate(coder, type);
+            }
+
+            getLog().info("generated " + count + " classes into " + new File(classesDirectory, Coder.CLASSES_RESOURCE));
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("error in generating awaken classes", e);
+        }
+    }
+
+    protected int generate(Coder coder, Class<?> type) throws Exception {
+        int count = 0;
+
+        if (type.isInterface()) {
+            boolean svc = type.isAnnotationPresent(Svc.class);
+            boolean spi = type.isAnnotationPresent(SPI.class);
+
+            if (!svc && !spi) {
+                return count;
+            }
+
+            for (Method method : type.getMethods()) {
+                count += write(coder, method, Coder.SUFFIX_REQUEST);
+                count += write(coder, method, Coder.SUFFIX_RESPONSE);
+                count += write(coder, method, Coder.SUFFIX_REQUEST + Coder.SUFFIX_ACCESSOR);
+                count += write(coder, method, Coder.SUFFIX_RESPONSE + Coder.SUFFIX_ACCESSOR);
+                count += write(coder, method, Coder.SUFFIX_REQUEST + Coder.SUFFIX_JSON_CODEC);
+                count += write(coder, method, Coder.SUFFIX_RESPONSE + Coder.SUFFIX_JSON_CODEC);
+                count += write(coder, method, Coder.SUFFIX_REQUEST + Coder.SUFFIX_BINARY_CODEC);
+                count += write(coder, method, Coder.SUFFIX_RESPONSE + Coder.SUFFIX_BINARY_CODEC);
+                if (svc) {
+                    count += write(coder, method, Coder.SUFFIX_INVOKER);
+                }
+            }
+
+            if (spi) {
+                count += write(coder, type.getName() + Coder.SUFFIX_PROXY);
+            }
+            return count;
+        }
+
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return count;
+        }
+
+        for (Method method : type.getMethods()) {
+            if (method.isAnnotationPresent(Provider.class)) {
+                count += write(coder, method, Coder.SUFFIX_PROVIDER);
+            }
+
+            if (method.isAnnotationPresent(Validator.class)) {
+                count += write(coder, method, Coder.SUFFIX_VALIDATOR);
+            }
+        }
+        return count;
+    }
+
+    private int write(Coder coder, Method method, String suffix) throws Exception {
+        return write(coder, coder.pkgOf(method) + suffix);
+    }
+
+    private int write(Coder coder, String name) throws Exception {
+        File classFile = new File(classesDirectory, Coder.CLASSES_RESOURCE + coder.fileNameOf(name));
+        if (classFile.exists()) {
+            return 0;
+        }
+
+        byte[] bs = null;
+        try {
+            bs = coder.generate(name);
+        } catch (Exception e) {
+            // 无法在构建期生成的类, 运行时仍会按需生成
+            getLog().warn("skip generating " + name + " : " + e);
+            return 0;
+        }
+
+        classFile.getParentFile().mkdirs();
+        FileOutputStream fos = new FileOutputStream(classFile);
+        try {
+            fos.write(bs);
+        } finally {
+            fos.close();
+        }
+
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("generated " + name);
+        }
+        return 1;
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void scan(File dir, String pkg, List<String> classNames) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String fileName = file.getName();
+            if (file.isDirectory()) {
+                if (pkg.length() == 0 && "META-INF".equals(fileName)) {
+                    continue;
+                }
+                scan(file, pkg + fileName + ".", classNames);
+            } else if (fileName.endsWith(".class") && !"module-info.class".equals(fileName)) {
+                classNames.add(pkg + fileName.substring(0, fileName.length() - ".class".length()));
+            }
+        }
+    }
+
+    private ClassLoader createClassLoader() throws Exception {
+        List<URL> urls = new ArrayList<URL>();
+        urls.add(classesDirectory.toURI().toURL());
+        for (String element : project.getCompileClasspathElements()) {
+            urls.add(new File(element).toURI().toURL());
+        }
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]), getClass().getClassLoader());
+    }
+
+}